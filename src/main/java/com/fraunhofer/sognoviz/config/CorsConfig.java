@@ -17,6 +17,8 @@ public class CorsConfig {
                         .allowedOrigins("http://localhost:3000")
                         .allowedMethods("GET", "POST", "PUT", "DELETE")
                         .allowedHeaders("*")
+                        // lets polling clients send If-None-Match / If-Modified-Since themselves
+                        .exposedHeaders("ETag", "Last-Modified")
                         .allowCredentials(true);
             }
         };
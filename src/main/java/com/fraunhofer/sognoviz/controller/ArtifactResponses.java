@@ -0,0 +1,214 @@
+package com.fraunhofer.sognoviz.controller;
+
+import com.fraunhofer.sognoviz.entity.BlobRef;
+import com.fraunhofer.sognoviz.service.BlobStore;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Responses for stored artifacts. Blobs are kept gzip compressed, so clients accepting gzip
+ * get the stored file as is, as a file resource for which Spring answers byte ranges of the
+ * compressed representation with 206 Partial Content. Other clients get the blob decompressed
+ * while it is streamed; a single byte range of that representation is answered by skipping to
+ * its start in the decompressed stream.
+ * Blobs never change, so their hash is a strong ETag and conditional requests are answered without reading them.
+ */
+final class ArtifactResponses {
+
+    static final MediaType SVG = MediaType.valueOf("image/svg+xml");
+
+    private static final String GZIP = "gzip";
+
+    private ArtifactResponses() {
+    }
+
+    /**
+     * @return The artifact response, or null when the request was answered with 304 Not Modified
+     */
+    static ResponseEntity<Resource> of(BlobStore blobStore, BlobRef ref, MediaType mediaType,
+                                       String acceptEncoding, WebRequest request) throws IOException {
+        if (ref == null || ref.getHash() == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        boolean gzip = acceptsGzip(acceptEncoding);
+        // the gzip and identity representations differ in bytes, so they need different strong ETags
+        String eTag = "\"" + ref.getHash() + (gzip ? "-" + GZIP : "") + "\"";
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+
+        if (!gzip) {
+            return identity(blobStore, ref, mediaType, request, eTag);
+        }
+
+        ResponseEntity.BodyBuilder response = response(HttpStatus.OK, mediaType)
+                .header(HttpHeaders.CONTENT_ENCODING, GZIP);
+        if (!rangeApplies(request, eTag)) {
+            return response
+                    .contentLength(ref.getStoredSize())
+                    .body(new InputStreamResource(blobStore.openCompressed(ref)));
+        }
+        // Spring sets Accept-Ranges and answers a Range header over the bytes of the stored file
+        return response.body(new FileSystemResource(blobStore.getCompressedPath(ref)));
+    }
+
+    /**
+     * The decompressed representation. Spring never splits an InputStreamResource into ranges, so a
+     * single range is answered here; a request for several ranges gets the whole representation.
+     */
+    private static ResponseEntity<Resource> identity(BlobStore blobStore, BlobRef ref, MediaType mediaType,
+                                                     WebRequest request, String eTag) throws IOException {
+        if (ref.getSize() == null) {
+            return response(HttpStatus.OK, mediaType).body(new InputStreamResource(blobStore.open(ref)));
+        }
+        long size = ref.getSize();
+        HttpRange range = rangeApplies(request, eTag) ? singleRange(request) : null;
+        if (range == null) {
+            return response(HttpStatus.OK, mediaType)
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .contentLength(size)
+                    .body(new InputStreamResource(blobStore.open(ref)));
+        }
+
+        long start;
+        long end;
+        try {
+            start = range.getRangeStart(size);
+            end = range.getRangeEnd(size);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                    .build();
+        }
+        InputStream in = blobStore.open(ref);
+        try {
+            in.skipNBytes(start);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return response(HttpStatus.PARTIAL_CONTENT, mediaType)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size)
+                .contentLength(end - start + 1)
+                .body(new InputStreamResource(new RangeInputStream(in, end - start + 1)));
+    }
+
+    private static ResponseEntity.BodyBuilder response(HttpStatus status, MediaType mediaType) {
+        return ResponseEntity.status(status)
+                .contentType(mediaType)
+                .cacheControl(CacheControl.noCache())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    /**
+     * A Range header only applies if there is no If-Range, or If-Range names the current representation
+     */
+    private static boolean rangeApplies(WebRequest request, String eTag) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        return ifRange == null || request.getHeader(HttpHeaders.RANGE) == null || ifRange.trim().equals(eTag);
+    }
+
+    /**
+     * The requested range, or null without a Range header, with an invalid one or with several ranges
+     */
+    private static HttpRange singleRange(WebRequest request) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(header);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Whether an Accept-Encoding header allows gzip with a non zero quality, by name or else by wildcard
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double wildcardQuality = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase(GZIP)) {
+                gzipQuality = quality(parts);
+            } else if (name.equals("*")) {
+                wildcardQuality = quality(parts);
+            }
+        }
+        Double quality = gzipQuality != null ? gzipQuality : wildcardQuality;
+        return quality != null && quality > 0;
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Ends the wrapped stream after a number of bytes
+     */
+    private static final class RangeInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        private RangeInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.fraunhofer.sognoviz.controller;
+
+import com.fraunhofer.sognoviz.service.NetworkCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/cache")
+@CrossOrigin(origins = "${app.cors.allowed-origins:http://localhost:5173}")
+@RequiredArgsConstructor
+public class CacheController {
+
+    private final NetworkCache networkCache;
+
+    @GetMapping("/networks")
+    public ResponseEntity<NetworkCache.Stats> getNetworkCacheStats() {
+        return ResponseEntity.ok(networkCache.getStats());
+    }
+
+    @DeleteMapping("/networks")
+    public ResponseEntity<Void> clearNetworkCache() {
+        log.info("Clearing network cache");
+        networkCache.clear();
+        return ResponseEntity.noContent().build();
+    }
+}
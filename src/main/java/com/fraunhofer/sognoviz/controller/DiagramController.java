@@ -2,21 +2,39 @@ package com.fraunhofer.sognoviz.controller;
 
 import com.fraunhofer.sognoviz.model.DiagramFiles;
 import com.fraunhofer.sognoviz.model.DiagramModel;
+import com.fraunhofer.sognoviz.model.DiagramPage;
+import com.fraunhofer.sognoviz.model.DiagramSummary;
+import com.fraunhofer.sognoviz.model.DiagramVersion;
+import com.fraunhofer.sognoviz.model.GenerationJob;
+import com.fraunhofer.sognoviz.model.MapDiagramFiles;
 import com.fraunhofer.sognoviz.model.NetworkMapModel;
+import com.fraunhofer.sognoviz.model.StageTimings;
+import com.fraunhofer.sognoviz.service.BlobStore;
 import com.fraunhofer.sognoviz.service.DiagramGeneratorService;
 import com.fraunhofer.sognoviz.service.DiagramStorageService;
+import com.fraunhofer.sognoviz.service.GenerationJobService;
 import com.fraunhofer.sognoviz.service.MapDiagramStorageService;
+import com.fraunhofer.sognoviz.service.MapGeometryService;
+import com.fraunhofer.sognoviz.service.ModificationLogService;
 import com.fraunhofer.sognoviz.util.DiagramFileHelper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.net.URI;
 import java.nio.file.Path;
+import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
 
 @Slf4j
 @RestController
@@ -25,15 +43,22 @@ import java.util.*;
 @RequiredArgsConstructor
 public class DiagramController {
 
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final DiagramGeneratorService diagramGeneratorService;
     private final DiagramStorageService diagramStorageService;
     private final MapDiagramStorageService mapDiagramStorageService;
+    private final MapGeometryService mapGeometryService;
+    private final ModificationLogService modificationLogService;
+    private final GenerationJobService jobService;
+    private final BlobStore blobStore;
     private final DiagramFileHelper fileHelper;
 
 
     @PostMapping("/map")
     public ResponseEntity<Object> generateMapDiagram(
-            @RequestParam("file") MultipartFile file
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "async", defaultValue = "false") boolean async
     ) throws IOException {
         String id = UUID.randomUUID().toString();
 
@@ -41,30 +66,12 @@ public class DiagramController {
 
         try {
             Path storedFile = fileHelper.storeUploadedFile(file, fileName);
-            Path outputDir = diagramGeneratorService.generateNadForMap(storedFile.toString());
-
-            Path svgPath = outputDir.resolve("network.svg");
-            Path metadata = outputDir.resolve("network_metadata.json");
-            Path line = outputDir.resolve("line_locations.json");
-            Path linePosition = outputDir.resolve("line_positions.json");
-            Path substation = outputDir.resolve("substation_locations.json");
-            Path substationPosition = outputDir.resolve("substation_positions.json");
-
-            NetworkMapModel networkMapModel = NetworkMapModel.builder().diagramType("NAD")
-                    .name(fileName)
-                    .id(id)
-                    .metadata(Files.readString(metadata))
-                    .svg(Files.readString(svgPath))
-                    .line(Files.readString(line))
-                    .linePosition(Files.readString(linePosition))
-                    .substation(Files.readString(substation))
-                    .substationPosition(Files.readString(substationPosition))
-                    .build();
-
-
-            System.out.println(networkMapModel.toString());
-
-            NetworkMapModel diagramModel = mapDiagramStorageService.saveMapDiagram(networkMapModel);
+
+            if (async) {
+                return submitJob("MAP", timings -> createMapDiagram(id, fileName, storedFile, timings));
+            }
+
+            NetworkMapModel diagramModel = createMapDiagram(id, fileName, storedFile, new StageTimings());
             return ResponseEntity.ok().body(diagramModel);
         } catch (IOException e) {
             if (e.getMessage().contains("No SubstationPosition")) {
@@ -75,10 +82,38 @@ public class DiagramController {
 
     }
 
+    private NetworkMapModel createMapDiagram(String id, String fileName, Path storedFile, StageTimings timings)
+            throws IOException {
+        MapDiagramFiles mapFiles = diagramGeneratorService.generateNadForMap(storedFile.toString(), timings);
+
+        NetworkMapModel networkMapModel = NetworkMapModel.builder().diagramType("NAD")
+                .name(fileName)
+                .id(id)
+                .metadata(mapFiles.getMetadataContent())
+                .svg(mapFiles.getSvgContent())
+                .line(mapFiles.getLines())
+                .linePosition(mapFiles.getLinePositions())
+                .substation(mapFiles.getSubstations())
+                .substationPosition(mapFiles.getSubstationPositions())
+                .build();
+
+        NetworkMapModel saved = timings.record("persist", () -> mapDiagramStorageService.saveMapDiagram(networkMapModel));
+
+        try {
+            timings.run("geometry", () -> mapGeometryService.prepare(
+                    saved.getId(), mapFiles.getSubstationPositions(), mapFiles.getLinePositions()));
+        } catch (IOException e) {
+            // map data requests parse the stored positions themselves
+            log.warn("Failed to prepare geometry of map {}", saved.getId(), e);
+        }
+        return saved;
+    }
+
 
     @PostMapping("/nad")
-    public ResponseEntity<DiagramModel> generateNadDiagram(
-            @RequestParam("file") MultipartFile file) {
+    public ResponseEntity<?> generateNadDiagram(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "async", defaultValue = "false") boolean async) {
         String id = UUID.randomUUID().toString();
         try {
             log.info("Generating NAD diagram for id: {}", id);
@@ -86,17 +121,12 @@ public class DiagramController {
             String fileName = "nad_" + id;
 
             Path storedFile = fileHelper.storeUploadedFile(file, fileName);
-            Path outputDir = diagramGeneratorService.generateNAD(storedFile.toString());
-            DiagramFiles diagramFiles = fileHelper.readDiagramFiles(outputDir, "network");
 
-            DiagramModel diagram = fileHelper.createDiagramModel(
-                    id,
-                    fileName,
-                    diagramFiles,
-                    "NAD"
-            );
-            diagram = diagramStorageService.saveDiagram(diagram);
+            if (async) {
+                return submitJob("NAD", timings -> createNadDiagram(id, fileName, storedFile, timings));
+            }
 
+            DiagramModel diagram = createNadDiagram(id, fileName, storedFile, new StageTimings());
 
             log.info("Successfully generated NAD diagram for id: {}", id);
 
@@ -110,6 +140,19 @@ public class DiagramController {
         }
     }
 
+    private DiagramModel createNadDiagram(String id, String fileName, Path storedFile, StageTimings timings)
+            throws IOException {
+        DiagramFiles diagramFiles = diagramGeneratorService.generateNAD(storedFile.toString(), timings);
+
+        DiagramModel diagram = fileHelper.createDiagramModel(
+                id,
+                fileName,
+                diagramFiles,
+                "NAD"
+        );
+        return timings.record("persist", () -> diagramStorageService.saveDiagram(diagram));
+    }
+
 
     @PostMapping("/sld/selectionData")
     public ResponseEntity<Map<String, Object>> getSldSelectionData(
@@ -137,10 +180,11 @@ public class DiagramController {
     }
 
     @PostMapping("/sld")
-    public ResponseEntity<DiagramModel> generateSldDiagram(
+    public ResponseEntity<?> generateSldDiagram(
             @RequestParam("type") String type,
             @RequestParam(value = "selectionId", required = false) String selectionId,
-            @RequestParam("id") String id) {
+            @RequestParam("id") String id,
+            @RequestParam(value = "async", defaultValue = "false") boolean async) {
 
         try {
             log.info("Generating SLD diagram for id: {}, type: {}", id, type);
@@ -149,16 +193,11 @@ public class DiagramController {
 
             Path cgmesFile = fileHelper.getZipFiles(fileName);
 
-            Path outputDir = diagramGeneratorService.generateSLD(cgmesFile.toString(), type, selectionId);
-            DiagramFiles diagramFiles = fileHelper.readDiagramFiles(outputDir, "sld");
+            if (async) {
+                return submitJob("SLD", timings -> createSldDiagram(id, fileName, cgmesFile, type, selectionId, timings));
+            }
 
-            DiagramModel diagram = fileHelper.createDiagramModel(
-                    id,
-                    fileName,
-                    diagramFiles,
-                    "SLD"
-            );
-            diagram = diagramStorageService.saveDiagram(diagram);
+            DiagramModel diagram = createSldDiagram(id, fileName, cgmesFile, type, selectionId, new StageTimings());
 
             log.info("Successfully generated SLD diagram for id: {}", id);
             return ResponseEntity.ok()
@@ -170,11 +209,41 @@ public class DiagramController {
         }
     }
 
+    private DiagramModel createSldDiagram(String id, String fileName, Path cgmesFile, String type,
+                                          String selectionId, StageTimings timings) throws IOException {
+        DiagramFiles diagramFiles = diagramGeneratorService.generateSLD(cgmesFile.toString(), type, selectionId, timings);
+
+        DiagramModel diagram = fileHelper.createDiagramModel(
+                id,
+                fileName,
+                diagramFiles,
+                "SLD"
+        );
+        return timings.record("persist", () -> diagramStorageService.saveDiagram(diagram));
+    }
+
+    /**
+     * Queues a generation on the job worker pool and answers 202 with the job to poll
+     */
+    private ResponseEntity<Object> submitJob(String diagramType, GenerationJobService.JobWork work) {
+        try {
+            GenerationJob job = jobService.submit(diagramType, work);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/jobs/" + job.getId()))
+                    .body(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body("Too many generation jobs queued, retry later");
+        }
+    }
+
 
     @GetMapping
     public ResponseEntity<List<DiagramModel>> getAllDiagrams() {
         try {
             log.debug("Fetching all diagrams");
+            modificationLogService.drawAllHeads();
             List<DiagramModel> diagrams = diagramStorageService.listAllDiagrams();
 
             return ResponseEntity.ok()
@@ -185,12 +254,58 @@ public class DiagramController {
         }
     }
 
+    /**
+     * Lists all diagrams with id, name, type and timestamps only
+     */
+    @GetMapping("/summaries")
+    public ResponseEntity<List<DiagramSummary>> getDiagramSummaries() {
+        try {
+            return ResponseEntity.ok(diagramStorageService.listDiagramSummaries());
+        } catch (Exception e) {
+            log.error("Failed to list diagram summaries", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Lists diagram summaries with keyset pagination, most recently updated first
+     */
+    @GetMapping("/page")
+    public ResponseEntity<DiagramPage> getDiagramPage(
+            @RequestParam(value = "diagramType", required = false) String diagramType,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(diagramStorageService.listDiagramPage(diagramType, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected diagram page request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Failed to list diagram page", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<?> getDiagramById(@PathVariable String id) {
+    public ResponseEntity<?> getDiagramById(@PathVariable String id, WebRequest request) {
         try {
             log.debug("Fetching diagram with id: {}", id);
+            modificationLogService.drawHead(id);
+            // answer conditional requests from the row alone, before the SVG and metadata are read
+            DiagramVersion version = diagramStorageService.loadDiagramVersion(id);
+            String eTag = "\"" + version.getETag() + "\"";
+            long lastModified = version.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            if (request.checkNotModified(eTag, lastModified)) {
+                return null;
+            }
+
             DiagramModel diagram = diagramStorageService.loadDiagram(id);
-            return ResponseEntity.ok(diagram);
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache())
+                    .body(diagram);
 
         } catch (RuntimeException e) {
             log.error("Diagram not found with id: {}", id, e);
@@ -201,6 +316,50 @@ public class DiagramController {
         }
     }
 
+    /**
+     * The stored SVG of a diagram as image/svg+xml, gzip encoded as stored when the client accepts it.
+     * Byte ranges are served over the representation that is sent, gzip encoded or decompressed.
+     * A diagram modified since its SVG was drawn is redrawn at its latest revision first.
+     */
+    @GetMapping("/{id}/svg")
+    public ResponseEntity<Resource> getDiagramSvg(
+            @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        try {
+            modificationLogService.drawHead(id);
+            return ArtifactResponses.of(blobStore, diagramStorageService.getSvgRef(id),
+                    ArtifactResponses.SVG, acceptEncoding, request);
+        } catch (IOException e) {
+            log.error("Failed to read SVG of diagram {}", id, e);
+            return ResponseEntity.internalServerError().build();
+        } catch (RuntimeException e) {
+            log.error("Diagram not found with id: {}", id, e);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * The stored metadata of a diagram, gzip encoded as stored when the client accepts it
+     */
+    @GetMapping("/{id}/metadata")
+    public ResponseEntity<Resource> getDiagramMetadata(
+            @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        try {
+            modificationLogService.drawHead(id);
+            return ArtifactResponses.of(blobStore, diagramStorageService.getMetadataRef(id),
+                    MediaType.APPLICATION_JSON, acceptEncoding, request);
+        } catch (IOException e) {
+            log.error("Failed to read metadata of diagram {}", id, e);
+            return ResponseEntity.internalServerError().build();
+        } catch (RuntimeException e) {
+            log.error("Diagram not found with id: {}", id, e);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<?> updateDiagram(
             @PathVariable String id,
@@ -209,13 +368,16 @@ public class DiagramController {
         try {
             log.info("Updating diagram with id: {}", id);
 
-            DiagramModel oldModel = diagramStorageService.loadDiagram(id);
+            DiagramSummary oldSummary = diagramStorageService.loadDiagramSummary(id);
             diagram.setId(id);
-            DiagramModel updated = diagramStorageService.saveDiagram(diagram);
+            DiagramModel updated = diagramStorageService.updateDiagram(diagram);
 
-            DiagramFileHelper.updateFileName(oldModel.getName(), updated.getName(), ".zip");
+            DiagramFileHelper.updateFileName(oldSummary.getName(), updated.getName(), ".zip");
             return ResponseEntity.ok(updated);
 
+        } catch (IllegalStateException e) {
+            log.warn("Rejected update of diagram {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (RuntimeException e) {
             log.error("Diagram not found with id: {}", id, e);
             return ResponseEntity.notFound().build();
@@ -2,11 +2,14 @@ package com.fraunhofer.sognoviz.controller;
 
 import com.fraunhofer.sognoviz.model.DiagramFiles;
 import com.fraunhofer.sognoviz.model.DiagramModel;
-import com.fraunhofer.sognoviz.service.DiagramGeneratorService;
+import com.fraunhofer.sognoviz.model.DiagramOperation;
+import com.fraunhofer.sognoviz.model.NetworkModification;
 import com.fraunhofer.sognoviz.service.DiagramStorageService;
-import com.fraunhofer.sognoviz.util.DiagramFileHelper;
+import com.fraunhofer.sognoviz.service.ModificationLogService;
+import com.fraunhofer.sognoviz.util.NadSvgPatcher;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
@@ -14,8 +17,8 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Slf4j
 @RestController
@@ -24,40 +27,123 @@ import java.time.LocalDateTime;
 @RequiredArgsConstructor
 public class DiagramModificationController {
 
-    private final DiagramGeneratorService diagramGeneratorService;
+    private final ModificationLogService modificationLogService;
     private final DiagramStorageService diagramStorageService;
 
-    private final DiagramFileHelper fileHelper;
-
     @PostMapping("/remove-connectable")
-    public ResponseEntity<DiagramModel> removeConnectable(
+    public ResponseEntity<?> removeConnectable(
             @RequestParam("equipmentId") String equipmentId,
-            @RequestParam("id") String id) {
+            @RequestParam("id") String id,
+            @RequestParam(value = "patch", defaultValue = "false") boolean patch) {
 
         try {
 
-            DiagramModel diagramModel = diagramStorageService.loadDiagram(id);
-
-            diagramGeneratorService.removeConnectable(equipmentId, diagramModel);
-
-            Path outputDir = Paths.get(DiagramFileHelper.CGMES_STORAGE_DIR);
-            DiagramFiles modifiedFiles = fileHelper.readModifiedDiagramFiles(outputDir, diagramModel.getName());
+            if (patch) {
+                NadSvgPatcher.Result result = modificationLogService.removeConnectableIncremental(id, equipmentId);
 
-            DiagramModel model = fileHelper.createDiagramModel(id, diagramModel.getName(), modifiedFiles, diagramModel.getDiagramType());
+                log.info("Successfully removed connectable {} from diagram {}", equipmentId, id);
+                return ResponseEntity.ok(result.patch());
+            }
 
-            DiagramModel diagram = diagramStorageService.saveDiagram(
-                    model
-            );
+            DiagramModel diagramModel = diagramStorageService.loadDiagram(id);
+            DiagramModel diagram = modificationLogService.apply(diagramModel,
+                    List.of(new NetworkModification.RemoveConnectable(equipmentId)));
 
 
             log.info("Successfully removed connectable {} from diagram {}", equipmentId, id);
             return ResponseEntity.ok()
                     .body(diagram);
 
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected removal of {} from diagram {}: {}", equipmentId, id, e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            log.warn("Rejected removal of {} from diagram {}: {}", equipmentId, id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (IOException e) {
             log.error("Failed to remove connectable {} from diagram {}", equipmentId, id, e);
             return ResponseEntity.internalServerError().build();
+        } catch (RuntimeException e) {
+            log.error("Diagram not found with id: {}", id, e);
+            return ResponseEntity.notFound().build();
         }
     }
-}
 
+    /**
+     * Applies an ordered list of modifications to a diagram with one network import, one redraw
+     * and one log append. Nothing is recorded unless all of them succeed.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> applyBatch(
+            @RequestParam("id") String id,
+            @RequestBody List<NetworkModification> modifications) {
+
+        if (modifications.isEmpty()) {
+            return ResponseEntity.badRequest().body("No modifications given");
+        }
+
+        try {
+            DiagramModel diagramModel = diagramStorageService.loadDiagram(id);
+
+            DiagramModel diagram = modificationLogService.apply(diagramModel, modifications);
+
+            log.info("Successfully applied {} modifications to diagram {}", modifications.size(), id);
+            return ResponseEntity.ok(diagram);
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected modifications of diagram {}: {}", id, e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            log.warn("Rejected modifications of diagram {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IOException e) {
+            log.error("Failed to apply modifications to diagram {}", id, e);
+            return ResponseEntity.internalServerError().build();
+        } catch (RuntimeException e) {
+            log.error("Diagram not found with id: {}", id, e);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Modification log of a diagram, oldest first; the last entry is the latest revision
+     */
+    @GetMapping("/history")
+    public ResponseEntity<List<DiagramOperation>> getHistory(@RequestParam("id") String id) {
+        try {
+            diagramStorageService.loadDiagramSummary(id);
+            return ResponseEntity.ok(modificationLogService.getHistory(id));
+        } catch (IOException e) {
+            log.error("Failed to read modification log of diagram {}", id, e);
+            return ResponseEntity.internalServerError().build();
+        } catch (RuntimeException e) {
+            log.error("Diagram not found with id: {}", id, e);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Draws a diagram as it was at a revision of its modification log, without storing it
+     */
+    @GetMapping("/revision")
+    public ResponseEntity<?> getRevision(@RequestParam("id") String id,
+                                         @RequestParam("revision") int revision) {
+        try {
+            DiagramModel diagramModel = diagramStorageService.loadDiagram(id);
+            DiagramFiles drawing = modificationLogService.drawRevision(diagramModel, revision);
+            return ResponseEntity.ok(diagramModel.toBuilder()
+                    .svgData(drawing.getSvgContent())
+                    .metadata(drawing.getJsonContent())
+                    .build());
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected revision {} of diagram {}: {}", revision, id, e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            log.error("Failed to draw revision {} of diagram {}", revision, id, e);
+            return ResponseEntity.internalServerError().build();
+        } catch (RuntimeException e) {
+            log.error("Diagram not found with id: {}", id, e);
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
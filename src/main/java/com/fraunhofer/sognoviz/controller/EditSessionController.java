@@ -0,0 +1,130 @@
+package com.fraunhofer.sognoviz.controller;
+
+import com.fraunhofer.sognoviz.model.DiagramFiles;
+import com.fraunhofer.sognoviz.model.DiagramModel;
+import com.fraunhofer.sognoviz.model.EditSession;
+import com.fraunhofer.sognoviz.service.EditSessionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+/**
+ * Live editing sessions: edits are applied to a network kept in memory, with undo and redo,
+ * and stored to the diagram only on save
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/sessions")
+@CrossOrigin(origins = "${app.cors.allowed-origins:http://localhost:5173}")
+@RequiredArgsConstructor
+public class EditSessionController {
+
+    private final EditSessionService editSessionService;
+
+    @PostMapping
+    public ResponseEntity<?> openSession(@RequestParam("diagramId") String diagramId) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(editSessionService.open(diagramId));
+        } catch (IllegalStateException e) {
+            log.warn("Rejected edit session on diagram {}: {}", diagramId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        } catch (IOException e) {
+            log.error("Failed to open edit session on diagram {}", diagramId, e);
+            return ResponseEntity.internalServerError().build();
+        } catch (RuntimeException e) {
+            log.error("Diagram not found with id: {}", diagramId, e);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/{sessionId}")
+    public ResponseEntity<EditSession> getSession(@PathVariable String sessionId) {
+        return editSessionService.getSession(sessionId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/{sessionId}/disconnect")
+    public ResponseEntity<DiagramModel> disconnect(@PathVariable String sessionId,
+                                                   @RequestParam("equipmentId") String equipmentId) {
+        return apply(sessionId, () -> editSessionService.disconnect(sessionId, equipmentId));
+    }
+
+    @PostMapping("/{sessionId}/connect")
+    public ResponseEntity<DiagramModel> connect(@PathVariable String sessionId,
+                                                @RequestParam("equipmentId") String equipmentId) {
+        return apply(sessionId, () -> editSessionService.connect(sessionId, equipmentId));
+    }
+
+    @PostMapping("/{sessionId}/switch")
+    public ResponseEntity<DiagramModel> setSwitch(@PathVariable String sessionId,
+                                                  @RequestParam("switchId") String switchId,
+                                                  @RequestParam("open") boolean open) {
+        return apply(sessionId, () -> editSessionService.setSwitchOpen(sessionId, switchId, open));
+    }
+
+    @PostMapping("/{sessionId}/undo")
+    public ResponseEntity<DiagramModel> undo(@PathVariable String sessionId) {
+        return apply(sessionId, () -> editSessionService.undo(sessionId));
+    }
+
+    @PostMapping("/{sessionId}/redo")
+    public ResponseEntity<DiagramModel> redo(@PathVariable String sessionId) {
+        return apply(sessionId, () -> editSessionService.redo(sessionId));
+    }
+
+    /**
+     * Records the edits of the session in the modification log of its diagram and stores the
+     * current state as the diagram's SVG and metadata
+     */
+    @PostMapping("/{sessionId}/save")
+    public ResponseEntity<DiagramModel> save(@PathVariable String sessionId) {
+        try {
+            return ResponseEntity.ok(editSessionService.save(sessionId));
+        } catch (IllegalStateException e) {
+            log.warn("Rejected save of edit session {}: {}", sessionId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IOException e) {
+            log.error("Failed to save edit session {}", sessionId, e);
+            return ResponseEntity.internalServerError().build();
+        } catch (RuntimeException e) {
+            log.error("Edit session not found: {}", sessionId, e);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @DeleteMapping("/{sessionId}")
+    public ResponseEntity<Void> closeSession(@PathVariable String sessionId) {
+        return editSessionService.close(sessionId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Runs an edit and returns the redrawn, not yet stored diagram
+     */
+    private ResponseEntity<DiagramModel> apply(String sessionId, Supplier<DiagramFiles> edit) {
+        try {
+            DiagramFiles drawing = edit.get();
+            EditSession session = editSessionService.getSession(sessionId).orElseThrow();
+            return ResponseEntity.ok(DiagramModel.builder()
+                    .id(session.getDiagramId())
+                    .name(session.getDiagramName())
+                    .svgData(drawing.getSvgContent())
+                    .metadata(drawing.getJsonContent())
+                    .diagramType(session.getDiagramType())
+                    .build());
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected edit in session {}: {}", sessionId, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (RuntimeException e) {
+            log.error("Edit session not found: {}", sessionId, e);
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
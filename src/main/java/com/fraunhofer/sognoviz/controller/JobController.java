@@ -0,0 +1,44 @@
+package com.fraunhofer.sognoviz.controller;
+
+import com.fraunhofer.sognoviz.model.GenerationJob;
+import com.fraunhofer.sognoviz.service.GenerationJobService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/jobs")
+@CrossOrigin(origins = "${app.cors.allowed-origins:http://localhost:5173}")
+@RequiredArgsConstructor
+public class JobController {
+
+    private final GenerationJobService jobService;
+
+    @GetMapping("/{id}")
+    public ResponseEntity<GenerationJob> getJob(@PathVariable String id) {
+        return jobService.getJob(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Returns the generated diagram once the job is done;
+     * 202 while it is queued or running, 500 with the error if it failed
+     */
+    @GetMapping("/{id}/result")
+    public ResponseEntity<?> getJobResult(@PathVariable String id) {
+        GenerationJob job = jobService.getJob(id).orElse(null);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return switch (job.getStatus()) {
+            case DONE -> ResponseEntity.ok(job.getResult());
+            case FAILED -> ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(job.getError());
+            default -> ResponseEntity.accepted().body(job);
+        };
+    }
+}
@@ -0,0 +1,278 @@
+package com.fraunhofer.sognoviz.controller;
+
+import com.fraunhofer.sognoviz.model.DiagramSummary;
+import com.fraunhofer.sognoviz.model.MapGeometry;
+import com.fraunhofer.sognoviz.model.NetworkMapModel;
+import com.fraunhofer.sognoviz.service.BlobStore;
+import com.fraunhofer.sognoviz.service.MapDiagramStorageService;
+import com.fraunhofer.sognoviz.service.MapDiagramStorageService.MapArtifact;
+import com.fraunhofer.sognoviz.service.MapGeometryService;
+import com.fraunhofer.sognoviz.service.MapTileService;
+import com.fraunhofer.sognoviz.util.GeometryCodec;
+import com.fraunhofer.sognoviz.util.GeometrySimplifier;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Map data of stored network maps
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/maps")
+@CrossOrigin(origins = "${app.cors.allowed-origins:http://localhost:5173}")
+@RequiredArgsConstructor
+public class MapController {
+
+    /**
+     * Tolerance in degrees of the simplification level actually served
+     */
+    private static final String TOLERANCE_HEADER = "X-Geometry-Tolerance";
+
+    private final MapDiagramStorageService mapDiagramStorageService;
+    private final MapGeometryService mapGeometryService;
+    private final MapTileService mapTileService;
+    private final BlobStore blobStore;
+
+    /**
+     * Lists all stored maps with id, name, type and timestamps only
+     */
+    @GetMapping
+    public ResponseEntity<List<DiagramSummary>> getMapSummaries() {
+        try {
+            return ResponseEntity.ok(mapDiagramStorageService.listMapDiagramSummaries());
+        } catch (Exception e) {
+            log.error("Failed to list map summaries", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<NetworkMapModel> getMapById(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(mapDiagramStorageService.loadMapDiagram(id));
+        } catch (IOException e) {
+            log.error("Failed to read map diagram {}", id, e);
+            return ResponseEntity.internalServerError().build();
+        } catch (RuntimeException e) {
+            log.error("Map diagram not found with id: {}", id, e);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * A stored artifact of a map (svg, metadata, lines, line-positions, substations or substation-positions),
+     * gzip encoded as stored when the client accepts it
+     */
+    @GetMapping("/{id}/artifacts/{artifact}")
+    public ResponseEntity<Resource> getMapArtifact(
+            @PathVariable String id,
+            @PathVariable String artifact,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        MapArtifact mapArtifact;
+        try {
+            mapArtifact = MapArtifact.valueOf(artifact.toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+
+        try {
+            MediaType mediaType = mapArtifact == MapArtifact.SVG ? ArtifactResponses.SVG : MediaType.APPLICATION_JSON;
+            return ArtifactResponses.of(blobStore, mapDiagramStorageService.getMapArtifactRef(id, mapArtifact),
+                    mediaType, acceptEncoding, request);
+        } catch (IOException e) {
+            log.error("Failed to read {} of map {}", artifact, id, e);
+            return ResponseEntity.internalServerError().build();
+        } catch (RuntimeException e) {
+            log.error("Map diagram not found with id: {}", id, e);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Substation and line positions as SPOS and linePOS JSON documents.
+     * Without zoom or tolerance the stored documents are returned unchanged.
+     */
+    @GetMapping(value = "/{id}/geometry", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> getGeometryJson(
+            @PathVariable String id,
+            @RequestParam(value = "zoom", required = false) Integer zoom,
+            @RequestParam(value = "tolerance", required = false) Double tolerance) {
+        try {
+            double requested = resolveTolerance(zoom, tolerance);
+            if (requested > 0) {
+                String body = GeometryCodec.writeJson(mapGeometryService.getGeometry(id, requested));
+                return ResponseEntity.ok()
+                        .header(TOLERANCE_HEADER, String.valueOf(mapGeometryService.getLevelTolerance(requested)))
+                        .body(body);
+            }
+
+            String body = "{\"substationPositions\":"
+                    + orEmptyArray(mapDiagramStorageService.readMapArtifact(id, MapArtifact.SUBSTATION_POSITIONS))
+                    + ",\"linePositions\":"
+                    + orEmptyArray(mapDiagramStorageService.readMapArtifact(id, MapArtifact.LINE_POSITIONS)) + "}";
+            return ResponseEntity.ok(body);
+        } catch (IOException e) {
+            log.error("Failed to write geometry of map {}", id, e);
+            return ResponseEntity.internalServerError().build();
+        } catch (RuntimeException e) {
+            log.error("Map diagram not found with id: {}", id, e);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Substation and line positions in the compact {@link GeometryCodec} binary form
+     */
+    @GetMapping(value = "/{id}/geometry", produces = GeometryCodec.MEDIA_TYPE)
+    public ResponseEntity<byte[]> getGeometryBinary(
+            @PathVariable String id,
+            @RequestParam(value = "zoom", required = false) Integer zoom,
+            @RequestParam(value = "tolerance", required = false) Double tolerance) {
+        try {
+            double requested = resolveTolerance(zoom, tolerance);
+            byte[] body = mapGeometryService.getEncodedGeometry(id, requested);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(GeometryCodec.MEDIA_TYPE))
+                    .header(TOLERANCE_HEADER, String.valueOf(mapGeometryService.getLevelTolerance(requested)))
+                    .body(body);
+        } catch (IOException e) {
+            log.error("Failed to encode geometry of map {}", id, e);
+            return ResponseEntity.internalServerError().build();
+        } catch (RuntimeException e) {
+            log.error("Map diagram not found with id: {}", id, e);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Substations and lines inside a bounding box, in the JSON shape of the geometry response
+     */
+    @GetMapping(value = "/{id}/features", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getFeaturesJson(
+            @PathVariable String id,
+            @RequestParam("bbox") String bbox,
+            @RequestParam(value = "zoom", required = false) Integer zoom,
+            @RequestParam(value = "tolerance", required = false) Double tolerance) {
+        return getFeatures(id, bbox, resolveTolerance(zoom, tolerance), MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * Substations and lines inside a bounding box, in the {@link GeometryCodec} binary form
+     */
+    @GetMapping(value = "/{id}/features", produces = GeometryCodec.MEDIA_TYPE)
+    public ResponseEntity<byte[]> getFeaturesBinary(
+            @PathVariable String id,
+            @RequestParam("bbox") String bbox,
+            @RequestParam(value = "zoom", required = false) Integer zoom,
+            @RequestParam(value = "tolerance", required = false) Double tolerance) {
+        return getFeatures(id, bbox, resolveTolerance(zoom, tolerance), MediaType.parseMediaType(GeometryCodec.MEDIA_TYPE));
+    }
+
+    private ResponseEntity<byte[]> getFeatures(String id, String bbox, double tolerance, MediaType mediaType) {
+        double[] bounds;
+        try {
+            bounds = parseBbox(bbox);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            MapGeometry features = mapGeometryService.query(id, bounds, tolerance);
+            byte[] body = MediaType.APPLICATION_JSON.equals(mediaType)
+                    ? GeometryCodec.writeJson(features).getBytes(StandardCharsets.UTF_8)
+                    : GeometryCodec.encode(features);
+            return ResponseEntity.ok()
+                    .contentType(mediaType)
+                    .body(body);
+        } catch (IOException e) {
+            log.error("Failed to query features of map {}", id, e);
+            return ResponseEntity.internalServerError().build();
+        } catch (RuntimeException e) {
+            log.error("Map diagram not found with id: {}", id, e);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Substations and clipped line geometry of one web mercator tile, in the JSON shape of the geometry response
+     */
+    @GetMapping(value = "/{id}/tiles/{z}/{x}/{y}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getTileJson(@PathVariable String id, @PathVariable int z,
+                                              @PathVariable int x, @PathVariable int y) {
+        return getTile(id, z, x, y, MapTileService.Format.JSON, MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * Substations and clipped line geometry of one web mercator tile, in the {@link GeometryCodec} binary form
+     */
+    @GetMapping(value = "/{id}/tiles/{z}/{x}/{y}", produces = GeometryCodec.MEDIA_TYPE)
+    public ResponseEntity<byte[]> getTileBinary(@PathVariable String id, @PathVariable int z,
+                                                @PathVariable int x, @PathVariable int y) {
+        return getTile(id, z, x, y, MapTileService.Format.BINARY, MediaType.parseMediaType(GeometryCodec.MEDIA_TYPE));
+    }
+
+    private ResponseEntity<byte[]> getTile(String id, int z, int x, int y,
+                                           MapTileService.Format format, MediaType mediaType) {
+        try {
+            byte[] body = mapTileService.getTile(id, z, x, y, format);
+            return ResponseEntity.ok()
+                    .contentType(mediaType)
+                    .body(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            log.error("Failed to build tile {}/{}/{} of map {}", z, x, y, id, e);
+            return ResponseEntity.internalServerError().build();
+        } catch (RuntimeException e) {
+            log.error("Map diagram not found with id: {}", id, e);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * An explicit tolerance (degrees) wins over a zoom level; neither means full detail
+     */
+    private static double resolveTolerance(Integer zoom, Double tolerance) {
+        if (tolerance != null) {
+            return Math.max(tolerance, 0);
+        }
+        if (zoom != null) {
+            return GeometrySimplifier.toleranceForZoom(zoom);
+        }
+        return 0;
+    }
+
+    /**
+     * Parses "minLon,minLat,maxLon,maxLat" (GeoJSON order) into {minLat, minLon, maxLat, maxLon}
+     */
+    private static double[] parseBbox(String bbox) {
+        String[] parts = bbox.split(",");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("bbox must be minLon,minLat,maxLon,maxLat");
+        }
+        double minLon = Double.parseDouble(parts[0].trim());
+        double minLat = Double.parseDouble(parts[1].trim());
+        double maxLon = Double.parseDouble(parts[2].trim());
+        double maxLat = Double.parseDouble(parts[3].trim());
+        if (minLon > maxLon || minLat > maxLat) {
+            throw new IllegalArgumentException("bbox minimum exceeds maximum");
+        }
+        return new double[]{minLat, minLon, maxLat, maxLon};
+    }
+
+    private static String orEmptyArray(String json) {
+        return json == null || json.isBlank() ? "[]" : json;
+    }
+}
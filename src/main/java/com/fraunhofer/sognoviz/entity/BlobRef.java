@@ -0,0 +1,25 @@
+package com.fraunhofer.sognoviz.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Reference to an artifact in the blob store: the SHA-256 of its content,
+ * its size in bytes and the size of its gzip compressed form on disk
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BlobRef {
+
+    @Column(length = 64)
+    private String hash;
+
+    private Long size;
+
+    private Long storedSize;
+}
@@ -9,7 +9,10 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "diagrams")
+@Table(name = "diagrams", indexes = {
+        @Index(name = "idx_diagrams_updated", columnList = "updatedAt, id"),
+        @Index(name = "idx_diagrams_type_updated", columnList = "diagramType, updatedAt, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -21,17 +24,33 @@ public class DiagramEntity {
     @Column(nullable = false)
     private String name;
 
-    @Lob
-    @Column(nullable = false, columnDefinition = "CLOB")
-    private String svgData;
+    // SVG and metadata live in the BlobStore
+    @Embedded
+    @AttributeOverrides({
+            @AttributeOverride(name = "hash", column = @Column(name = "svg_hash", length = 64)),
+            @AttributeOverride(name = "size", column = @Column(name = "svg_size")),
+            @AttributeOverride(name = "storedSize", column = @Column(name = "svg_stored_size"))
+    })
+    private BlobRef svg;
 
-    @Lob
-    @Column(columnDefinition = "CLOB")
-    private String metadata;
+    @Embedded
+    @AttributeOverrides({
+            @AttributeOverride(name = "hash", column = @Column(name = "metadata_hash", length = 64)),
+            @AttributeOverride(name = "size", column = @Column(name = "metadata_size")),
+            @AttributeOverride(name = "storedSize", column = @Column(name = "metadata_stored_size"))
+    })
+    private BlobRef metadata;
 
     @Column(nullable = false)
     private String diagramType;
 
+    // Latest revision of the modification log; null on rows stored before the column existed
+    private Integer headRevision;
+
+    // Revision the SVG and metadata were drawn from, behind headRevision until the diagram is next
+    // read; null on rows stored before the column existed, which hold the drawing of their head
+    private Integer drawnRevision;
+
     @Column(nullable = false)
     private LocalDateTime createdAt;
 
@@ -51,15 +70,4 @@ public class DiagramEntity {
     protected void onUpdate() {
         updatedAt = LocalDateTime.now();
     }
-
-    // Constructor without ID (for creating new entities)
-    public DiagramEntity(String name, String svgData, String metadata, String diagramType) {
-        this.id = UUID.randomUUID().toString(); // ✅ ensure ID always present
-        this.name = name;
-        this.svgData = svgData;
-        this.metadata = metadata;
-        this.diagramType = diagramType;
-        this.createdAt = LocalDateTime.now();
-        this.updatedAt = LocalDateTime.now();
-    }
 }
@@ -0,0 +1,45 @@
+package com.fraunhofer.sognoviz.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry of the append-only modification log of a diagram.
+ * Revision 0 is the network the diagram was generated from; the entry with revision n holds the
+ * modification that turns revision n - 1 into revision n.
+ */
+@Entity
+@Table(name = "diagram_operations", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_diagram_operations_revision", columnNames = {"diagramId", "revision"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DiagramOperationEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String diagramId;
+
+    @Column(nullable = false)
+    private int revision;
+
+    // NetworkModification as JSON
+    @Column(nullable = false, length = 4000)
+    private String operation;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -21,29 +21,54 @@ public class NetworkMapEntity {
     @Column(nullable = false)
     private String name;
 
-    @Lob
-    @Column(nullable = false, columnDefinition = "CLOB")
-    private String svg;
-
-    @Lob
-    @Column(columnDefinition = "CLOB")
-    private String metadata;
-
-    @Lob
-    @Column(columnDefinition = "CLOB")
-    private String line;
-
-    @Lob
-    @Column(columnDefinition = "CLOB")
-    private String linePosition;
-
-    @Lob
-    @Column(columnDefinition = "CLOB")
-    private String substation;
-
-    @Lob
-    @Column(columnDefinition = "CLOB")
-    private String substationPosition;
+    // SVG, metadata and JSON exports live in the BlobStore
+    @Embedded
+    @AttributeOverrides({
+            @AttributeOverride(name = "hash", column = @Column(name = "svg_hash", length = 64)),
+            @AttributeOverride(name = "size", column = @Column(name = "svg_size")),
+            @AttributeOverride(name = "storedSize", column = @Column(name = "svg_stored_size"))
+    })
+    private BlobRef svg;
+
+    @Embedded
+    @AttributeOverrides({
+            @AttributeOverride(name = "hash", column = @Column(name = "metadata_hash", length = 64)),
+            @AttributeOverride(name = "size", column = @Column(name = "metadata_size")),
+            @AttributeOverride(name = "storedSize", column = @Column(name = "metadata_stored_size"))
+    })
+    private BlobRef metadata;
+
+    @Embedded
+    @AttributeOverrides({
+            @AttributeOverride(name = "hash", column = @Column(name = "line_hash", length = 64)),
+            @AttributeOverride(name = "size", column = @Column(name = "line_size")),
+            @AttributeOverride(name = "storedSize", column = @Column(name = "line_stored_size"))
+    })
+    private BlobRef line;
+
+    @Embedded
+    @AttributeOverrides({
+            @AttributeOverride(name = "hash", column = @Column(name = "line_position_hash", length = 64)),
+            @AttributeOverride(name = "size", column = @Column(name = "line_position_size")),
+            @AttributeOverride(name = "storedSize", column = @Column(name = "line_position_stored_size"))
+    })
+    private BlobRef linePosition;
+
+    @Embedded
+    @AttributeOverrides({
+            @AttributeOverride(name = "hash", column = @Column(name = "substation_hash", length = 64)),
+            @AttributeOverride(name = "size", column = @Column(name = "substation_size")),
+            @AttributeOverride(name = "storedSize", column = @Column(name = "substation_stored_size"))
+    })
+    private BlobRef substation;
+
+    @Embedded
+    @AttributeOverrides({
+            @AttributeOverride(name = "hash", column = @Column(name = "substation_position_hash", length = 64)),
+            @AttributeOverride(name = "size", column = @Column(name = "substation_position_size")),
+            @AttributeOverride(name = "storedSize", column = @Column(name = "substation_position_stored_size"))
+    })
+    private BlobRef substationPosition;
 
     @Column(nullable = false)
     private String diagramType;
@@ -67,21 +92,4 @@ public class NetworkMapEntity {
     protected void onUpdate() {
         updatedAt = LocalDateTime.now();
     }
-
-    // Constructor without ID (for creating new entities)
-    public NetworkMapEntity(String name, String svg, String metadata, String line,
-                            String linePosition, String substation, String substationPosition,
-                            String diagramType) {
-        this.id = UUID.randomUUID().toString();
-        this.name = name;
-        this.svg = svg;
-        this.metadata = metadata;
-        this.line = line;
-        this.linePosition = linePosition;
-        this.substation = substation;
-        this.substationPosition = substationPosition;
-        this.diagramType = diagramType;
-        this.createdAt = LocalDateTime.now();
-        this.updatedAt = LocalDateTime.now();
-    }
-}
\ No newline at end of file
+}
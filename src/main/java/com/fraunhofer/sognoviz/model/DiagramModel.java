@@ -1,6 +1,8 @@
 package com.fraunhofer.sognoviz.model;
 
 import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fraunhofer.sognoviz.util.RawJsonDeserializer;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -16,11 +18,15 @@ public class DiagramModel {
     private String id;
     private String name;
     private String svgData;
+    // JSON text, embedded as is in responses
     @JsonRawValue
+    @JsonDeserialize(using = RawJsonDeserializer.class)
     private String metadata;
     private String diagramType;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    // Revision of the modification log the SVG and metadata were drawn from, sent back on updates
+    private Integer revision;
 
     // Constructor without timestamps (for creating new diagrams)
     public DiagramModel(String name, String svgData, String metadata, String diagramType) {
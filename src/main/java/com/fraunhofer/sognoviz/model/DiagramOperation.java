@@ -0,0 +1,15 @@
+package com.fraunhofer.sognoviz.model;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entry of the modification log of a diagram: the modification that produced a revision
+ */
+@Value
+public class DiagramOperation {
+    int revision;
+    NetworkModification operation;
+    LocalDateTime createdAt;
+}
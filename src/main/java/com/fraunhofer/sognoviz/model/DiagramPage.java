@@ -0,0 +1,15 @@
+package com.fraunhofer.sognoviz.model;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * One page of a keyset paginated diagram listing.
+ * nextCursor is passed back as cursor to get the following page and is null on the last page.
+ */
+@Value
+public class DiagramPage {
+    List<DiagramSummary> items;
+    String nextCursor;
+}
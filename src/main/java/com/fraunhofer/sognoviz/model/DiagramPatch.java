@@ -0,0 +1,35 @@
+package com.fraunhofer.sognoviz.model;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Changes to the SVG of a diagram after a modification, by SVG element id.
+ * Apply in order: remove the {@code removed} elements, replace the elements with the ids of
+ * {@code replaced}, then append the {@code added} elements to the group with their parent class.
+ * Ids that are no longer in the document can be ignored.
+ */
+@Value
+public class DiagramPatch {
+    List<String> removed;
+    List<SvgFragment> replaced;
+    List<SvgFragment> added;
+
+    /**
+     * Complete metadata of the patched diagram
+     */
+    @JsonRawValue
+    String metadata;
+
+    @Value
+    public static class SvgFragment {
+        String id;
+        /**
+         * Class of the group the element belongs to
+         */
+        String parentClass;
+        String svg;
+    }
+}
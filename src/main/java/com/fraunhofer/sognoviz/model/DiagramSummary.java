@@ -0,0 +1,17 @@
+package com.fraunhofer.sognoviz.model;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Diagram or map row without its SVG and JSON payloads, for listings and existence checks
+ */
+@Value
+public class DiagramSummary {
+    String id;
+    String name;
+    String diagramType;
+    LocalDateTime createdAt;
+    LocalDateTime updatedAt;
+}
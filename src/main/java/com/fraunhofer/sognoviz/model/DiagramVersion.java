@@ -0,0 +1,17 @@
+package com.fraunhofer.sognoviz.model;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Validators of a stored diagram for conditional requests, read without its SVG and metadata
+ */
+@Value
+public class DiagramVersion {
+    /**
+     * Strong entity tag, changes whenever any field of the diagram changes
+     */
+    String eTag;
+    LocalDateTime updatedAt;
+}
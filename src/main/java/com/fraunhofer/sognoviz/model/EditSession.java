@@ -0,0 +1,116 @@
+package com.fraunhofer.sognoviz.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.powsybl.iidm.network.Network;
+import com.powsybl.nad.NadParameters;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Live editing session of a stored diagram.
+ * The session owns a private copy of the diagram's network; every edit is applied to a new
+ * IIDM variant cloned from the current one, so undo and redo only switch the working variant.
+ * Saving appends the modifications of the steps up to the working variant to the diagram's
+ * modification log; the history then starts at the saved revision.
+ */
+@Getter
+public class EditSession {
+
+    private final String id;
+    private final String diagramId;
+    private final String diagramName;
+    private final String diagramType;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+
+    @Setter
+    private volatile LocalDateTime lastAccessedAt = LocalDateTime.now();
+
+    @JsonIgnore
+    private final Network network;
+
+    @JsonIgnore
+    private final NadParameters nadParameters;
+
+    /**
+     * Estimated heap of the network with its initial variant, and of each further variant
+     */
+    @JsonIgnore
+    private final long networkBytes;
+
+    @JsonIgnore
+    private final long variantBytes;
+
+    /**
+     * Estimated heap of the network and all variants of the history, read by the memory budget
+     * without the session lock
+     */
+    @JsonIgnore
+    @Setter
+    private volatile long estimatedBytes;
+
+    /**
+     * Variant ids of the edit history, oldest first; the working variant is at {@link #position}
+     */
+    @JsonIgnore
+    private final List<String> variants = new ArrayList<>();
+
+    @Setter
+    private int position;
+
+    /**
+     * Revision of the diagram's modification log the session was opened at or last saved as
+     */
+    @Setter
+    private int savedRevision;
+
+    /**
+     * Modification of each step since {@link #savedRevision}, including the steps that can be redone
+     */
+    @JsonIgnore
+    private final List<NetworkModification> operations = new ArrayList<>();
+
+    /**
+     * Drawing of the working variant, null until the first edit
+     */
+    @JsonIgnore
+    @Setter
+    private DiagramFiles drawing;
+
+    public EditSession(String id, String diagramId, String diagramName, String diagramType,
+                       int savedRevision, Network network, NadParameters nadParameters,
+                       long networkBytes, long variantBytes) {
+        this.id = id;
+        this.diagramId = diagramId;
+        this.diagramName = diagramName;
+        this.diagramType = diagramType;
+        this.savedRevision = savedRevision;
+        this.network = network;
+        this.nadParameters = nadParameters;
+        this.networkBytes = networkBytes;
+        this.variantBytes = variantBytes;
+        this.estimatedBytes = networkBytes;
+    }
+
+    public int getHistorySize() {
+        return variants.size();
+    }
+
+    public boolean isUndoable() {
+        return position > 0;
+    }
+
+    public boolean isRedoable() {
+        return position < variants.size() - 1;
+    }
+
+    /**
+     * Number of steps since {@link #savedRevision} up to the working variant
+     */
+    public int getUnsavedSteps() {
+        return operations.size() - (variants.size() - 1 - position);
+    }
+}
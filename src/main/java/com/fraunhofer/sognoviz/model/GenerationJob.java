@@ -0,0 +1,66 @@
+package com.fraunhofer.sognoviz.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * State of an asynchronous diagram generation job
+ */
+@Getter
+public class GenerationJob {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    private final String id;
+    private final String diagramType;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+
+    @JsonIgnore
+    private final StageTimings timings = new StageTimings();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+
+    @JsonIgnore
+    private volatile Object result;
+
+    public GenerationJob(String id, String diagramType) {
+        this.id = id;
+        this.diagramType = diagramType;
+    }
+
+    public Map<String, Long> getStages() {
+        return timings.getDurations();
+    }
+
+    public boolean isFinished() {
+        return status == Status.DONE || status == Status.FAILED;
+    }
+
+    public void markRunning() {
+        startedAt = LocalDateTime.now();
+        status = Status.RUNNING;
+    }
+
+    public void markDone(Object result) {
+        this.result = result;
+        finishedAt = LocalDateTime.now();
+        status = Status.DONE;
+    }
+
+    public void markFailed(String error) {
+        this.error = error;
+        finishedAt = LocalDateTime.now();
+        status = Status.FAILED;
+    }
+}
@@ -0,0 +1,9 @@
+package com.fraunhofer.sognoviz.model;
+
+/**
+ * Published when a stored map diagram is replaced or deleted, so caches derived from it are dropped
+ *
+ * @param mapId Id of the map diagram
+ */
+public record MapDiagramChangedEvent(String mapId) {
+}
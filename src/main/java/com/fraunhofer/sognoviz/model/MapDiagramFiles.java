@@ -0,0 +1,19 @@
+package com.fraunhofer.sognoviz.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * In-memory artifacts of a network map generation: the NAD with its metadata
+ * and the JSON exports used by the map view
+ */
+@Value
+@Builder
+public class MapDiagramFiles {
+    String svgContent;
+    String metadataContent;
+    String substations;
+    String substationPositions;
+    String lines;
+    String linePositions;
+}
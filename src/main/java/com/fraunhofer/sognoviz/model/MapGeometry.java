@@ -0,0 +1,65 @@
+package com.fraunhofer.sognoviz.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Substation and line coordinates of a network map in flat arrays.
+ * Line points are stored back to back; the points of line {@code i} are the indexes
+ * {@code lineOffsets[i]} (inclusive) to {@code lineOffsets[i + 1]} (exclusive).
+ */
+@Getter
+@RequiredArgsConstructor
+public class MapGeometry {
+
+    private final String[] substationIds;
+    private final double[] substationLat;
+    private final double[] substationLon;
+
+    private final String[] lineIds;
+    private final int[] lineOffsets;
+    private final double[] lineLat;
+    private final double[] lineLon;
+
+    public int getSubstationCount() {
+        return substationIds.length;
+    }
+
+    public int getLineCount() {
+        return lineIds.length;
+    }
+
+    public int getPointCount(int line) {
+        return lineOffsets[line + 1] - lineOffsets[line];
+    }
+
+    /**
+     * Returns the given substations and lines, by index, as a new geometry
+     */
+    public MapGeometry subset(int[] substations, int[] lines) {
+        String[] subsetSubstationIds = new String[substations.length];
+        double[] subsetSubstationLat = new double[substations.length];
+        double[] subsetSubstationLon = new double[substations.length];
+        for (int i = 0; i < substations.length; i++) {
+            subsetSubstationIds[i] = substationIds[substations[i]];
+            subsetSubstationLat[i] = substationLat[substations[i]];
+            subsetSubstationLon[i] = substationLon[substations[i]];
+        }
+
+        String[] subsetLineIds = new String[lines.length];
+        int[] subsetOffsets = new int[lines.length + 1];
+        for (int i = 0; i < lines.length; i++) {
+            subsetLineIds[i] = lineIds[lines[i]];
+            subsetOffsets[i + 1] = subsetOffsets[i] + getPointCount(lines[i]);
+        }
+        double[] subsetLat = new double[subsetOffsets[lines.length]];
+        double[] subsetLon = new double[subsetOffsets[lines.length]];
+        for (int i = 0; i < lines.length; i++) {
+            System.arraycopy(lineLat, lineOffsets[lines[i]], subsetLat, subsetOffsets[i], getPointCount(lines[i]));
+            System.arraycopy(lineLon, lineOffsets[lines[i]], subsetLon, subsetOffsets[i], getPointCount(lines[i]));
+        }
+
+        return new MapGeometry(subsetSubstationIds, subsetSubstationLat, subsetSubstationLon,
+                subsetLineIds, subsetOffsets, subsetLat, subsetLon);
+    }
+}
@@ -0,0 +1,122 @@
+package com.fraunhofer.sognoviz.model;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.powsybl.iidm.network.Country;
+import com.powsybl.iidm.network.TopologyKind;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A single modification of a network, as sent in a batch and recorded in the modification log.
+ * The JSON {@code type} property selects the kind of modification.
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type")
+@JsonSubTypes({
+        @JsonSubTypes.Type(value = NetworkModification.RemoveConnectable.class, name = "removeConnectable"),
+        @JsonSubTypes.Type(value = NetworkModification.Disconnect.class, name = "disconnect"),
+        @JsonSubTypes.Type(value = NetworkModification.Connect.class, name = "connect"),
+        @JsonSubTypes.Type(value = NetworkModification.SetSwitch.class, name = "setSwitch"),
+        @JsonSubTypes.Type(value = NetworkModification.CreateLoad.class, name = "createLoad"),
+        @JsonSubTypes.Type(value = NetworkModification.CreateGenerator.class, name = "createGenerator"),
+        @JsonSubTypes.Type(value = NetworkModification.CreateLine.class, name = "createLine"),
+        @JsonSubTypes.Type(value = NetworkModification.CreateSubstation.class, name = "createSubstation"),
+        @JsonSubTypes.Type(value = NetworkModification.CreateVoltageLevel.class, name = "createVoltageLevel"),
+        @JsonSubTypes.Type(value = NetworkModification.SetPhaseTapPosition.class, name = "setPhaseTapPosition")
+})
+public sealed interface NetworkModification {
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    final class RemoveConnectable implements NetworkModification {
+        private String equipmentId;
+    }
+
+    /**
+     * Disconnects all terminals of a connectable, taking it out of service
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    final class Disconnect implements NetworkModification {
+        private String equipmentId;
+    }
+
+    /**
+     * Connects all terminals of a connectable
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    final class Connect implements NetworkModification {
+        private String equipmentId;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    final class SetSwitch implements NetworkModification {
+        private String switchId;
+        private boolean open;
+    }
+
+    @Data
+    final class CreateLoad implements NetworkModification {
+        private String loadId;
+        private String voltageLevelId;
+        private String busOrBusbarId;
+        private double p0;
+        private double q0;
+    }
+
+    @Data
+    final class CreateGenerator implements NetworkModification {
+        private String generatorId;
+        private String voltageLevelId;
+        private String busOrBusbarId;
+        private double targetP;
+        private double targetV;
+        private double minP;
+        private double maxP;
+    }
+
+    @Data
+    final class CreateLine implements NetworkModification {
+        private String lineId;
+        private String voltageLevel1Id;
+        private String voltageLevel2Id;
+        private String bus1Id;
+        private String bus2Id;
+        private double r;
+        private double x;
+        private double g1;
+        private double b1;
+        private double g2;
+        private double b2;
+    }
+
+    @Data
+    final class CreateSubstation implements NetworkModification {
+        private String substationId;
+        private String substationName;
+        private Country country;
+    }
+
+    @Data
+    final class CreateVoltageLevel implements NetworkModification {
+        private String substationId;
+        private String voltageLevelId;
+        private String voltageLevelName;
+        private double nominalV;
+        private TopologyKind topologyKind;
+    }
+
+    @Data
+    final class SetPhaseTapPosition implements NetworkModification {
+        private String transformerId;
+        private int tapPosition;
+        private boolean relative;
+    }
+}
@@ -0,0 +1,50 @@
+package com.fraunhofer.sognoviz.model;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Wall-clock duration of the stages of a generation (import, render, persist, ...), in milliseconds.
+ * Stages may be recorded from several threads.
+ */
+public class StageTimings {
+
+    private final Map<String, Long> durations = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    @FunctionalInterface
+    public interface Stage<T> {
+        T run() throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface VoidStage {
+        void run() throws IOException;
+    }
+
+    /**
+     * Runs a stage and records its duration, also when it fails
+     */
+    public <T> T record(String name, Stage<T> stage) throws IOException {
+        long startTime = System.nanoTime();
+        try {
+            return stage.run();
+        } finally {
+            durations.merge(name, (System.nanoTime() - startTime) / 1_000_000, Long::sum);
+        }
+    }
+
+    public void run(String name, VoidStage stage) throws IOException {
+        record(name, () -> {
+            stage.run();
+            return null;
+        });
+    }
+
+    public Map<String, Long> getDurations() {
+        synchronized (durations) {
+            return new LinkedHashMap<>(durations);
+        }
+    }
+}
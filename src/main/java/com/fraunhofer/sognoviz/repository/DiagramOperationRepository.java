@@ -0,0 +1,22 @@
+package com.fraunhofer.sognoviz.repository;
+
+import com.fraunhofer.sognoviz.entity.DiagramOperationEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DiagramOperationRepository extends JpaRepository<DiagramOperationEntity, Long> {
+
+    List<DiagramOperationEntity> findByDiagramIdOrderByRevision(String diagramId);
+
+    List<DiagramOperationEntity> findByDiagramIdAndRevisionBetweenOrderByRevision(String diagramId, int from, int to);
+
+    @Query("select max(o.revision) from DiagramOperationEntity o where o.diagramId = :diagramId")
+    Optional<Integer> findHeadRevision(String diagramId);
+
+    void deleteByDiagramId(String diagramId);
+}
@@ -1,19 +1,77 @@
 package com.fraunhofer.sognoviz.repository;
 
 import com.fraunhofer.sognoviz.entity.DiagramEntity;
+import com.fraunhofer.sognoviz.model.DiagramSummary;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface DiagramRepository extends JpaRepository<DiagramEntity, Long> {
-
+public interface DiagramRepository extends JpaRepository<DiagramEntity, String> {
 
+    String SUMMARY_SELECT = "select new com.fraunhofer.sognoviz.model.DiagramSummary(d.id, d.name, d.diagramType, d.createdAt, d.updatedAt) from DiagramEntity d";
 
     Optional<DiagramEntity> findByName(String name);
 
+    /**
+     * Loads a diagram and locks its row until the end of the transaction
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select d from DiagramEntity d where d.id = :id")
+    Optional<DiagramEntity> findByIdForUpdate(String id);
+
+    /**
+     * Ids of the diagrams modified since their SVG and metadata were drawn
+     */
+    @Query("select d.id from DiagramEntity d where d.drawnRevision < d.headRevision")
+    List<String> findIdsWithStaleDrawing();
+
     boolean existsByName(String name);
 
     void deleteByName(String name);
-}
\ No newline at end of file
+
+    @Query(SUMMARY_SELECT)
+    List<DiagramSummary> findAllSummaries();
+
+    @Query(SUMMARY_SELECT + " where d.id = :id")
+    Optional<DiagramSummary> findSummaryById(String id);
+
+    // Paging is split into typed and untyped queries, and the position is compared as a row value,
+    // so each query is a single range scan of idx_diagrams_updated or idx_diagrams_type_updated
+
+    /**
+     * First page of summaries, most recently updated first
+     */
+    @Query(SUMMARY_SELECT + " order by d.updatedAt desc, d.id desc")
+    List<DiagramSummary> findSummaryPage(Limit limit);
+
+    /**
+     * First page of summaries of one diagram type, most recently updated first
+     */
+    @Query(SUMMARY_SELECT + " where d.diagramType = :diagramType order by d.updatedAt desc, d.id desc")
+    List<DiagramSummary> findSummaryPageByType(String diagramType, Limit limit);
+
+    /**
+     * Summaries following the (updatedAt, id) position of the last row of the previous page
+     */
+    @Query(SUMMARY_SELECT
+            + " where (d.updatedAt, d.id) < (:updatedAt, :id)"
+            + " order by d.updatedAt desc, d.id desc")
+    List<DiagramSummary> findSummaryPageAfter(LocalDateTime updatedAt, String id, Limit limit);
+
+    /**
+     * Summaries of one diagram type following the (updatedAt, id) position of the last row of the previous page
+     */
+    @Query(SUMMARY_SELECT
+            + " where d.diagramType = :diagramType and (d.updatedAt, d.id) < (:updatedAt, :id)"
+            + " order by d.updatedAt desc, d.id desc")
+    List<DiagramSummary> findSummaryPageByTypeAfter(String diagramType, LocalDateTime updatedAt, String id,
+                                                    Limit limit);
+}
@@ -1,17 +1,28 @@
 package com.fraunhofer.sognoviz.repository;
 
 import com.fraunhofer.sognoviz.entity.NetworkMapEntity;
+import com.fraunhofer.sognoviz.model.DiagramSummary;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface MapDiagramRepository extends JpaRepository<NetworkMapEntity, Long> {
+public interface MapDiagramRepository extends JpaRepository<NetworkMapEntity, String> {
+
+    String SUMMARY_SELECT = "select new com.fraunhofer.sognoviz.model.DiagramSummary(m.id, m.name, m.diagramType, m.createdAt, m.updatedAt) from NetworkMapEntity m";
 
     Optional<NetworkMapEntity> findByName(String name);
 
     boolean existsByName(String name);
 
     void deleteByName(String name);
+
+    @Query(SUMMARY_SELECT)
+    List<DiagramSummary> findAllSummaries();
+
+    @Query(SUMMARY_SELECT + " where m.id = :id")
+    Optional<DiagramSummary> findSummaryById(String id);
 }
\ No newline at end of file
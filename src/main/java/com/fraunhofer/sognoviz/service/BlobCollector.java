@@ -0,0 +1,73 @@
+package com.fraunhofer.sognoviz.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mark and sweep collection of the {@link BlobStore}.
+ * Blobs are shared between rows by content, so deleting or updating a row cannot delete its blobs
+ * directly, and a rolled back save leaves blobs behind that no row references. Periodically all
+ * blob hashes referenced by the {@code diagrams} and {@code map_diagrams} rows are collected, and
+ * every other blob older than the grace period is deleted. The grace period must be longer than the
+ * longest transaction that stores blobs, so a blob is never swept before its row is committed.
+ */
+@Slf4j
+@Component
+public class BlobCollector {
+
+    /**
+     * Blob reference hash columns, per table
+     */
+    private static final Map<String, List<String>> HASH_COLUMNS = Map.of(
+            "DIAGRAMS", List.of("SVG_HASH", "METADATA_HASH"),
+            "MAP_DIAGRAMS", List.of("SVG_HASH", "METADATA_HASH", "LINE_HASH", "LINE_POSITION_HASH",
+                    "SUBSTATION_HASH", "SUBSTATION_POSITION_HASH"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlobStore blobStore;
+    private final Duration gracePeriod;
+
+    public BlobCollector(JdbcTemplate jdbcTemplate, BlobStore blobStore,
+                         @Value("${sognoviz.blob-store.gc-grace-minutes:60}") long gracePeriodMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blobStore = blobStore;
+        this.gracePeriod = Duration.ofMinutes(gracePeriodMinutes);
+    }
+
+    @Scheduled(initialDelayString = "${sognoviz.blob-store.gc-interval-minutes:60}",
+            fixedDelayString = "${sognoviz.blob-store.gc-interval-minutes:60}", timeUnit = TimeUnit.MINUTES)
+    public void collect() {
+        long startTime = System.currentTimeMillis();
+        try {
+            Set<String> live = findReferencedHashes();
+            int deleted = blobStore.deleteUnreferenced(live, gracePeriod);
+            log.info("Blob collection kept {} referenced blobs and deleted {} files in {} ms", live.size(), deleted,
+                    System.currentTimeMillis() - startTime);
+        } catch (IOException e) {
+            log.warn("Blob collection failed", e);
+        }
+    }
+
+    private Set<String> findReferencedHashes() {
+        Set<String> hashes = new HashSet<>();
+        HASH_COLUMNS.forEach((table, columns) -> {
+            for (String column : columns) {
+                hashes.addAll(jdbcTemplate.queryForList(
+                        "SELECT DISTINCT " + column + " FROM " + table + " WHERE " + column + " IS NOT NULL",
+                        String.class));
+            }
+        });
+        return hashes;
+    }
+}
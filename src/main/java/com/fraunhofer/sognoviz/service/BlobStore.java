@@ -0,0 +1,188 @@
+package com.fraunhofer.sognoviz.service;
+
+import com.fraunhofer.sognoviz.entity.BlobRef;
+import com.fraunhofer.sognoviz.util.ContentHash;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content addressed store for large diagram artifacts (SVG, metadata and map JSON exports).
+ * Each artifact is stored once, gzip compressed, under the SHA-256 of its uncompressed content;
+ * entities keep only a {@link BlobRef}. Identical artifacts of different diagrams share one file.
+ * Blobs are never rewritten, so readers need no locking.
+ * <p>
+ * Blobs no longer referenced by any row are removed by {@link #deleteUnreferenced}. A blob that is
+ * written or reused refreshes its modification time, so blobs of transactions that have not
+ * committed their reference yet are kept for a grace period.
+ */
+@Slf4j
+@Component
+public class BlobStore {
+
+    private static final String BLOB_EXTENSION = ".gz";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+
+    // puts share the lock, the sweep takes it exclusively per file, so it never deletes a blob that is being reused
+    private final ReadWriteLock sweepLock = new ReentrantReadWriteLock();
+
+    public BlobStore(@Value("${sognoviz.blob-store.dir:./data/blobs}") String root) {
+        this.root = Paths.get(root);
+    }
+
+    /**
+     * Stores an artifact, unless a blob with the same content already exists
+     *
+     * @return Reference to the blob, or null for null content
+     */
+    public BlobRef put(String content) throws IOException {
+        if (content == null) {
+            return null;
+        }
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        String hash = ContentHash.toHex(ContentHash.newDigest().digest(bytes));
+        Path blob = blobPath(hash, BLOB_EXTENSION);
+
+        sweepLock.readLock().lock();
+        try {
+            return store(hash, bytes, blob);
+        } finally {
+            sweepLock.readLock().unlock();
+        }
+    }
+
+    private BlobRef store(String hash, byte[] bytes, Path blob) throws IOException {
+        if (Files.exists(blob)) {
+            // restarts the grace period of a blob that was unreferenced until now
+            Files.setLastModifiedTime(blob, FileTime.from(Instant.now()));
+        } else {
+            Files.createDirectories(blob.getParent());
+            Path tempFile = Files.createTempFile(blob.getParent(), hash, ".tmp");
+            try (OutputStream out = new MaxCompressionGzipOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile), BUFFER_SIZE))) {
+                out.write(bytes);
+            } catch (IOException e) {
+                Files.deleteIfExists(tempFile);
+                throw e;
+            }
+            // a concurrent writer of the same content produces the same file, either one may win
+            Files.move(tempFile, blob, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            log.debug("Stored blob {} ({} bytes, {} compressed)", hash, bytes.length, Files.size(blob));
+        }
+
+        return new BlobRef(hash, (long) bytes.length, Files.size(blob));
+    }
+
+    /**
+     * Opens the uncompressed content of a blob
+     */
+    public InputStream open(BlobRef ref) throws IOException {
+        return new GZIPInputStream(Files.newInputStream(getCompressedPath(ref)), BUFFER_SIZE);
+    }
+
+    /**
+     * Opens the gzip compressed content of a blob as stored, for clients that accept gzip
+     */
+    public InputStream openCompressed(BlobRef ref) throws IOException {
+        return new BufferedInputStream(Files.newInputStream(getCompressedPath(ref)), BUFFER_SIZE);
+    }
+
+    /**
+     * Reads a blob into a String, or returns null for a null reference
+     */
+    public String read(BlobRef ref) throws IOException {
+        if (ref == null || ref.getHash() == null) {
+            return null;
+        }
+        try (InputStream in = open(ref)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    public Path getCompressedPath(BlobRef ref) throws IOException {
+        Path blob = blobPath(ref.getHash(), BLOB_EXTENSION);
+        if (!Files.isRegularFile(blob)) {
+            throw new IOException("Blob not found: " + ref.getHash());
+        }
+        return blob;
+    }
+
+    /**
+     * Deletes the files of all blobs that are not in the given set of live hashes and were neither
+     * written nor reused within the grace period. Left over temporary files and uncompressed copies
+     * are deleted the same way.
+     *
+     * @return Number of deleted files
+     */
+    public int deleteUnreferenced(Set<String> liveHashes, Duration gracePeriod) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return 0;
+        }
+        FileTime cutoff = FileTime.from(Instant.now().minus(gracePeriod));
+        int deleted = 0;
+        try (Stream<Path> files = Files.walk(root, 2)) {
+            Iterator<Path> iterator = files.filter(Files::isRegularFile).iterator();
+            while (iterator.hasNext()) {
+                Path file = iterator.next();
+                // uncompressed copies written by older versions are dropped as well
+                if (file.getFileName().toString().endsWith(BLOB_EXTENSION) && liveHashes.contains(hashOf(file))) {
+                    continue;
+                }
+                sweepLock.writeLock().lock();
+                try {
+                    if (Files.getLastModifiedTime(file).compareTo(cutoff) < 0 && Files.deleteIfExists(file)) {
+                        deleted++;
+                    }
+                } finally {
+                    sweepLock.writeLock().unlock();
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private static String hashOf(Path file) {
+        String name = file.getFileName().toString();
+        int extension = name.indexOf('.');
+        return extension < 0 ? name : name.substring(0, extension);
+    }
+
+    private Path blobPath(String hash, String extension) {
+        // fan out by the first two hex digits to keep directories small
+        return root.resolve(hash.substring(0, 2)).resolve(hash + extension);
+    }
+
+    /**
+     * Blobs are written once and served many times, so the slower best compression pays off
+     */
+    private static final class MaxCompressionGzipOutputStream extends GZIPOutputStream {
+        private MaxCompressionGzipOutputStream(OutputStream out) throws IOException {
+            super(out, BUFFER_SIZE);
+            def.setLevel(Deflater.BEST_COMPRESSION);
+        }
+    }
+}
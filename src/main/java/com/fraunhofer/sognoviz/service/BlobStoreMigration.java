@@ -0,0 +1,89 @@
+package com.fraunhofer.sognoviz.service;
+
+import com.fraunhofer.sognoviz.entity.BlobRef;
+import com.fraunhofer.sognoviz.repository.DiagramRepository;
+import com.fraunhofer.sognoviz.repository.MapDiagramRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+/**
+ * Moves artifacts of databases created before the blob store out of their CLOB columns.
+ * Hibernate's schema update adds the blob reference columns but keeps the old ones, so on startup
+ * every row without a reference gets its content put into the {@link BlobStore}, then the old
+ * column is dropped. Does nothing once all old columns are gone.
+ */
+@Slf4j
+@Component
+public class BlobStoreMigration {
+
+    /**
+     * Old CLOB column to blob reference column prefix, per table
+     */
+    private static final Map<String, Map<String, String>> LEGACY_COLUMNS = Map.of(
+            "DIAGRAMS", Map.of(
+                    "SVG_DATA", "SVG",
+                    "METADATA", "METADATA"),
+            "MAP_DIAGRAMS", Map.of(
+                    "SVG", "SVG",
+                    "METADATA", "METADATA",
+                    "LINE", "LINE",
+                    "LINE_POSITION", "LINE_POSITION",
+                    "SUBSTATION", "SUBSTATION",
+                    "SUBSTATION_POSITION", "SUBSTATION_POSITION"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlobStore blobStore;
+
+    // the repositories are only injected so the schema update has run before the migration
+    public BlobStoreMigration(JdbcTemplate jdbcTemplate, BlobStore blobStore,
+                              DiagramRepository diagramRepository, MapDiagramRepository mapDiagramRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blobStore = blobStore;
+    }
+
+    @PostConstruct
+    public void migrate() {
+        LEGACY_COLUMNS.forEach((table, columns) -> columns.forEach((legacy, prefix) -> {
+            if (hasColumn(table, legacy)) {
+                migrateColumn(table, legacy, prefix);
+            }
+        }));
+    }
+
+    private boolean hasColumn(String table, String column) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = ? AND COLUMN_NAME = ?",
+                Integer.class, table, column);
+        return count != null && count > 0;
+    }
+
+    private void migrateColumn(String table, String legacy, String prefix) {
+        long startTime = System.currentTimeMillis();
+        int[] migrated = {0};
+
+        // rows are streamed, only one artifact is held in memory at a time
+        jdbcTemplate.query("SELECT ID, " + legacy + " FROM " + table
+                + " WHERE " + prefix + "_HASH IS NULL AND " + legacy + " IS NOT NULL", rs -> {
+            BlobRef ref;
+            try {
+                ref = blobStore.put(rs.getString(2));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to migrate " + table + "." + legacy, e);
+            }
+            jdbcTemplate.update("UPDATE " + table + " SET " + prefix + "_HASH = ?, " + prefix + "_SIZE = ?, "
+                            + prefix + "_STORED_SIZE = ? WHERE ID = ?",
+                    ref.getHash(), ref.getSize(), ref.getStoredSize(), rs.getString(1));
+            migrated[0]++;
+        });
+
+        jdbcTemplate.execute("ALTER TABLE " + table + " DROP COLUMN " + legacy);
+        log.info("Moved {} values of {}.{} into the blob store in {} ms", migrated[0], table, legacy,
+                System.currentTimeMillis() - startTime);
+    }
+}
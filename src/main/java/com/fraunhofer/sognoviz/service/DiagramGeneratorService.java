@@ -1,38 +1,50 @@
 package com.fraunhofer.sognoviz.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fraunhofer.sognoviz.DTO.SubstationDTO;
 import com.fraunhofer.sognoviz.DTO.VoltageLevelDTO;
+import com.fraunhofer.sognoviz.model.DiagramFiles;
 import com.fraunhofer.sognoviz.model.DiagramModel;
+import com.fraunhofer.sognoviz.model.MapDiagramFiles;
+import com.fraunhofer.sognoviz.model.NetworkModification;
+import com.fraunhofer.sognoviz.model.StageTimings;
+import com.fraunhofer.sognoviz.util.CgmesSelectionScanner;
+import com.fraunhofer.sognoviz.util.ContentHash;
+import com.fraunhofer.sognoviz.util.DiagramFileHelper;
+import com.fraunhofer.sognoviz.util.NadSvgPatcher;
 import com.fraunhofer.sognoviz.util.NetworkToJsonConverter;
 import com.powsybl.cgmes.conversion.CgmesImport;
 import com.powsybl.commons.datasource.DataSource;
-import com.powsybl.iidm.modification.tapchanger.PhaseTapPositionModification;
-import com.powsybl.iidm.modification.topology.CreateBranchFeederBaysBuilder;
-import com.powsybl.iidm.modification.topology.CreateFeederBayBuilder;
 import com.powsybl.iidm.network.*;
 import com.powsybl.iidm.network.extensions.SubstationPosition;
+import com.powsybl.iidm.serde.NetworkSerDe;
 import com.powsybl.nad.NadParameters;
 import com.powsybl.nad.NetworkAreaDiagram;
 import com.powsybl.nad.build.iidm.VoltageLevelFilter;
-import com.powsybl.nad.layout.FixedLayoutFactory;
-import com.powsybl.nad.layout.LayoutFactoryUtils;
 import com.powsybl.nad.model.TextNode;
 import com.powsybl.nad.svg.SvgParameters;
-import com.powsybl.nad.svg.metadata.DiagramMetadata;
 import com.powsybl.nad.svg.metadata.TextNodeMetadata;
 import com.powsybl.sld.SingleLineDiagram;
+import com.powsybl.sld.SldParameters;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -41,11 +53,41 @@ import java.util.stream.Collectors;
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class DiagramGeneratorService {
 
-    private static final Path OUTPUT_DIR = Paths.get("./output/");
-    private static final Path STORAGE_DIR = Paths.get("./cgmes/");
     private static final String MODIFIED_DIR_SUFFIX = "_modified";
+    private static final String SVG_EXTENSION = ".svg";
+    private static final String METADATA_SUFFIX = "_metadata.json";
+    private static final String NAD_BASE_NAME = "network";
+    private static final String SLD_BASE_NAME = "sld";
+
+    private static final List<String> NAD_FILES = List.of("network.svg", "network_metadata.json");
+    private static final List<String> SLD_FILES = List.of("sld.svg", "sld_metadata.json");
+    private static final List<String> MAP_FILES = List.of(
+            "network.svg",
+            "network_metadata.json",
+            "substation_locations.json",
+            "substation_positions.json",
+            "line_locations.json",
+            "line_positions.json"
+    );
+
+    private final ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "network-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // inputs queued for or being prefetched, so repeated selection requests do not queue the same import
+    private final Set<String> pendingPrefetches = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService mapExportPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private final NetworkCache networkCache;
+    private final NetworkSnapshotStore snapshotStore;
+    private final DiagramFileHelper fileHelper;
+    private final NetworkElementCreationService networkElementCreationService;
 
     // ==================== NETWORK LOADING ====================
 
@@ -65,58 +107,65 @@ public class DiagramGeneratorService {
         }
         Properties importParams = createImportProperties();
 
-
-        try {
-            DataSource dataSource = DataSource.fromPath(path);
-            Network network = Network.read(dataSource, importParams);
-
-            if (network == null) {
-                throw new IOException("Failed to load network from: " + inputPath);
-            }
-            return network;
-        } catch (Exception e) {
-            log.error("Failed to load network from: {}", inputPath, e);
-            throw new IOException("Failed to load network from file: " + inputPath, e);
-        }
+        return networkCache.get(path, importParams, () -> warmUpTopology(readNetwork(path, importParams)));
     }
 
 
     private Network loadNetworkWithGLProfile(String inputPath) throws IOException {
-        validateFilePath(inputPath);
-        Path path = Path.of(inputPath);
+        Network network = loadNetwork(inputPath);
 
+        long substationsWithPosition = network.getSubstationStream()
+                .filter(s -> s.getExtension(SubstationPosition.class) != null)
+                .count();
 
-        if (!Files.exists(path)) {
-            throw new IOException("Network file does not exist: " + inputPath);
+        if (substationsWithPosition == 0) {
+            throw new IOException("No SubstationPosition extensions found. GL profile may be missing from CGMES files.");
         }
 
-        Properties importParams = createImportProperties();
+        return network;
+    }
 
+    /**
+     * Loads a private copy of a network that can safely be modified.
+     * Cached networks are shared between requests and must never be modified in place.
+     */
+    private Network loadNetworkForModification(String inputPath) throws IOException {
+        return NetworkSerDe.copy(loadNetwork(inputPath));
+    }
+
+    /**
+     * Reads a network on a cache miss: from its binary snapshot if one exists,
+     * otherwise by running the CGMES import and writing a snapshot for the next load
+     */
+    private Network readNetwork(Path path, Properties importParams) throws IOException {
+        Optional<Network> snapshot = snapshotStore.read(path, importParams);
+        if (snapshot.isPresent()) {
+            return snapshot.get();
+        }
+
+        Network network = importNetwork(path, importParams);
+        snapshotStore.write(path, importParams, network);
+        return network;
+    }
+
+    /**
+     * Runs the CGMES import for a network file
+     */
+    private Network importNetwork(Path path, Properties importParams) throws IOException {
         try {
             DataSource dataSource = DataSource.fromPath(path);
             Network network = Network.read(dataSource, importParams);
 
             if (network == null) {
-                throw new IOException("Failed to load network from: " + inputPath);
+                throw new IOException("Failed to load network from: " + path);
             }
-
-            long substationsWithPosition = network.getSubstationStream()
-                    .filter(s -> s.getExtension(SubstationPosition.class) != null)
-                    .count();
-
-            if (substationsWithPosition == 0) {
-                throw new IOException("No SubstationPosition extensions found. GL profile may be missing from CGMES files.");
-            }
-
             return network;
-
         } catch (IOException e) {
             throw e;
         } catch (Exception e) {
-            log.error("Failed to load network from: {}", inputPath, e);
-            throw new IOException("Failed to load network from file: " + inputPath, e);
+            log.error("Failed to load network from: {}", path, e);
+            throw new IOException("Failed to load network from file: " + path, e);
         }
-
     }
 
     /**
@@ -143,74 +192,133 @@ public class DiagramGeneratorService {
      * Generates a basic Network Area Diagram (NAD)
      *
      * @param inputPath Path to network file
-     * @return Path to output directory containing SVG
+     * @return SVG and metadata of the diagram
      * @throws IOException if generation fails
      */
-    public Path generateNAD(String inputPath) throws IOException {
-        Network network = loadNetwork(inputPath);
-        ensureDirectoryExists(OUTPUT_DIR);
+    public DiagramFiles generateNAD(String inputPath) throws IOException {
+        return generateNAD(inputPath, new StageTimings());
+    }
 
-        Path svgFile = OUTPUT_DIR.resolve("network.svg");
-        NetworkAreaDiagram.draw(network, svgFile);
+    /**
+     * Generates a basic Network Area Diagram (NAD), recording import and render durations
+     */
+    public DiagramFiles generateNAD(String inputPath, StageTimings timings) throws IOException {
+        String contentHash = ContentHash.ofFile(Path.of(inputPath));
+        Optional<Map<String, String>> stored = fileHelper.readDerivedArtifacts(contentHash, "nad", NAD_FILES);
+        if (stored.isPresent()) {
+            log.info("Reusing NAD of identical upload {}", contentHash);
+            return toDiagramFiles(stored.get(), NAD_BASE_NAME);
+        }
 
-        log.info("Generated NAD at: {}", svgFile);
-        return OUTPUT_DIR;
+        Network network = timings.record("import", () -> loadNetwork(inputPath));
+        DiagramFiles diagramFiles = timings.record("render", () ->
+                drawNad(network, new NadParameters(), VoltageLevelFilter.NO_FILTER, NAD_BASE_NAME));
+
+        log.info("Generated NAD for: {}", inputPath);
+        fileHelper.storeDerivedArtifacts(contentHash, "nad", toArtifacts(diagramFiles));
+        return diagramFiles;
     }
 
     /**
      * Generates comprehensive NAD with multiple JSON metadata files for map visualization
      *
      * @param inputPath Path to network file
-     * @return Path to temporary output directory containing all generated files
+     * @return SVG, metadata and map JSON exports
      * @throws IOException if generation fails
      */
-    public Path generateNadForMap(String inputPath) throws IOException {
-        Network network = loadNetworkWithGLProfile(inputPath);
-
-        // Ensure OUTPUT_DIR exists first
-        ensureDirectoryExists(OUTPUT_DIR);
-
-        // Create unique temp directory inside OUTPUT_DIR
-        Path outputD = Files.createTempDirectory(OUTPUT_DIR, "nad_");
-
-        // Generate SVG diagram
-        Path svgFile = outputD.resolve("network.svg");
-        NetworkAreaDiagram.draw(network, svgFile);
+    public MapDiagramFiles generateNadForMap(String inputPath) throws IOException {
+        return generateNadForMap(inputPath, new StageTimings());
+    }
 
-        // Generate all JSON metadata files
-        generateJsonMetadataFiles(network, outputD);
+    /**
+     * Generates NAD with map data, recording import, render and export durations
+     */
+    public MapDiagramFiles generateNadForMap(String inputPath, StageTimings timings) throws IOException {
+        String contentHash = ContentHash.ofFile(Path.of(inputPath));
+        Optional<Map<String, String>> stored = fileHelper.readDerivedArtifacts(contentHash, "map", MAP_FILES);
+        if (stored.isPresent()) {
+            log.info("Reusing map data of identical upload {}", contentHash);
+            return toMapDiagramFiles(stored.get());
+        }
 
-        log.info("Generated NAD with map data at: {}", outputD);
-        return outputD;
+        Network network = timings.record("import", () -> loadNetworkWithGLProfile(inputPath));
+
+        // The SVG render and the JSON exports only read the network, so they run in parallel
+        CompletableFuture<DiagramFiles> nad = runStageAsync(timings, "render", () ->
+                drawNad(network, new NadParameters(), VoltageLevelFilter.NO_FILTER, NAD_BASE_NAME));
+        CompletableFuture<String> substations = runStageAsync(timings, "export.substations", () ->
+                NetworkToJsonConverter.writeToString(network, NetworkToJsonConverter::writeNetworkJson));
+        CompletableFuture<String> substationPositions = runStageAsync(timings, "export.substationPositions", () ->
+                NetworkToJsonConverter.writeToString(network, NetworkToJsonConverter::writeSubstationPositionsJson));
+        CompletableFuture<String> lines = runStageAsync(timings, "export.lines", () ->
+                NetworkToJsonConverter.writeToString(network, NetworkToJsonConverter::writeLinesJson));
+        CompletableFuture<String> linePositions = runStageAsync(timings, "export.linePositions", () ->
+                NetworkToJsonConverter.writeToString(network, NetworkToJsonConverter::writeLinePositionsJson));
+
+        awaitAll(List.of(nad, substations, substationPositions, lines, linePositions));
+
+        MapDiagramFiles mapFiles = MapDiagramFiles.builder()
+                .svgContent(nad.join().getSvgContent())
+                .metadataContent(nad.join().getJsonContent())
+                .substations(substations.join())
+                .substationPositions(substationPositions.join())
+                .lines(lines.join())
+                .linePositions(linePositions.join())
+                .build();
+
+        log.info("Generated NAD with map data for: {}", inputPath);
+        fileHelper.storeDerivedArtifacts(contentHash, "map", toArtifacts(mapFiles));
+        return mapFiles;
     }
 
     /**
-     * Generates all JSON metadata files for network visualization
+     * Runs a generation stage on the map export pool, recording its duration
      */
-    private void generateJsonMetadataFiles(Network network, Path outputDir) throws IOException {
-        // Network metadata (substations with voltage levels)
-        writeJsonFile(
-                NetworkToJsonConverter.convertNetworkToJson(network),
-                outputDir.resolve("substation_locations.json")
-        );
-
-        // Substation positions
-        writeJsonFile(
-                NetworkToJsonConverter.convertSubstationPositionsToJson(network),
-                outputDir.resolve("substation_positions.json")
-        );
+    private <T> CompletableFuture<T> runStageAsync(StageTimings timings, String name, StageTimings.Stage<T> stage) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return timings.record(name, stage);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, mapExportPool);
+    }
 
-        // Line data with flows
-        writeJsonFile(
-                NetworkToJsonConverter.convertLinesToJson(network),
-                outputDir.resolve("line_locations.json")
-        );
+    /**
+     * Waits for all stages, also when some of them fail. If any failed, the failure of the first
+     * stage in list order is thrown with the others attached as suppressed, so the reported error
+     * does not depend on which stage happened to finish first.
+     */
+    private void awaitAll(List<CompletableFuture<?>> stages) throws IOException {
+        Throwable failure = null;
+        for (CompletableFuture<?> stage : stages) {
+            try {
+                stage.join();
+            } catch (CompletionException | CancellationException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof UncheckedIOException unchecked) {
+                    cause = unchecked.getCause();
+                }
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            }
+        }
 
-        // Line positions
-        writeJsonFile(
-                NetworkToJsonConverter.convertLinePositionsToJson(network),
-                outputDir.resolve("line_positions.json")
-        );
+        if (failure instanceof IOException ioException) {
+            throw ioException;
+        }
+        if (failure instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+        if (failure != null) {
+            throw new IOException(failure);
+        }
     }
 
     /**
@@ -219,23 +327,45 @@ public class DiagramGeneratorService {
      * @param inputPath Path to network file
      * @param type Type of diagram: "substation", "voltage", or "all"
      * @param id ID of substation or voltage level (ignored if type is "all")
-     * @return Path to output directory
+     * @return SVG and metadata of the diagram
      * @throws IOException if generation fails
      */
-    public Path generateSLD(String inputPath, String type, String id) throws IOException {
-        Network network = loadNetwork(inputPath);
-        ensureDirectoryExists(OUTPUT_DIR);
+    public DiagramFiles generateSLD(String inputPath, String type, String id) throws IOException {
+        return generateSLD(inputPath, type, id, new StageTimings());
+    }
 
-        Path svgFile = OUTPUT_DIR.resolve("sld.svg");
+    /**
+     * Generates Single Line Diagram (SLD), recording import and render durations
+     */
+    public DiagramFiles generateSLD(String inputPath, String type, String id, StageTimings timings) throws IOException {
+        String contentHash = ContentHash.ofFile(Path.of(inputPath));
+        String kind = "sld/" + ContentHash.ofString(type.toLowerCase() + ":" + id);
+        Optional<Map<String, String>> stored = fileHelper.readDerivedArtifacts(contentHash, kind, SLD_FILES);
+        if (stored.isPresent()) {
+            log.info("Reusing SLD of identical upload {}", contentHash);
+            return toDiagramFiles(stored.get(), SLD_BASE_NAME);
+        }
+
+        Network network = timings.record("import", () -> loadNetwork(inputPath));
+        DiagramFiles diagramFiles = timings.record("render", () -> drawSld(network, type, id));
+
+        fileHelper.storeDerivedArtifacts(contentHash, kind, toArtifacts(diagramFiles));
+        return diagramFiles;
+    }
+
+    private DiagramFiles drawSld(Network network, String type, String id) {
+        StringWriter svgWriter = new StringWriter();
+        StringWriter metadataWriter = new StringWriter();
+        SldParameters sldParameters = new SldParameters();
 
         switch (type.toLowerCase()) {
             case "substation":
-                SingleLineDiagram.drawSubstation(network, id, svgFile);
+                SingleLineDiagram.drawSubstation(network, id, svgWriter, metadataWriter, sldParameters);
                 log.info("Generated SLD for substation: {}", id);
                 break;
 
             case "voltage":
-                SingleLineDiagram.drawVoltageLevel(network, id, svgFile);
+                SingleLineDiagram.drawVoltageLevel(network, id, svgWriter, metadataWriter, sldParameters);
                 log.info("Generated SLD for voltage level: {}", id);
                 break;
 
@@ -243,11 +373,69 @@ public class DiagramGeneratorService {
                 List<String> substationIds = network.getSubstationStream()
                         .map(Identifiable::getId)
                         .collect(Collectors.toList());
-                SingleLineDiagram.drawMultiSubstations(network, substationIds, svgFile);
+                SingleLineDiagram.drawMultiSubstations(network, substationIds, svgWriter, metadataWriter, sldParameters);
                 log.info("Generated SLD for all substations");
         }
 
-        return OUTPUT_DIR;
+        return createDiagramFiles(SLD_BASE_NAME, svgWriter, metadataWriter);
+    }
+
+    /**
+     * Draws a NAD straight into memory, without temporary SVG and metadata files
+     */
+    private DiagramFiles drawNad(Network network, NadParameters nadParameters,
+                                 Predicate<VoltageLevel> voltageLevelFilter, String baseName) {
+        StringWriter svgWriter = new StringWriter();
+        StringWriter metadataWriter = new StringWriter();
+        NetworkAreaDiagram.draw(network, svgWriter, metadataWriter, nadParameters, voltageLevelFilter);
+        return createDiagramFiles(baseName, svgWriter, metadataWriter);
+    }
+
+    private DiagramFiles createDiagramFiles(String baseName, StringWriter svgWriter, StringWriter metadataWriter) {
+        return DiagramFiles.builder()
+                .svgFileName(baseName + SVG_EXTENSION)
+                .jsonFileName(baseName + METADATA_SUFFIX)
+                .svgContent(svgWriter.toString())
+                .jsonContent(metadataWriter.toString())
+                .build();
+    }
+
+    private Map<String, String> toArtifacts(DiagramFiles diagramFiles) {
+        return Map.of(
+                diagramFiles.getSvgFileName(), diagramFiles.getSvgContent(),
+                diagramFiles.getJsonFileName(), diagramFiles.getJsonContent()
+        );
+    }
+
+    private DiagramFiles toDiagramFiles(Map<String, String> artifacts, String baseName) {
+        return DiagramFiles.builder()
+                .svgFileName(baseName + SVG_EXTENSION)
+                .jsonFileName(baseName + METADATA_SUFFIX)
+                .svgContent(artifacts.get(baseName + SVG_EXTENSION))
+                .jsonContent(artifacts.get(baseName + METADATA_SUFFIX))
+                .build();
+    }
+
+    private Map<String, String> toArtifacts(MapDiagramFiles mapFiles) {
+        return Map.of(
+                "network.svg", mapFiles.getSvgContent(),
+                "network_metadata.json", mapFiles.getMetadataContent(),
+                "substation_locations.json", mapFiles.getSubstations(),
+                "substation_positions.json", mapFiles.getSubstationPositions(),
+                "line_locations.json", mapFiles.getLines(),
+                "line_positions.json", mapFiles.getLinePositions()
+        );
+    }
+
+    private MapDiagramFiles toMapDiagramFiles(Map<String, String> artifacts) {
+        return MapDiagramFiles.builder()
+                .svgContent(artifacts.get("network.svg"))
+                .metadataContent(artifacts.get("network_metadata.json"))
+                .substations(artifacts.get("substation_locations.json"))
+                .substationPositions(artifacts.get("substation_positions.json"))
+                .lines(artifacts.get("line_locations.json"))
+                .linePositions(artifacts.get("line_positions.json"))
+                .build();
     }
 
     /**
@@ -258,17 +446,41 @@ public class DiagramGeneratorService {
      * @throws IOException if loading fails
      */
     public Map<String, Object> getSldData(String inputPath) throws IOException {
+        validateFilePath(inputPath);
+        Path path = Path.of(inputPath);
+
+        Optional<Network> cached = networkCache.getIfPresent(path, createImportProperties());
+        if (cached.isPresent()) {
+            return createSldData(
+                    extractSubstations(cached.get()),
+                    extractVoltageLevels(cached.get())
+            );
+        }
+
+        // Only IDs, names and voltages are needed here, so scan the EQ profile instead of a full import
+        Optional<CgmesSelectionScanner.SelectionData> scanned = CgmesSelectionScanner.scan(path);
+        if (scanned.isPresent()) {
+            prefetchNetwork(inputPath);
+            return createSldData(scanned.get().getSubstations(), scanned.get().getVoltageLevels());
+        }
+
+        log.info("No EQ profile found by scan, falling back to full import for: {}", inputPath);
         Network network = loadNetwork(inputPath);
+        return createSldData(extractSubstations(network), extractVoltageLevels(network));
+    }
 
-        List<SubstationDTO> substations = network.getSubstationStream()
+    private List<SubstationDTO> extractSubstations(Network network) {
+        return network.getSubstationStream()
                 .map(s -> new SubstationDTO(
                         s.getId(),
                         s.getOptionalName().orElse(""),
                         s.getCountry().orElse(Country.DE)
                 ))
                 .collect(Collectors.toList());
+    }
 
-        List<VoltageLevelDTO> voltageLevels = network.getVoltageLevelStream()
+    private List<VoltageLevelDTO> extractVoltageLevels(Network network) {
+        return network.getVoltageLevelStream()
                 .map(vl -> new VoltageLevelDTO(
                         vl.getId(),
                         vl.getOptionalName().orElse(""),
@@ -276,7 +488,9 @@ public class DiagramGeneratorService {
                         vl.getTopologyKind()
                 ))
                 .collect(Collectors.toList());
+    }
 
+    private Map<String, Object> createSldData(List<SubstationDTO> substations, List<VoltageLevelDTO> voltageLevels) {
         Map<String, Object> result = new HashMap<>();
         result.put("substations", substations);
         result.put("voltageLevels", voltageLevels);
@@ -286,262 +500,131 @@ public class DiagramGeneratorService {
         return result;
     }
 
-    // ==================== NETWORK MODIFICATIONS ====================
-
     /**
-     * Removes a connectable element from the network
+     * Starts the full import in the background, so the following SLD request finds the network
+     * in the cache (or joins the in-flight load) instead of starting it
      */
-    public Path removeConnectable(String equipmentId, DiagramModel model)
-            throws IOException {
-
-
-        return executeModification(model, (network, nadParams, outputDir) -> {
-            Connectable<?> connectable = network.getConnectable(equipmentId);
-
-            if (connectable == null) {
-                throw new IOException("Connectable not found: " + equipmentId);
-            }
+    private void prefetchNetwork(String inputPath) {
+        if (!pendingPrefetches.add(inputPath)) {
+            return;
+        }
+        try {
+            prefetchExecutor.execute(() -> {
+                try {
+                    loadNetwork(inputPath);
+                } catch (Exception e) {
+                    log.warn("Background import failed for: {}", inputPath, e);
+                } finally {
+                    pendingPrefetches.remove(inputPath);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingPrefetches.remove(inputPath);
+        }
+    }
 
-            connectable.remove();
-            log.info("Removed connectable: {}", equipmentId);
-        });
+    @PreDestroy
+    public void shutdown() {
+        prefetchExecutor.shutdownNow();
+        mapExportPool.shutdownNow();
     }
 
+    // ==================== NETWORK MODIFICATIONS ====================
+
     /**
-     * Executes a network modification with common setup and teardown logic
+     * Removes a connectable element from a loaded network of a diagram and redraws only the voltage
+     * levels it was connected to, merging them into the stored drawing
+     *
+     * @param nadParameters Parameters with the stored layout of the diagram
+     * @return Patch of the stored diagram, and its patched SVG and metadata
      */
-    @FunctionalInterface
-    private interface ModificationAction {
-        void execute(Network network, NadParameters nadParams, Path outputDir) throws IOException;
-    }
-
-    private Path executeModification(DiagramModel model,
-                                     ModificationAction action) throws IOException {
-        ensureDirectoryExists(STORAGE_DIR);
-
-        String metadataJson = model.getMetadata();
-
-        ObjectMapper objectMapper = new ObjectMapper();
-
-        String actualJson = objectMapper.readValue(metadataJson, String.class);
-
-        DiagramMetadata metadata = objectMapper.readValue(actualJson, DiagramMetadata.class);
-        InputStream metadataIS = new ByteArrayInputStream(actualJson.getBytes(StandardCharsets.UTF_8));
-
-        FixedLayoutFactory fixedLayoutFactory =
-                LayoutFactoryUtils.create(metadataIS);
-
-        NadParameters nadParameters = new NadParameters()
-                .setLayoutParameters(metadata.getLayoutParameters())
-                .setSvgParameters(metadata.getSvgParameters())
-                .setLayoutFactory(fixedLayoutFactory);
-
-        Network network = loadNetwork(STORAGE_DIR.resolve(model.getName() + ".zip").toString());
-
-        Path outputDir = STORAGE_DIR.resolve(model.getName() + MODIFIED_DIR_SUFFIX);
-        ensureDirectoryExists(outputDir);
-
-        action.execute(network, nadParameters, outputDir);
-
-        NetworkAreaDiagram.draw(network, outputDir, nadParameters, VoltageLevelFilter.NO_FILTER);
-
-        return outputDir;
-    }
-
-//    /**
-//     * Creates a new load in the network
-//     */
-//    public Path createLoad(String inputPath, String loadId, String busOrBusbarId,
-//                           double p0, double q0, String voltageLevelId, String diagramId)
-//            throws IOException {
-//
-//        return executeModification(inputPath, diagramId, (network, nadParams, outputDir) -> {
-//            VoltageLevel voltageLevel = getVoltageLevelOrThrow(network, voltageLevelId);
-//
-//            LoadAdder loadAdder = voltageLevel.newLoad()
-//                    .setId(loadId)
-//                    .setName(loadId)
-//                    .setP0(p0)
-//                    .setQ0(q0)
-//                    .setLoadType(LoadType.UNDEFINED);
-//
-//            new CreateFeederBayBuilder()
-//                    .withInjectionAdder(loadAdder)
-//                    .withBusOrBusbarSectionId(busOrBusbarId)
-//                    .build()
-//                    .apply(network, true);
-//
-//            log.info("Created load: {} at voltage level: {}", loadId, voltageLevelId);
-//        });
-//    }
-//
-//    /**
-//     * Creates a new generator in the network
-//     */
-//    public Path createGenerator(String inputPath, String generatorId, String busOrBusbarId,
-//                                double targetP, double targetV, double minP, double maxP,
-//                                String voltageLevelId, String diagramId) throws IOException {
-//
-//        return executeModification(inputPath, diagramId, (network, nadParams, outputDir) -> {
-//            VoltageLevel voltageLevel = getVoltageLevelOrThrow(network, voltageLevelId);
-//
-//            GeneratorAdder generatorAdder = voltageLevel.newGenerator()
-//                    .setId(generatorId)
-//                    .setName(generatorId)
-//                    .setTargetP(targetP)
-//                    .setTargetV(targetV)
-//                    .setMinP(minP)
-//                    .setMaxP(maxP)
-//                    .setVoltageRegulatorOn(true)
-//                    .setEnergySource(EnergySource.OTHER);
-//
-//            new CreateFeederBayBuilder()
-//                    .withInjectionAdder(generatorAdder)
-//                    .withBusOrBusbarSectionId(busOrBusbarId)
-//                    .build()
-//                    .apply(network, true);
-//
-//            log.info("Created generator: {} at voltage level: {}", generatorId, voltageLevelId);
-//        });
-//    }
-//
-//    /**
-//     * Creates a new line connecting two voltage levels
-//     */
-//    public Path createLine(String inputPath, String lineId,
-//                           String bus1Id, String bus2Id,
-//                           String voltageLevel1Id, String voltageLevel2Id,
-//                           double r, double x, double g1, double b1, double g2, double b2,
-//                           String diagramId) throws IOException {
-//
-//        return executeModification(inputPath, diagramId, (network, nadParams, outputDir) -> {
-//            // Validate both voltage levels exist
-//            getVoltageLevelOrThrow(network, voltageLevel1Id);
-//            getVoltageLevelOrThrow(network, voltageLevel2Id);
-//
-//            LineAdder lineAdder = network.newLine()
-//                    .setId(lineId)
-//                    .setName(lineId)
-//                    .setVoltageLevel1(voltageLevel1Id)
-//                    .setVoltageLevel2(voltageLevel2Id)
-//                    .setR(r)
-//                    .setX(x)
-//                    .setG1(g1)
-//                    .setB1(b1)
-//                    .setG2(g2)
-//                    .setB2(b2);
-//
-//            new CreateBranchFeederBaysBuilder()
-//                    .withBranchAdder(lineAdder)
-//                    .withBusOrBusbarSectionId1(bus1Id)
-//                    .withBusOrBusbarSectionId2(bus2Id)
-//                    .build()
-//                    .apply(network, true);
-//
-//            log.info("Created line: {} between {} and {}", lineId, voltageLevel1Id, voltageLevel2Id);
-//        });
-//    }
-//
-//    /**
-//     * Creates a new substation in the network
-//     */
-//    public Path createSubstation(String inputPath, String substationId, String substationName,
-//                                 String country, String diagramId) throws IOException {
-//
-//        return executeModification(inputPath, diagramId, (network, nadParams, outputDir) -> {
-//            network.newSubstation()
-//                    .setId(substationId)
-//                    .setName(substationName)
-//                    .setCountry(Country.valueOf(country))
-//                    .add();
-//
-//            log.info("Created substation: {} in country: {}", substationId, country);
-//        });
-//    }
-//
-//    /**
-//     * Creates a new voltage level within a substation
-//     */
-//    public Path createVoltageLevel(String inputPath, String substationId,
-//                                   String voltageLevelId, String voltageLevelName,
-//                                   double nominalV, String topologyKind, String diagramId)
-//            throws IOException {
-//
-//        return executeModification(inputPath, diagramId, (network, nadParams, outputDir) -> {
-//            Substation substation = getSubstationOrThrow(network, substationId);
-//
-//            substation.newVoltageLevel()
-//                    .setId(voltageLevelId)
-//                    .setName(voltageLevelName)
-//                    .setNominalV(nominalV)
-//                    .setTopologyKind(TopologyKind.valueOf(topologyKind))
-//                    .add();
-//
-//            log.info("Created voltage level: {} in substation: {}", voltageLevelId, substationId);
-//        });
-//    }
-//
-//    /**
-//     * Sets the phase tap position of a transformer
-//     */
-//    public Path setPhaseTapPosition(String inputPath, String transformerId,
-//                                    int tapPosition, boolean relative, String diagramId)
-//            throws IOException {
-//
-//        return executeModification(inputPath, diagramId, (network, nadParams, outputDir) -> {
-//            new PhaseTapPositionModification(transformerId, tapPosition, relative)
-//                    .apply(network);
-//
-//            log.info("Set phase tap position for transformer: {} to position: {} (relative: {})",
-//                    transformerId, tapPosition, relative);
-//        });
-//    }
-
-
-
-    // ==================== HELPER METHODS ====================
-
+    public NadSvgPatcher.Result removeConnectableIncremental(Network network, String equipmentId, DiagramModel model,
+                                                             NadParameters nadParameters) throws IOException {
+        Connectable<?> connectable = network.getConnectable(equipmentId);
+        if (connectable == null) {
+            throw new IllegalArgumentException("Connectable not found: " + equipmentId);
+        }
+        Set<String> affected = connectable.getTerminals().stream()
+                .map(terminal -> terminal.getVoltageLevel().getId())
+                .collect(Collectors.toSet());
+        connectable.remove();
+        log.info("Removed connectable: {}", equipmentId);
+
+        // neighbours are drawn as well, so the edges of the affected voltage levels are complete
+        Set<String> drawn = new HashSet<>(affected);
+        for (String voltageLevelId : affected) {
+            network.getVoltageLevel(voltageLevelId).getConnectableStream().forEach(neighbour -> {
+                List<? extends Terminal> terminals = neighbour.getTerminals();
+                terminals.forEach(terminal -> drawn.add(terminal.getVoltageLevel().getId()));
+            });
+        }
 
+        long startTime = System.currentTimeMillis();
+        DiagramFiles partial = drawNad(network, nadParameters, voltageLevel -> drawn.contains(voltageLevel.getId()),
+                model.getName() + MODIFIED_DIR_SUFFIX);
+        NadSvgPatcher.Result result = NadSvgPatcher.patch(model.getSvgData(), model.getMetadata(),
+                partial.getSvgContent(), partial.getJsonContent(), affected, drawn);
+        log.info("Redrew {} of {} voltage levels after removing {} in {} ms", drawn.size(),
+                network.getVoltageLevelCount(), equipmentId, System.currentTimeMillis() - startTime);
+        return result;
+    }
 
     /**
-     * Retrieves a voltage level or throws an exception if not found
+     * Applies modifications in order to a loaded network.
+     * Callers discard the network if this fails, so either all of them are applied or none.
+     *
+     * @throws IllegalArgumentException if a modification fails, naming its position in the list
      */
-    private VoltageLevel getVoltageLevelOrThrow(Network network, String voltageLevelId)
-            throws IOException {
-        VoltageLevel voltageLevel = network.getVoltageLevel(voltageLevelId);
-        if (voltageLevel == null) {
-            throw new IOException("Voltage level not found: " + voltageLevelId);
+    public void applyModifications(Network network, List<NetworkModification> modifications) {
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < modifications.size(); i++) {
+            NetworkModification modification = modifications.get(i);
+            try {
+                networkElementCreationService.apply(network, modification);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Modification " + i + " ("
+                        + modification.getClass().getSimpleName() + ") failed: " + e.getMessage(), e);
+            }
         }
-        return voltageLevel;
+        log.info("Applied {} modifications in {} ms", modifications.size(), System.currentTimeMillis() - startTime);
     }
 
     /**
-     * Retrieves a substation or throws an exception if not found
+     * Loads a private, modifiable copy of the network a stored diagram was generated from
      */
-    private Substation getSubstationOrThrow(Network network, String substationId)
-            throws IOException {
-        Substation substation = network.getSubstation(substationId);
-        if (substation == null) {
-            throw new IOException("Substation not found: " + substationId);
-        }
-        return substation;
+    public Network loadNetworkForEditing(String diagramName) throws IOException {
+        return loadNetworkForModification(getStoredNetworkPath(diagramName).toString());
+    }
+
+    public Path getStoredNetworkPath(String diagramName) {
+        return fileHelper.getStorageDir().resolve(diagramName + ".zip");
     }
 
     /**
-     * Ensures a directory exists, creating it if necessary
+     * Redraws a modified network of a stored diagram
+     *
+     * @param nadParameters Parameters with the fixed layout of the diagram
+     * @return SVG and metadata of the redrawn diagram
      */
-    private void ensureDirectoryExists(Path directory) throws IOException {
-        if (!Files.exists(directory)) {
-            Files.createDirectories(directory);
-        }
+    public DiagramFiles redrawNad(Network network, NadParameters nadParameters, String diagramName) {
+        return drawNad(network, nadParameters, VoltageLevelFilter.NO_FILTER, diagramName + MODIFIED_DIR_SUFFIX);
     }
 
+    // ==================== HELPER METHODS ====================
+
     /**
-     * Writes JSON string to a file
+     * Computes the bus views of every voltage level once, right after loading.
+     * Cached networks are read by concurrent renders; the bus topology is otherwise computed
+     * lazily on first access, which would make those reads mutate shared state.
      */
-    private void writeJsonFile(String json, Path filePath) throws IOException {
-        Files.writeString(filePath, json);
-        log.debug("Wrote JSON file: {}", filePath);
+    private Network warmUpTopology(Network network) {
+        network.getVoltageLevelStream().forEach(vl -> {
+            vl.getBusBreakerView().getBuses().forEach(bus -> {
+            });
+            vl.getBusView().getBuses().forEach(bus -> {
+            });
+        });
+        return network;
     }
 
     /**
@@ -0,0 +1,93 @@
+package com.fraunhofer.sognoviz.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fraunhofer.sognoviz.entity.BlobRef;
+import com.powsybl.nad.NadParameters;
+import com.powsybl.nad.layout.FixedLayoutFactory;
+import com.powsybl.nad.layout.LayoutFactoryUtils;
+import com.powsybl.nad.svg.metadata.DiagramMetadata;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parsed metadata of stored diagrams, for modifications.
+ * The metadata of a diagram is parsed once into its layout and SVG parameters and the fixed layout
+ * factory that keeps node positions on redraw, and kept in a small LRU cache.
+ * Entries are keyed by the content hash of the metadata blob, which never changes, so saving new
+ * metadata simply leads to a new key and an entry can never be stale.
+ */
+@Slf4j
+@Service
+public class DiagramLayoutCache {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final BlobStore blobStore;
+    private final int maxEntries;
+
+    private final Map<String, Entry> entries;
+
+    public DiagramLayoutCache(BlobStore blobStore,
+                              @Value("${sognoviz.layout-cache.max-entries:32}") int maxEntries) {
+        this.blobStore = blobStore;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > DiagramLayoutCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns NAD parameters that redraw a diagram with its stored layout.
+     * The parameters are new on each call; the layout and SVG parameters and the layout factory are shared.
+     *
+     * @param metadata Blob of the metadata of the diagram, read on a cache miss only
+     */
+    public NadParameters getNadParameters(BlobRef metadata) throws IOException {
+        if (metadata == null || metadata.getHash() == null) {
+            throw new IOException("Diagram has no metadata");
+        }
+        Entry entry = getEntry(metadata);
+        return new NadParameters()
+                .setLayoutParameters(entry.metadata.getLayoutParameters())
+                .setSvgParameters(entry.metadata.getSvgParameters())
+                .setLayoutFactory(entry.layoutFactory);
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private Entry getEntry(BlobRef metadata) throws IOException {
+        synchronized (entries) {
+            Entry entry = entries.get(metadata.getHash());
+            if (entry != null) {
+                return entry;
+            }
+        }
+
+        // concurrent misses may parse the same blob twice, both results are equal
+        long startTime = System.currentTimeMillis();
+        String metadataJson = blobStore.read(metadata);
+        DiagramMetadata diagramMetadata = OBJECT_MAPPER.readValue(metadataJson, DiagramMetadata.class);
+        FixedLayoutFactory layoutFactory = LayoutFactoryUtils.create(
+                new ByteArrayInputStream(metadataJson.getBytes(StandardCharsets.UTF_8)));
+        Entry entry = new Entry(diagramMetadata, layoutFactory);
+        log.debug("Parsed layout {} in {} ms", metadata.getHash(), System.currentTimeMillis() - startTime);
+
+        synchronized (entries) {
+            entries.put(metadata.getHash(), entry);
+        }
+        return entry;
+    }
+
+    private record Entry(DiagramMetadata metadata, FixedLayoutFactory layoutFactory) {
+    }
+}
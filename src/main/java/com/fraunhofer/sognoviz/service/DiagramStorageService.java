@@ -1,17 +1,29 @@
 package com.fraunhofer.sognoviz.service;
 
+import com.fraunhofer.sognoviz.entity.BlobRef;
 import com.fraunhofer.sognoviz.entity.DiagramEntity;
+import com.fraunhofer.sognoviz.entity.DiagramOperationEntity;
 import com.fraunhofer.sognoviz.model.DiagramModel;
+import com.fraunhofer.sognoviz.model.DiagramPage;
+import com.fraunhofer.sognoviz.model.DiagramSummary;
+import com.fraunhofer.sognoviz.model.DiagramVersion;
+import com.fraunhofer.sognoviz.repository.DiagramOperationRepository;
 import com.fraunhofer.sognoviz.repository.DiagramRepository;
+import com.fraunhofer.sognoviz.util.ContentHash;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 public class DiagramStorageService {
@@ -19,53 +31,180 @@ public class DiagramStorageService {
     @Autowired
     private DiagramRepository diagramRepository;
 
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private DiagramOperationRepository diagramOperationRepository;
+
+    @Autowired
+    private NetworkSnapshotStore networkSnapshotStore;
+
     /**
-     * Save a new diagram or update existing one by name
+     * Save a new diagram or update the existing one with the same ID.
+     * A new diagram starts at revision 0 of its modification log; an existing one keeps its log, and
+     * the saved SVG and metadata stand for its latest revision.
      */
     @Transactional
-    public DiagramModel saveDiagram(DiagramModel diagram) {
-        DiagramEntity entity = diagramRepository.findByName(diagram.getId()).orElse(null);
+    public DiagramModel saveDiagram(DiagramModel diagram) throws IOException {
+        DiagramEntity entity = diagram.getId() == null
+                ? null
+                : diagramRepository.findById(diagram.getId()).orElse(null);
 
         if (entity == null) {
             entity = new DiagramEntity();
             entity.setId(diagram.getId());
             entity.setCreatedAt(LocalDateTime.now());
+            entity.setHeadRevision(0);
         }
+        return store(entity, diagram, getHeadRevision(entity));
+    }
 
-        entity.setName(diagram.getName());
-        entity.setSvgData(diagram.getSvgData());
-        entity.setMetadata(diagram.getMetadata());
-        entity.setDiagramType(diagram.getDiagramType());
+    /**
+     * Replace the name, type, SVG and metadata of an existing diagram
+     *
+     * @throws IllegalStateException if the diagram was modified since the revision the update is based on
+     */
+    @Transactional
+    public DiagramModel updateDiagram(DiagramModel diagram) throws IOException {
+        DiagramEntity entity = getEntityForUpdate(diagram.getId());
+        int head = getHeadRevision(entity);
+        // clients unaware of the log can still update diagrams that were never modified
+        int base = diagram.getRevision() != null ? diagram.getRevision() : 0;
+        if (base != head) {
+            throw new IllegalStateException("Diagram " + diagram.getId() + " is at revision " + head
+                    + ", the update is based on revision " + base);
+        }
+        return store(entity, diagram, head);
+    }
+
+    /**
+     * Appends entries to the modification log of a diagram and moves its head to the last of them.
+     * Only the entries are written; the stored SVG and metadata stay the drawing of an earlier
+     * revision until {@link #saveDrawing} replaces them.
+     *
+     * @param baseRevision Revision the entries were applied to
+     * @return The new latest revision
+     * @throws IllegalStateException if the log was appended to since {@code baseRevision}
+     */
+    @Transactional
+    public int saveRevision(String id, int baseRevision, List<DiagramOperationEntity> entries) {
+        DiagramEntity entity = getEntityForUpdate(id);
+        if (getHeadRevision(entity) != baseRevision) {
+            throw new IllegalStateException("Diagram " + id + " was modified concurrently");
+        }
+        try {
+            diagramOperationRepository.saveAll(entries);
+        } catch (DataIntegrityViolationException e) {
+            // a writer that did not lock the row took the same revision numbers
+            throw new IllegalStateException("Diagram " + id + " was modified concurrently", e);
+        }
+        entity.setDrawnRevision(getDrawnRevision(entity));
+        entity.setHeadRevision(baseRevision + entries.size());
         entity.setUpdatedAt(LocalDateTime.now());
-        DiagramEntity saved = diagramRepository.save(entity);
-        return convertToModel(saved);
+        diagramRepository.save(entity);
+        return entity.getHeadRevision();
+    }
+
+    /**
+     * Replaces the stored SVG and metadata of a diagram with the drawing of a revision, unless the
+     * stored drawing is of that revision or a later one already
+     *
+     * @return Whether the drawing was stored
+     */
+    @Transactional
+    public boolean saveDrawing(String id, int revision, String svgData, String metadata) throws IOException {
+        DiagramEntity entity = getEntityForUpdate(id);
+        if (revision <= getDrawnRevision(entity)) {
+            return false;
+        }
+        entity.setSvg(blobStore.put(svgData));
+        entity.setMetadata(blobStore.put(metadata));
+        entity.setDrawnRevision(revision);
+        diagramRepository.save(entity);
+        return true;
+    }
+
+    /**
+     * Latest revision of the modification log of a diagram, 0 if it was never modified
+     */
+    public int getHeadRevision(String id) {
+        return getHeadRevision(getEntity(id));
+    }
+
+    /**
+     * Revision the stored SVG and metadata of a diagram were drawn from
+     */
+    public int getDrawnRevision(String id) {
+        return getDrawnRevision(getEntity(id));
+    }
+
+    /**
+     * Ids of the diagrams whose stored drawing is behind their latest revision
+     */
+    public List<String> listStaleDrawings() {
+        return diagramRepository.findIdsWithStaleDrawing();
     }
 
     /**
      * Load diagram by ID
      */
-    public DiagramModel loadDiagram(String id) {
-        DiagramEntity entity = null;
+    public DiagramModel loadDiagram(String id) throws IOException {
+        return convertToModel(getEntity(id));
+    }
 
-        for (DiagramEntity e : diagramRepository.findAll()) {
-            if (e.getId().equals(id)) {
-                entity = e;
-                break;
-            }
-        }
+    /**
+     * ETag and modification time of a diagram, from its row only.
+     * The blob hashes stand in for the SVG and metadata content.
+     */
+    public DiagramVersion loadDiagramVersion(String id) {
+        DiagramEntity entity = getEntity(id);
+        String eTag = ContentHash.ofString(String.join("|",
+                entity.getId(),
+                entity.getName(),
+                entity.getDiagramType(),
+                String.valueOf(entity.getCreatedAt()),
+                String.valueOf(entity.getUpdatedAt()),
+                String.valueOf(entity.getDrawnRevision()),
+                blobHash(entity.getSvg()),
+                blobHash(entity.getMetadata())));
+        return new DiagramVersion(eTag, entity.getUpdatedAt());
+    }
 
-        if (entity == null) {
-            throw new RuntimeException("Diagram not found with id: " + id);
-        }
+    /**
+     * Load only the metadata JSON of a diagram
+     */
+    public String loadDiagramMetadata(String id) throws IOException {
+        return blobStore.read(getMetadataRef(id));
+    }
 
-        return convertToModel(entity);
+    /**
+     * Blob store reference of the SVG of a diagram
+     */
+    public BlobRef getSvgRef(String id) {
+        return getEntity(id).getSvg();
+    }
+
+    /**
+     * Blob store reference of the metadata of a diagram
+     */
+    public BlobRef getMetadataRef(String id) {
+        return getEntity(id).getMetadata();
+    }
+
+    /**
+     * Load diagram by ID without its SVG and metadata
+     */
+    public DiagramSummary loadDiagramSummary(String id) {
+        return diagramRepository.findSummaryById(id)
+                .orElseThrow(() -> new RuntimeException("Diagram not found with id: " + id));
     }
 
 
     /**
      * Load diagram by name
      */
-    public DiagramModel loadDiagramByName(String name) {
+    public DiagramModel loadDiagramByName(String name) throws IOException {
         DiagramEntity entity = diagramRepository.findByName(name)
                 .orElseThrow(() -> new RuntimeException("Diagram not found with name: " + name));
         return convertToModel(entity);
@@ -74,10 +213,51 @@ public class DiagramStorageService {
     /**
      * List all diagrams
      */
-    public List<DiagramModel> listAllDiagrams() {
-        return diagramRepository.findAll().stream()
-                .map(this::convertToModel)
-                .collect(Collectors.toList());
+    public List<DiagramModel> listAllDiagrams() throws IOException {
+        List<DiagramModel> diagrams = new ArrayList<>();
+        for (DiagramEntity entity : diagramRepository.findAll()) {
+            diagrams.add(convertToModel(entity));
+        }
+        return diagrams;
+    }
+
+    /**
+     * List all diagrams without their SVG and metadata
+     */
+    public List<DiagramSummary> listDiagramSummaries() {
+        return diagramRepository.findAllSummaries();
+    }
+
+    /**
+     * List diagram summaries page by page, most recently updated first.
+     * Pages are addressed by the position of their last row instead of an offset,
+     * so every page costs the same index range scan and rows do not shift between pages.
+     *
+     * @param diagramType Only list diagrams of this type, or all if null
+     * @param cursor      nextCursor of the previous page, or null for the first page
+     * @param limit       Maximum number of rows
+     */
+    public DiagramPage listDiagramPage(String diagramType, String cursor, int limit) {
+        // one extra row tells whether another page follows
+        Limit fetch = Limit.of(limit + 1);
+        List<DiagramSummary> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = diagramType == null
+                    ? diagramRepository.findSummaryPage(fetch)
+                    : diagramRepository.findSummaryPageByType(diagramType, fetch);
+        } else {
+            Cursor position = Cursor.decode(cursor);
+            rows = diagramType == null
+                    ? diagramRepository.findSummaryPageAfter(position.updatedAt(), position.id(), fetch)
+                    : diagramRepository.findSummaryPageByTypeAfter(diagramType, position.updatedAt(), position.id(), fetch);
+        }
+
+        if (rows.size() <= limit) {
+            return new DiagramPage(rows, null);
+        }
+        List<DiagramSummary> items = rows.subList(0, limit);
+        DiagramSummary last = items.get(limit - 1);
+        return new DiagramPage(List.copyOf(items), new Cursor(last.getUpdatedAt(), last.getId()).encode());
     }
 
     /**
@@ -85,10 +265,11 @@ public class DiagramStorageService {
      */
     @Transactional
     public void deleteDiagram(String id) {
-        if (!diagramRepository.existsByName(id)) {
+        if (!diagramRepository.existsById(id)) {
             throw new RuntimeException("Diagram not found with id: " + id);
         }
-        diagramRepository.deleteByName(id);
+        diagramRepository.deleteById(id);
+        deleteModificationLog(id);
     }
 
     /**
@@ -99,9 +280,24 @@ public class DiagramStorageService {
         if (!diagramRepository.existsByName(name)) {
             throw new RuntimeException("Diagram not found with name: " + name);
         }
+        diagramRepository.findByName(name).ifPresent(entity -> deleteModificationLog(entity.getId()));
         diagramRepository.deleteByName(name);
     }
 
+    /**
+     * Drops the modification log of a diagram, and its network snapshots once the deletion is committed
+     */
+    private void deleteModificationLog(String id) {
+        diagramOperationRepository.deleteByDiagramId(id);
+        // files are not rolled back with the transaction
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                networkSnapshotStore.deleteRevisions(id);
+            }
+        });
+    }
+
     /**
      * Check if diagram exists by name
      */
@@ -109,21 +305,98 @@ public class DiagramStorageService {
         return diagramRepository.existsByName(name);
     }
 
+    /**
+     * Position of a row in the (updatedAt, id) order, encoded as an opaque URL safe token
+     */
+    private record Cursor(LocalDateTime updatedAt, String id) {
+
+        private String encode() {
+            String raw = updatedAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static Cursor decode(String token) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                return new Cursor(LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + token, e);
+            }
+        }
+    }
+
+    private static String blobHash(BlobRef ref) {
+        return ref == null ? "" : String.valueOf(ref.getHash());
+    }
+
+    private DiagramEntity getEntity(String id) {
+        return diagramRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Diagram not found with id: " + id));
+    }
+
+    private DiagramEntity getEntityForUpdate(String id) {
+        return diagramRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new RuntimeException("Diagram not found with id: " + id));
+    }
+
+    private int getHeadRevision(DiagramEntity entity) {
+        // rows stored before the column existed
+        return entity.getHeadRevision() != null
+                ? entity.getHeadRevision()
+                : diagramOperationRepository.findHeadRevision(entity.getId()).orElse(0);
+    }
+
+    private int getDrawnRevision(DiagramEntity entity) {
+        // rows stored before the column existed were drawn at every revision
+        return entity.getDrawnRevision() != null ? entity.getDrawnRevision() : getHeadRevision(entity);
+    }
 
+    /**
+     * Revision of the stored drawing sent to clients, null on rows stored before revisions were
+     * recorded, whose drawing may hold modifications missing from the log
+     */
+    private Integer getModelRevision(DiagramEntity entity) {
+        return entity.getHeadRevision() != null ? getDrawnRevision(entity) : null;
+    }
 
+    /**
+     * Write the fields of a diagram to its row, with the SVG and metadata in the blob store as the
+     * drawing of a revision. Blobs of a replaced drawing are left to the {@link BlobCollector}.
+     */
+    private DiagramModel store(DiagramEntity entity, DiagramModel diagram, int revision) throws IOException {
+        entity.setName(diagram.getName());
+        entity.setSvg(blobStore.put(diagram.getSvgData()));
+        entity.setMetadata(blobStore.put(diagram.getMetadata()));
+        entity.setDiagramType(diagram.getDiagramType());
+        entity.setDrawnRevision(revision);
+        entity.setUpdatedAt(LocalDateTime.now());
+        DiagramEntity saved = diagramRepository.save(entity);
+        return new DiagramModel(
+                saved.getId(),
+                saved.getName(),
+                diagram.getSvgData(),
+                diagram.getMetadata(),
+                saved.getDiagramType(),
+                saved.getCreatedAt(),
+                saved.getUpdatedAt(),
+                getModelRevision(saved)
+        );
+    }
 
     /**
-     * Convert entity to model
+     * Convert entity to model, reading SVG and metadata from the blob store
      */
-    private DiagramModel convertToModel(DiagramEntity entity) {
+    private DiagramModel convertToModel(DiagramEntity entity) throws IOException {
         return new DiagramModel(
                 entity.getId(),
                 entity.getName(),
-                entity.getSvgData(),
-                entity.getMetadata(),
+                blobStore.read(entity.getSvg()),
+                blobStore.read(entity.getMetadata()),
                 entity.getDiagramType(),
                 entity.getCreatedAt(),
-                entity.getUpdatedAt()
+                entity.getUpdatedAt(),
+                getModelRevision(entity)
         );
     }
 }
\ No newline at end of file
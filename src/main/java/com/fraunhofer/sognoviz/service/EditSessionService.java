@@ -0,0 +1,327 @@
+package com.fraunhofer.sognoviz.service;
+
+import com.fraunhofer.sognoviz.model.DiagramFiles;
+import com.fraunhofer.sognoviz.model.DiagramModel;
+import com.fraunhofer.sognoviz.model.DiagramSummary;
+import com.fraunhofer.sognoviz.model.EditSession;
+import com.fraunhofer.sognoviz.model.NetworkModification;
+import com.fraunhofer.sognoviz.util.DiagramFileHelper;
+import com.powsybl.iidm.network.Network;
+import com.powsybl.iidm.network.VariantManager;
+import com.powsybl.nad.NadParameters;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live editing sessions of stored diagrams.
+ * A session loads the network of a diagram once and keeps it in memory; edits are applied to it
+ * one after the other, each in a new IIDM variant, and only the NAD is redrawn per edit.
+ * Undo and redo switch the working variant instead of reloading the network.
+ * Sessions start at the latest revision of the diagram's modification log, and saving appends the
+ * modifications of the session to it.
+ * <p>
+ * IIDM variants hold the state of a network (switch positions, terminal connections, set points),
+ * not its structure, so sessions support edits of that state only: equipment is taken out of
+ * service by disconnecting its terminals instead of being removed.
+ * <p>
+ * Sessions idle for longer than the timeout are closed by a periodic purge, and the estimated heap
+ * of all open sessions, including the variants of their histories, is bounded; opening a session or
+ * adding a step beyond the budget closes the least recently used other sessions.
+ */
+@Slf4j
+@Service
+public class EditSessionService {
+
+    private static final String VARIANT_PREFIX = "edit-";
+
+    /**
+     * A variant holds the state of every element of the network (set points, flows, connections and
+     * switch positions) in per variant arrays; a conservative estimate per element
+     */
+    private static final long VARIANT_BYTES_PER_IDENTIFIABLE = 256;
+
+    private final DiagramGeneratorService diagramGeneratorService;
+    private final DiagramStorageService diagramStorageService;
+    private final DiagramLayoutCache diagramLayoutCache;
+    private final ModificationLogService modificationLogService;
+    private final NetworkElementCreationService networkElementCreationService;
+    private final DiagramFileHelper fileHelper;
+    private final Duration idleTimeout;
+    private final long maxEstimatedBytes;
+    private final int maxHistory;
+
+    private final Map<String, EditSession> sessions = new LinkedHashMap<>();
+    private final AtomicLong variantCount = new AtomicLong();
+
+    public EditSessionService(DiagramGeneratorService diagramGeneratorService,
+                              DiagramStorageService diagramStorageService,
+                              DiagramLayoutCache diagramLayoutCache,
+                              ModificationLogService modificationLogService,
+                              NetworkElementCreationService networkElementCreationService,
+                              DiagramFileHelper fileHelper,
+                              @Value("${sognoviz.edit-sessions.idle-timeout-minutes:30}") long idleTimeoutMinutes,
+                              @Value("${sognoviz.edit-sessions.max-heap-mb:0}") long maxHeapMb,
+                              @Value("${sognoviz.edit-sessions.max-history:50}") int maxHistory) {
+        this.diagramGeneratorService = diagramGeneratorService;
+        this.diagramStorageService = diagramStorageService;
+        this.diagramLayoutCache = diagramLayoutCache;
+        this.modificationLogService = modificationLogService;
+        this.networkElementCreationService = networkElementCreationService;
+        this.fileHelper = fileHelper;
+        this.idleTimeout = Duration.ofMinutes(idleTimeoutMinutes);
+        this.maxEstimatedBytes = maxHeapMb > 0
+                ? maxHeapMb * 1024 * 1024
+                : Runtime.getRuntime().maxMemory() / 4;
+        this.maxHistory = maxHistory;
+    }
+
+    /**
+     * Opens a session on a stored diagram, loading a private copy of its network
+     *
+     * @throws IllegalStateException if the network alone exceeds the session memory budget
+     */
+    public EditSession open(String diagramId) throws IOException {
+        DiagramSummary diagram = diagramStorageService.loadDiagramSummary(diagramId);
+        long size = NetworkCache.estimateHeapBytes(diagramGeneratorService.getStoredNetworkPath(diagram.getName()));
+        if (size > maxEstimatedBytes) {
+            throw new IllegalStateException("Network of diagram " + diagramId + " (~" + size / (1024 * 1024)
+                    + " MB) exceeds the edit session memory budget");
+        }
+
+        long startTime = System.currentTimeMillis();
+        NadParameters nadParameters = diagramLayoutCache.getNadParameters(
+                diagramStorageService.getMetadataRef(diagramId));
+        int revision = modificationLogService.getHeadRevision(diagramId);
+        Network network = modificationLogService.loadNetwork(diagramId, diagram.getName(), revision);
+
+        // the initial variant cannot be removed, so the history starts with a copy of it
+        String variantId = nextVariantId();
+        network.getVariantManager().cloneVariant(VariantManager.INITIAL_VARIANT_ID, variantId);
+        network.getVariantManager().setWorkingVariant(variantId);
+
+        long variantBytes = network.getIdentifiables().size() * VARIANT_BYTES_PER_IDENTIFIABLE;
+        EditSession session = new EditSession(UUID.randomUUID().toString(), diagramId, diagram.getName(),
+                diagram.getDiagramType(), revision, network, nadParameters, size, variantBytes);
+        session.getVariants().add(variantId);
+        updateEstimate(session);
+
+        synchronized (sessions) {
+            evictFor(session.getEstimatedBytes(), null);
+            sessions.put(session.getId(), session);
+        }
+        log.info("Opened edit session {} on diagram {} in {} ms", session.getId(), diagramId,
+                System.currentTimeMillis() - startTime);
+        return session;
+    }
+
+    public Optional<EditSession> getSession(String sessionId) {
+        synchronized (sessions) {
+            return Optional.ofNullable(sessions.get(sessionId));
+        }
+    }
+
+    /**
+     * Disconnects all terminals of a connectable, taking it out of service
+     */
+    public DiagramFiles disconnect(String sessionId, String equipmentId) {
+        return edit(sessionId, new NetworkModification.Disconnect(equipmentId));
+    }
+
+    /**
+     * Connects all terminals of a connectable
+     */
+    public DiagramFiles connect(String sessionId, String equipmentId) {
+        return edit(sessionId, new NetworkModification.Connect(equipmentId));
+    }
+
+    public DiagramFiles setSwitchOpen(String sessionId, String switchId, boolean open) {
+        return edit(sessionId, new NetworkModification.SetSwitch(switchId, open));
+    }
+
+    /**
+     * Applies an edit in a new variant cloned from the working one and redraws the diagram.
+     * Edits that were undone are dropped; an edit that fails leaves the session unchanged.
+     * Variants do not cover structural changes, so only modifications of the network state can be undone.
+     */
+    public DiagramFiles edit(String sessionId, NetworkModification modification) {
+        EditSession session = getActiveSession(sessionId);
+        synchronized (session) {
+            VariantManager variantManager = session.getNetwork().getVariantManager();
+            List<String> variants = session.getVariants();
+            String current = variants.get(session.getPosition());
+
+            String variantId = nextVariantId();
+            variantManager.cloneVariant(current, variantId);
+            variantManager.setWorkingVariant(variantId);
+            try {
+                networkElementCreationService.apply(session.getNetwork(), modification);
+            } catch (RuntimeException e) {
+                variantManager.setWorkingVariant(current);
+                variantManager.removeVariant(variantId);
+                throw e;
+            }
+
+            List<NetworkModification> operations = session.getOperations();
+            operations.subList(session.getUnsavedSteps(), operations.size()).clear();
+            operations.add(modification);
+            while (variants.size() > session.getPosition() + 1) {
+                variantManager.removeVariant(variants.remove(variants.size() - 1));
+            }
+            variants.add(variantId);
+            if (variants.size() > maxHistory) {
+                variantManager.removeVariant(variants.remove(0));
+            }
+            session.setPosition(variants.size() - 1);
+            updateEstimate(session);
+            synchronized (sessions) {
+                evictFor(0, session);
+            }
+            return redraw(session);
+        }
+    }
+
+    public DiagramFiles undo(String sessionId) {
+        EditSession session = getActiveSession(sessionId);
+        synchronized (session) {
+            if (!session.isUndoable()) {
+                throw new IllegalArgumentException("Nothing to undo in session " + sessionId);
+            }
+            return moveTo(session, session.getPosition() - 1);
+        }
+    }
+
+    public DiagramFiles redo(String sessionId) {
+        EditSession session = getActiveSession(sessionId);
+        synchronized (session) {
+            if (!session.isRedoable()) {
+                throw new IllegalArgumentException("Nothing to redo in session " + sessionId);
+            }
+            return moveTo(session, session.getPosition() + 1);
+        }
+    }
+
+    /**
+     * Appends the steps up to the working variant to the diagram's modification log. The stored SVG
+     * and metadata of the diagram are redrawn when it is next read. The saved steps can no longer be undone.
+     *
+     * @return The diagram drawn at the saved revision
+     * @throws IllegalStateException if the diagram was modified outside the session since it was opened
+     */
+    public DiagramModel save(String sessionId) throws IOException {
+        EditSession session = getActiveSession(sessionId);
+        synchronized (session) {
+            DiagramFiles drawing = session.getDrawing() != null ? session.getDrawing() : redraw(session);
+
+            List<NetworkModification> steps = session.getOperations().subList(0, session.getUnsavedSteps());
+            int revision = modificationLogService.append(session.getDiagramId(), session.getSavedRevision(),
+                    List.copyOf(steps), session.getNetwork());
+            session.setSavedRevision(revision);
+            steps.clear();
+
+            VariantManager variantManager = session.getNetwork().getVariantManager();
+            while (session.getPosition() > 0) {
+                variantManager.removeVariant(session.getVariants().remove(0));
+                session.setPosition(session.getPosition() - 1);
+            }
+            updateEstimate(session);
+            DiagramModel saved = fileHelper.createDiagramModel(session.getDiagramId(), session.getDiagramName(),
+                    drawing, session.getDiagramType());
+            saved.setRevision(revision);
+            return saved;
+        }
+    }
+
+    public boolean close(String sessionId) {
+        synchronized (sessions) {
+            if (sessions.remove(sessionId) == null) {
+                return false;
+            }
+        }
+        log.info("Closed edit session {}", sessionId);
+        return true;
+    }
+
+    /**
+     * Closes the sessions that were idle for longer than the timeout
+     */
+    @Scheduled(fixedDelayString = "${sognoviz.edit-sessions.purge-interval-seconds:60}", timeUnit = TimeUnit.SECONDS)
+    public void purgeIdleSessions() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(idleTimeout);
+        synchronized (sessions) {
+            sessions.values().removeIf(session -> {
+                if (session.getLastAccessedAt().isBefore(cutoff)) {
+                    log.info("Closed edit session {} after {} idle", session.getId(), idleTimeout);
+                    return true;
+                }
+                return false;
+            });
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private EditSession getActiveSession(String sessionId) {
+        EditSession session = getSession(sessionId)
+                .orElseThrow(() -> new RuntimeException("Edit session not found: " + sessionId));
+        session.setLastAccessedAt(LocalDateTime.now());
+        return session;
+    }
+
+    private DiagramFiles moveTo(EditSession session, int position) {
+        session.getNetwork().getVariantManager().setWorkingVariant(session.getVariants().get(position));
+        session.setPosition(position);
+        return redraw(session);
+    }
+
+    private DiagramFiles redraw(EditSession session) {
+        long startTime = System.currentTimeMillis();
+        DiagramFiles drawing = diagramGeneratorService.redrawNad(
+                session.getNetwork(), session.getNadParameters(), session.getDiagramName());
+        session.setDrawing(drawing);
+        log.debug("Redrew session {} at step {} in {} ms", session.getId(), session.getPosition(),
+                System.currentTimeMillis() - startTime);
+        return drawing;
+    }
+
+    private String nextVariantId() {
+        return VARIANT_PREFIX + variantCount.incrementAndGet();
+    }
+
+    private static void updateEstimate(EditSession session) {
+        session.setEstimatedBytes(session.getNetworkBytes()
+                + session.getVariantBytes() * session.getVariants().size());
+    }
+
+    /**
+     * Closes the least recently used sessions other than {@code keep} until all open sessions and
+     * the given additional bytes fit the budget
+     */
+    private void evictFor(long size, EditSession keep) {
+        long total = size + sessions.values().stream().mapToLong(EditSession::getEstimatedBytes).sum();
+        while (total > maxEstimatedBytes) {
+            Optional<EditSession> eldest = sessions.values().stream()
+                    .filter(session -> session != keep)
+                    .min(Comparator.comparing(EditSession::getLastAccessedAt));
+            if (eldest.isEmpty()) {
+                return;
+            }
+            sessions.remove(eldest.get().getId());
+            total -= eldest.get().getEstimatedBytes();
+            log.info("Closed edit session {} to stay within the memory budget", eldest.get().getId());
+        }
+    }
+}
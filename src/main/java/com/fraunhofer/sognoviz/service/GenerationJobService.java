@@ -0,0 +1,113 @@
+package com.fraunhofer.sognoviz.service;
+
+import com.fraunhofer.sognoviz.model.GenerationJob;
+import com.fraunhofer.sognoviz.model.StageTimings;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs diagram generations asynchronously on a dedicated, bounded worker pool.
+ * The number of workers caps concurrent heavy imports; when the queue is full,
+ * submissions are rejected instead of piling up. Finished jobs are dropped by a periodic purge
+ * once they are older than the retention period.
+ */
+@Slf4j
+@Service
+public class GenerationJobService {
+
+    @FunctionalInterface
+    public interface JobWork {
+        Object run(StageTimings timings) throws Exception;
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Duration retention;
+    private final Map<String, GenerationJob> jobs = new ConcurrentHashMap<>();
+
+    public GenerationJobService(
+            @Value("${sognoviz.jobs.workers:2}") int workers,
+            @Value("${sognoviz.jobs.queue-capacity:16}") int queueCapacity,
+            @Value("${sognoviz.jobs.retention-minutes:60}") long retentionMinutes) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                workers,
+                workers,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "generation-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.retention = Duration.ofMinutes(retentionMinutes);
+    }
+
+    /**
+     * Queues a generation job
+     *
+     * @param diagramType Diagram type, for status reporting
+     * @param work Generation work; its return value becomes the job result
+     * @return The queued job
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public GenerationJob submit(String diagramType, JobWork work) {
+        GenerationJob job = new GenerationJob(UUID.randomUUID().toString(), diagramType);
+        jobs.put(job.getId(), job);
+
+        try {
+            executor.execute(() -> runJob(job, work));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            log.warn("Rejected {} job, queue is full", diagramType);
+            throw e;
+        }
+
+        log.info("Queued {} job {}", diagramType, job.getId());
+        return job;
+    }
+
+    public Optional<GenerationJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    private void runJob(GenerationJob job, JobWork work) {
+        job.markRunning();
+        log.info("Running {} job {}", job.getDiagramType(), job.getId());
+        try {
+            Object result = work.run(job.getTimings());
+            job.markDone(result);
+            log.info("Finished {} job {} with stages {}", job.getDiagramType(), job.getId(), job.getStages());
+        } catch (Exception e) {
+            log.error("Failed {} job {}", job.getDiagramType(), job.getId(), e);
+            job.markFailed(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Drops finished jobs (and their results) once they are older than the retention period
+     */
+    @Scheduled(fixedDelayString = "${sognoviz.jobs.purge-interval-seconds:60}", timeUnit = TimeUnit.SECONDS)
+    public void purgeExpiredJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -1,15 +1,21 @@
 package com.fraunhofer.sognoviz.service;
 
+import com.fraunhofer.sognoviz.entity.BlobRef;
 import com.fraunhofer.sognoviz.entity.NetworkMapEntity;
+import com.fraunhofer.sognoviz.model.DiagramSummary;
+import com.fraunhofer.sognoviz.model.MapDiagramChangedEvent;
 import com.fraunhofer.sognoviz.model.NetworkMapModel;
 import com.fraunhofer.sognoviz.repository.MapDiagramRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 
 @Service
 public class MapDiagramStorageService {
@@ -17,57 +23,80 @@ public class MapDiagramStorageService {
     @Autowired
     private MapDiagramRepository mapDiagramRepository;
 
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
-     * Save a new map diagram or update existing one by name
+     * Save a new map diagram or update the existing one with the same ID
      */
     @Transactional
-    public NetworkMapModel saveMapDiagram(NetworkMapModel mapDiagram) {
-        NetworkMapEntity entity = mapDiagramRepository.findByName(mapDiagram.getId()).orElse(null);
+    public NetworkMapModel saveMapDiagram(NetworkMapModel mapDiagram) throws IOException {
+        NetworkMapEntity entity = mapDiagram.getId() == null
+                ? null
+                : mapDiagramRepository.findById(mapDiagram.getId()).orElse(null);
 
         if (entity == null) {
             entity = new NetworkMapEntity();
             entity.setId(mapDiagram.getId());
             entity.setCreatedAt(LocalDateTime.now());
+        } else {
+            eventPublisher.publishEvent(new MapDiagramChangedEvent(entity.getId()));
         }
 
         entity.setName(mapDiagram.getName());
-        entity.setSvg(mapDiagram.getSvg());
-        entity.setMetadata(mapDiagram.getMetadata());
-        entity.setLine(mapDiagram.getLine());
-        entity.setLinePosition(mapDiagram.getLinePosition());
-        entity.setSubstation(mapDiagram.getSubstation());
-        entity.setSubstationPosition(mapDiagram.getSubstationPosition());
+        entity.setSvg(blobStore.put(mapDiagram.getSvg()));
+        entity.setMetadata(blobStore.put(mapDiagram.getMetadata()));
+        entity.setLine(blobStore.put(mapDiagram.getLine()));
+        entity.setLinePosition(blobStore.put(mapDiagram.getLinePosition()));
+        entity.setSubstation(blobStore.put(mapDiagram.getSubstation()));
+        entity.setSubstationPosition(blobStore.put(mapDiagram.getSubstationPosition()));
         entity.setDiagramType(mapDiagram.getDiagramType());
         entity.setUpdatedAt(LocalDateTime.now());
 
         NetworkMapEntity saved = mapDiagramRepository.save(entity);
-        return convertToModel(saved);
+        return mapDiagram.toBuilder()
+                .id(saved.getId())
+                .createdAt(saved.getCreatedAt())
+                .updatedAt(saved.getUpdatedAt())
+                .build();
     }
 
     /**
      * Load map diagram by ID
      */
-    public NetworkMapModel loadMapDiagram(String id) {
-        NetworkMapEntity entity = null;
-
-        for (NetworkMapEntity e : mapDiagramRepository.findAll()) {
-            if (e.getId().equals(id)) {
-                entity = e;
-                break;
-            }
-        }
+    public NetworkMapModel loadMapDiagram(String id) throws IOException {
+        return convertToModel(getEntity(id));
+    }
 
-        if (entity == null) {
-            throw new RuntimeException("Map diagram not found with id: " + id);
-        }
+    /**
+     * Reads a single stored artifact of a map, or null if the map has none
+     */
+    public String readMapArtifact(String id, MapArtifact artifact) throws IOException {
+        return blobStore.read(getMapArtifactRef(id, artifact));
+    }
 
-        return convertToModel(entity);
+    /**
+     * Blob store reference of a single stored artifact of a map, or null if the map has none
+     */
+    public BlobRef getMapArtifactRef(String id, MapArtifact artifact) {
+        return artifact.ref(getEntity(id));
+    }
+
+    /**
+     * Load map diagram by ID without its SVG and JSON exports
+     */
+    public DiagramSummary loadMapDiagramSummary(String id) {
+        return mapDiagramRepository.findSummaryById(id)
+                .orElseThrow(() -> new RuntimeException("Map diagram not found with id: " + id));
     }
 
     /**
      * Load map diagram by name
      */
-    public NetworkMapModel loadMapDiagramByName(String name) {
+    public NetworkMapModel loadMapDiagramByName(String name) throws IOException {
         NetworkMapEntity entity = mapDiagramRepository.findByName(name)
                 .orElseThrow(() -> new RuntimeException("Map diagram not found with name: " + name));
         return convertToModel(entity);
@@ -76,10 +105,19 @@ public class MapDiagramStorageService {
     /**
      * List all map diagrams
      */
-    public List<NetworkMapModel> listAllMapDiagrams() {
-        return mapDiagramRepository.findAll().stream()
-                .map(this::convertToModel)
-                .collect(Collectors.toList());
+    public List<NetworkMapModel> listAllMapDiagrams() throws IOException {
+        List<NetworkMapModel> maps = new ArrayList<>();
+        for (NetworkMapEntity entity : mapDiagramRepository.findAll()) {
+            maps.add(convertToModel(entity));
+        }
+        return maps;
+    }
+
+    /**
+     * List all map diagrams without their SVG and JSON exports
+     */
+    public List<DiagramSummary> listMapDiagramSummaries() {
+        return mapDiagramRepository.findAllSummaries();
     }
 
     /**
@@ -87,10 +125,11 @@ public class MapDiagramStorageService {
      */
     @Transactional
     public void deleteMapDiagram(String id) {
-        if (!mapDiagramRepository.existsByName(id)) {
+        if (!mapDiagramRepository.existsById(id)) {
             throw new RuntimeException("Map diagram not found with id: " + id);
         }
-        mapDiagramRepository.deleteByName(id);
+        mapDiagramRepository.deleteById(id);
+        eventPublisher.publishEvent(new MapDiagramChangedEvent(id));
     }
 
     /**
@@ -101,6 +140,8 @@ public class MapDiagramStorageService {
         if (!mapDiagramRepository.existsByName(name)) {
             throw new RuntimeException("Map diagram not found with name: " + name);
         }
+        mapDiagramRepository.findByName(name)
+                .ifPresent(entity -> eventPublisher.publishEvent(new MapDiagramChangedEvent(entity.getId())));
         mapDiagramRepository.deleteByName(name);
     }
 
@@ -112,18 +153,45 @@ public class MapDiagramStorageService {
     }
 
     /**
-     * Convert entity to model
+     * Stored artifacts of a network map
+     */
+    public enum MapArtifact {
+        SVG(NetworkMapEntity::getSvg),
+        METADATA(NetworkMapEntity::getMetadata),
+        LINES(NetworkMapEntity::getLine),
+        LINE_POSITIONS(NetworkMapEntity::getLinePosition),
+        SUBSTATIONS(NetworkMapEntity::getSubstation),
+        SUBSTATION_POSITIONS(NetworkMapEntity::getSubstationPosition);
+
+        private final Function<NetworkMapEntity, BlobRef> accessor;
+
+        MapArtifact(Function<NetworkMapEntity, BlobRef> accessor) {
+            this.accessor = accessor;
+        }
+
+        private BlobRef ref(NetworkMapEntity entity) {
+            return accessor.apply(entity);
+        }
+    }
+
+    private NetworkMapEntity getEntity(String id) {
+        return mapDiagramRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Map diagram not found with id: " + id));
+    }
+
+    /**
+     * Convert entity to model, reading all artifacts from the blob store
      */
-    private NetworkMapModel convertToModel(NetworkMapEntity entity) {
+    private NetworkMapModel convertToModel(NetworkMapEntity entity) throws IOException {
         return NetworkMapModel.builder()
                 .id(entity.getId())
                 .name(entity.getName())
-                .svg(entity.getSvg())
-                .metadata(entity.getMetadata())
-                .line(entity.getLine())
-                .linePosition(entity.getLinePosition())
-                .substation(entity.getSubstation())
-                .substationPosition(entity.getSubstationPosition())
+                .svg(blobStore.read(entity.getSvg()))
+                .metadata(blobStore.read(entity.getMetadata()))
+                .line(blobStore.read(entity.getLine()))
+                .linePosition(blobStore.read(entity.getLinePosition()))
+                .substation(blobStore.read(entity.getSubstation()))
+                .substationPosition(blobStore.read(entity.getSubstationPosition()))
                 .diagramType(entity.getDiagramType())
                 .createdAt(entity.getCreatedAt())
                 .updatedAt(entity.getUpdatedAt())
@@ -0,0 +1,230 @@
+package com.fraunhofer.sognoviz.service;
+
+import com.fraunhofer.sognoviz.model.MapDiagramChangedEvent;
+import com.fraunhofer.sognoviz.model.MapGeometry;
+import com.fraunhofer.sognoviz.service.MapDiagramStorageService.MapArtifact;
+import com.fraunhofer.sognoviz.util.GeometryClipper;
+import com.fraunhofer.sognoviz.util.GeometryCodec;
+import com.fraunhofer.sognoviz.util.GeometrySimplifier;
+import com.fraunhofer.sognoviz.util.SpatialIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parsed map geometry per stored network map.
+ * The position exports of a map are parsed once and kept in a small LRU cache, together with
+ * the derived forms served by the map data endpoints. Simplified line geometry is precomputed
+ * for a fixed set of zoom levels; a request is served from the coarsest level that is still
+ * at least as detailed as the requested tolerance. An STR packed R-tree over substation coordinates
+ * and line bounding boxes answers viewport queries without scanning the whole network.
+ */
+@Slf4j
+@Service
+public class MapGeometryService {
+
+    /**
+     * Zoom levels with precomputed simplified geometry, coarsest last
+     */
+    private static final int[] SIMPLIFIED_ZOOM_LEVELS = {12, 10, 8, 6, 4};
+
+    /**
+     * Tolerance of each level in degrees; level 0 is the full geometry
+     */
+    private static final double[] LEVEL_TOLERANCES = createLevelTolerances();
+
+    private final MapDiagramStorageService mapDiagramStorageService;
+    private final int maxEntries;
+
+    private final Map<String, Entry> entries;
+
+    public MapGeometryService(MapDiagramStorageService mapDiagramStorageService,
+                              @Value("${sognoviz.map-geometry.max-entries:16}") int maxEntries) {
+        this.mapDiagramStorageService = mapDiagramStorageService;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > MapGeometryService.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the full geometry of a stored map, parsing its position exports on first use
+     */
+    public MapGeometry getGeometry(String mapId) throws IOException {
+        return getGeometry(mapId, 0);
+    }
+
+    /**
+     * Returns the geometry of a stored map simplified for the given tolerance in degrees
+     */
+    public MapGeometry getGeometry(String mapId, double tolerance) throws IOException {
+        return getEntry(mapId).levels[levelFor(tolerance)];
+    }
+
+    /**
+     * Returns the geometry of a stored map in the {@link GeometryCodec} binary form,
+     * simplified for the given tolerance in degrees
+     */
+    public byte[] getEncodedGeometry(String mapId, double tolerance) throws IOException {
+        Entry entry = getEntry(mapId);
+        int level = levelFor(tolerance);
+        synchronized (entry) {
+            if (entry.encoded[level] == null) {
+                entry.encoded[level] = GeometryCodec.encode(entry.levels[level]);
+            }
+            return entry.encoded[level];
+        }
+    }
+
+    /**
+     * Returns the substations and lines inside the bounds {minLat, minLon, maxLat, maxLon},
+     * with line geometry simplified for the given tolerance. Lines are returned whole, in index order.
+     */
+    public MapGeometry query(String mapId, double[] bounds, double tolerance) throws IOException {
+        Entry entry = getEntry(mapId);
+        MapGeometry full = entry.levels[0];
+
+        int[] substations = entry.substationIndex.search(bounds[1], bounds[0], bounds[3], bounds[2]);
+        int[] lines = Arrays.stream(entry.lineIndex.search(bounds[1], bounds[0], bounds[3], bounds[2]))
+                .filter(line -> GeometryClipper.intersects(full, line, bounds))
+                .toArray();
+        Arrays.sort(substations);
+        Arrays.sort(lines);
+
+        return entry.levels[levelFor(tolerance)].subset(substations, lines);
+    }
+
+    /**
+     * Returns the tolerance of the precomputed level that serves the requested tolerance
+     */
+    public double getLevelTolerance(double tolerance) {
+        return LEVEL_TOLERANCES[levelFor(tolerance)];
+    }
+
+    /**
+     * Builds the geometry of a freshly generated map, so the first map data request does not pay for it
+     */
+    public void prepare(String mapId, String substationPositions, String linePositions) throws IOException {
+        Entry entry = createEntry(GeometryCodec.readJson(substationPositions, linePositions));
+        synchronized (entries) {
+            entries.put(mapId, entry);
+        }
+    }
+
+    /**
+     * Drops the cached geometry of a map once its replacement or deletion is committed
+     */
+    @TransactionalEventListener
+    public void onMapDiagramChanged(MapDiagramChangedEvent event) {
+        invalidate(event.mapId());
+    }
+
+    public void invalidate(String mapId) {
+        synchronized (entries) {
+            entries.remove(mapId);
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private Entry getEntry(String mapId) throws IOException {
+        synchronized (entries) {
+            Entry entry = entries.get(mapId);
+            if (entry != null) {
+                return entry;
+            }
+        }
+
+        long startTime = System.currentTimeMillis();
+        // only the two position artifacts are read from the blob store, not the whole map
+        String substationPositions = mapDiagramStorageService.readMapArtifact(mapId, MapArtifact.SUBSTATION_POSITIONS);
+        String linePositions = mapDiagramStorageService.readMapArtifact(mapId, MapArtifact.LINE_POSITIONS);
+        Entry entry = createEntry(GeometryCodec.readJson(substationPositions, linePositions));
+        log.info("Parsed geometry of map {} ({} substations, {} lines) in {} ms", mapId,
+                entry.levels[0].getSubstationCount(), entry.levels[0].getLineCount(),
+                System.currentTimeMillis() - startTime);
+
+        synchronized (entries) {
+            // a concurrent request may have parsed it as well, keep the first one
+            return entries.computeIfAbsent(mapId, key -> entry);
+        }
+    }
+
+    private static Entry createEntry(MapGeometry geometry) {
+        MapGeometry[] levels = new MapGeometry[LEVEL_TOLERANCES.length];
+        levels[0] = geometry;
+        for (int level = 1; level < levels.length; level++) {
+            // each level simplifies the previous one, which is cheaper and gives nested levels
+            levels[level] = GeometrySimplifier.simplify(levels[level - 1], LEVEL_TOLERANCES[level]);
+        }
+        return new Entry(levels, createSubstationIndex(geometry), createLineIndex(geometry));
+    }
+
+    private static SpatialIndex createSubstationIndex(MapGeometry geometry) {
+        return SpatialIndex.build(geometry.getSubstationLon(), geometry.getSubstationLat(),
+                geometry.getSubstationLon(), geometry.getSubstationLat());
+    }
+
+    private static SpatialIndex createLineIndex(MapGeometry geometry) {
+        int lineCount = geometry.getLineCount();
+        double[] minLon = new double[lineCount];
+        double[] minLat = new double[lineCount];
+        double[] maxLon = new double[lineCount];
+        double[] maxLat = new double[lineCount];
+        for (int line = 0; line < lineCount; line++) {
+            minLon[line] = Double.POSITIVE_INFINITY;
+            minLat[line] = Double.POSITIVE_INFINITY;
+            maxLon[line] = Double.NEGATIVE_INFINITY;
+            maxLat[line] = Double.NEGATIVE_INFINITY;
+            for (int point = geometry.getLineOffsets()[line]; point < geometry.getLineOffsets()[line + 1]; point++) {
+                minLon[line] = Math.min(minLon[line], geometry.getLineLon()[point]);
+                minLat[line] = Math.min(minLat[line], geometry.getLineLat()[point]);
+                maxLon[line] = Math.max(maxLon[line], geometry.getLineLon()[point]);
+                maxLat[line] = Math.max(maxLat[line], geometry.getLineLat()[point]);
+            }
+        }
+        return SpatialIndex.build(minLon, minLat, maxLon, maxLat);
+    }
+
+    /**
+     * Index of the coarsest level whose tolerance does not exceed the requested one
+     */
+    private static int levelFor(double tolerance) {
+        int level = 0;
+        while (level + 1 < LEVEL_TOLERANCES.length && LEVEL_TOLERANCES[level + 1] <= tolerance) {
+            level++;
+        }
+        return level;
+    }
+
+    private static double[] createLevelTolerances() {
+        double[] tolerances = new double[SIMPLIFIED_ZOOM_LEVELS.length + 1];
+        for (int i = 0; i < SIMPLIFIED_ZOOM_LEVELS.length; i++) {
+            tolerances[i + 1] = GeometrySimplifier.toleranceForZoom(SIMPLIFIED_ZOOM_LEVELS[i]);
+        }
+        return tolerances;
+    }
+
+    private static final class Entry {
+        private final MapGeometry[] levels;
+        private final byte[][] encoded;
+        private final SpatialIndex substationIndex;
+        private final SpatialIndex lineIndex;
+
+        private Entry(MapGeometry[] levels, SpatialIndex substationIndex, SpatialIndex lineIndex) {
+            this.levels = levels;
+            this.encoded = new byte[levels.length][];
+            this.substationIndex = substationIndex;
+            this.lineIndex = lineIndex;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.fraunhofer.sognoviz.service;
+
+import com.fraunhofer.sognoviz.model.MapDiagramChangedEvent;
+import com.fraunhofer.sognoviz.model.MapGeometry;
+import com.fraunhofer.sognoviz.util.GeometryClipper;
+import com.fraunhofer.sognoviz.util.GeometryCodec;
+import com.fraunhofer.sognoviz.util.GeometrySimplifier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Web map tiles of stored network maps.
+ * A tile holds the substations inside it and the line geometry clipped to its bounds, taken from the
+ * simplification level that matches its zoom. Only the lines found by the spatial index are clipped.
+ * Tiles are built on first request and kept in an LRU cache bounded by their encoded size.
+ */
+@Slf4j
+@Service
+public class MapTileService {
+
+    public static final int MAX_ZOOM = 22;
+
+    /**
+     * Tiles are clipped with a margin of this many pixels (of 256), so line joins across tile edges do not show seams
+     */
+    private static final double BUFFER_PIXELS = 8;
+
+    private final MapGeometryService mapGeometryService;
+    private final long maxCachedBytes;
+
+    private final LinkedHashMap<String, byte[]> tiles = new LinkedHashMap<>(256, 0.75f, true);
+    private long cachedBytes;
+
+    public MapTileService(MapGeometryService mapGeometryService,
+                          @Value("${sognoviz.map-tiles.max-cache-mb:64}") long maxCacheMb) {
+        this.mapGeometryService = mapGeometryService;
+        this.maxCachedBytes = maxCacheMb * 1024 * 1024;
+    }
+
+    public enum Format {
+        JSON,
+        BINARY
+    }
+
+    /**
+     * Returns a tile in the given format, as JSON in the shape of the geometry response or
+     * in the {@link GeometryCodec} binary form. A line crossing the tile several times
+     * appears once per crossing, with the same id.
+     */
+    public byte[] getTile(String mapId, int z, int x, int y, Format format) throws IOException {
+        if (z < 0 || z > MAX_ZOOM || x < 0 || y < 0 || x >= (1 << z) || y >= (1 << z)) {
+            throw new IllegalArgumentException("Invalid tile " + z + "/" + x + "/" + y);
+        }
+
+        String key = mapId + "/" + format + "/" + z + "/" + x + "/" + y;
+        synchronized (tiles) {
+            byte[] cached = tiles.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        double[] bounds = tileBounds(z, x, y);
+        MapGeometry candidates = mapGeometryService.query(mapId, bounds, GeometrySimplifier.toleranceForZoom(z));
+        MapGeometry tile = GeometryClipper.clip(candidates, bounds);
+        byte[] encoded = format == Format.BINARY
+                ? GeometryCodec.encode(tile)
+                : GeometryCodec.writeJson(tile).getBytes(StandardCharsets.UTF_8);
+
+        put(key, encoded);
+        return encoded;
+    }
+
+    /**
+     * Drops the cached tiles of a map once its replacement or deletion is committed
+     */
+    @TransactionalEventListener
+    public void onMapDiagramChanged(MapDiagramChangedEvent event) {
+        invalidate(event.mapId());
+    }
+
+    public void invalidate(String mapId) {
+        synchronized (tiles) {
+            Iterator<Map.Entry<String, byte[]>> iterator = tiles.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, byte[]> entry = iterator.next();
+                if (entry.getKey().startsWith(mapId + "/")) {
+                    cachedBytes -= entry.getValue().length;
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void put(String key, byte[] tile) {
+        synchronized (tiles) {
+            byte[] previous = tiles.put(key, tile);
+            if (previous != null) {
+                cachedBytes -= previous.length;
+            }
+            cachedBytes += tile.length;
+
+            Iterator<Map.Entry<String, byte[]>> iterator = tiles.entrySet().iterator();
+            while (cachedBytes > maxCachedBytes && iterator.hasNext()) {
+                Map.Entry<String, byte[]> eldest = iterator.next();
+                cachedBytes -= eldest.getValue().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Bounds of a web mercator tile in degrees, {minLat, minLon, maxLat, maxLon}, including the buffer
+     */
+    static double[] tileBounds(int z, int x, int y) {
+        double tiles = 1 << z;
+        double buffer = BUFFER_PIXELS / 256.0;
+        double minLon = (x - buffer) / tiles * 360.0 - 180.0;
+        double maxLon = (x + 1 + buffer) / tiles * 360.0 - 180.0;
+        double maxLat = tileLat(y - buffer, tiles);
+        double minLat = tileLat(y + 1 + buffer, tiles);
+        return new double[]{minLat, minLon, maxLat, maxLon};
+    }
+
+    private static double tileLat(double y, double tiles) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y / tiles))));
+    }
+}
@@ -0,0 +1,67 @@
+package com.fraunhofer.sognoviz.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fraunhofer.sognoviz.entity.BlobRef;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Rewrites diagram metadata stored by older versions, which kept the metadata JSON encoded once more
+ * as a JSON string, to the plain JSON document. Only the first byte of each blob is read to tell them apart.
+ */
+@Slf4j
+@Component
+public class MetadataEncodingMigration {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlobStore blobStore;
+
+    // runs after the CLOB columns have been moved into the blob store
+    public MetadataEncodingMigration(JdbcTemplate jdbcTemplate, BlobStore blobStore,
+                                     BlobStoreMigration blobStoreMigration) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blobStore = blobStore;
+    }
+
+    @PostConstruct
+    public void migrate() throws IOException {
+        List<String[]> rows = jdbcTemplate.query(
+                "SELECT ID, METADATA_HASH FROM DIAGRAMS WHERE METADATA_HASH IS NOT NULL",
+                (rs, rowNum) -> new String[]{rs.getString(1), rs.getString(2)});
+
+        int migrated = 0;
+        for (String[] row : rows) {
+            BlobRef ref = new BlobRef(row[1], null, null);
+            if (!isJsonString(ref)) {
+                continue;
+            }
+            String metadata = OBJECT_MAPPER.readValue(blobStore.read(ref), String.class);
+            BlobRef decoded = blobStore.put(metadata);
+            jdbcTemplate.update("UPDATE DIAGRAMS SET METADATA_HASH = ?, METADATA_SIZE = ?, METADATA_STORED_SIZE = ?"
+                            + " WHERE ID = ?",
+                    decoded.getHash(), decoded.getSize(), decoded.getStoredSize(), row[0]);
+            migrated++;
+        }
+        if (migrated > 0) {
+            log.info("Decoded string encoded metadata of {} diagrams", migrated);
+        }
+    }
+
+    private boolean isJsonString(BlobRef ref) throws IOException {
+        try (InputStream in = blobStore.open(ref)) {
+            int b;
+            do {
+                b = in.read();
+            } while (b == ' ' || b == '\t' || b == '\r' || b == '\n');
+            return b == '"';
+        }
+    }
+}
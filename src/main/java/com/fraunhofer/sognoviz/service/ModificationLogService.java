@@ -0,0 +1,260 @@
+package com.fraunhofer.sognoviz.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fraunhofer.sognoviz.entity.DiagramOperationEntity;
+import com.fraunhofer.sognoviz.model.DiagramFiles;
+import com.fraunhofer.sognoviz.model.DiagramModel;
+import com.fraunhofer.sognoviz.model.DiagramOperation;
+import com.fraunhofer.sognoviz.model.DiagramSummary;
+import com.fraunhofer.sognoviz.model.NetworkModification;
+import com.fraunhofer.sognoviz.repository.DiagramOperationRepository;
+import com.fraunhofer.sognoviz.service.NetworkSnapshotStore.RevisionSnapshot;
+import com.fraunhofer.sognoviz.util.NadSvgPatcher;
+import com.powsybl.iidm.network.Network;
+import com.powsybl.nad.NadParameters;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Append-only modification log of diagrams.
+ * The network a diagram was generated from is its revision 0; every modification applied to the
+ * diagram is stored as one small log entry, and the network of the latest revision is rebuilt by
+ * replaying the log instead of being stored after every edit. Every {@code snapshot-interval}
+ * revisions the modified network is written as a binary IIDM snapshot, so a revision is rebuilt
+ * from the nearest snapshot at or before it and only the entries after that are replayed.
+ * <p>
+ * An edit writes its log entries only. The stored SVG and metadata of a diagram stay the drawing of
+ * the revision they were drawn from, and are redrawn at the latest revision by {@link #drawHead}
+ * when the diagram is next read, so a run of edits costs one redraw and one drawing write.
+ */
+@Slf4j
+@Service
+public class ModificationLogService {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final int DRAW_LOCK_STRIPES = 32;
+
+    private final DiagramOperationRepository operationRepository;
+    private final DiagramGeneratorService diagramGeneratorService;
+    private final DiagramStorageService diagramStorageService;
+    private final NetworkElementCreationService networkElementCreationService;
+    private final NetworkSnapshotStore snapshotStore;
+    private final DiagramLayoutCache diagramLayoutCache;
+    private final int snapshotInterval;
+
+    // redraws of one diagram are serialized, so concurrent reads after an edit draw it once
+    private final Object[] drawLocks = Stream.generate(Object::new).limit(DRAW_LOCK_STRIPES).toArray();
+
+    public ModificationLogService(DiagramOperationRepository operationRepository,
+                                  DiagramGeneratorService diagramGeneratorService,
+                                  DiagramStorageService diagramStorageService,
+                                  NetworkElementCreationService networkElementCreationService,
+                                  NetworkSnapshotStore snapshotStore,
+                                  DiagramLayoutCache diagramLayoutCache,
+                                  @Value("${sognoviz.modification-log.snapshot-interval:20}") int snapshotInterval) {
+        this.operationRepository = operationRepository;
+        this.diagramGeneratorService = diagramGeneratorService;
+        this.diagramStorageService = diagramStorageService;
+        this.networkElementCreationService = networkElementCreationService;
+        this.snapshotStore = snapshotStore;
+        this.diagramLayoutCache = diagramLayoutCache;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    /**
+     * Latest revision of a diagram, 0 if it was never modified
+     */
+    public int getHeadRevision(String diagramId) {
+        return diagramStorageService.getHeadRevision(diagramId);
+    }
+
+    public List<DiagramOperation> getHistory(String diagramId) throws IOException {
+        List<DiagramOperation> history = new ArrayList<>();
+        for (DiagramOperationEntity entity : operationRepository.findByDiagramIdOrderByRevision(diagramId)) {
+            history.add(new DiagramOperation(entity.getRevision(), readOperation(entity), entity.getCreatedAt()));
+        }
+        return history;
+    }
+
+    /**
+     * Applies modifications to the latest revision of a diagram, redraws it, and appends them to its
+     * log. Nothing is recorded if any modification fails.
+     *
+     * @return The diagram drawn at the new revision; the drawing is not stored
+     */
+    public DiagramModel apply(DiagramModel model, List<NetworkModification> modifications) throws IOException {
+        int head = getHeadRevision(model.getId());
+        Network network = loadRevision(model.getId(), model.getName(), head);
+
+        diagramGeneratorService.applyModifications(network, modifications);
+        DiagramFiles drawing = diagramGeneratorService.redrawNad(network, getNadParameters(model.getId()),
+                model.getName());
+
+        int revision = append(model.getId(), head, modifications, network);
+        return model.toBuilder()
+                .svgData(drawing.getSvgContent())
+                .metadata(drawing.getJsonContent())
+                .revision(revision)
+                .build();
+    }
+
+    /**
+     * Removes a connectable from the latest revision of a diagram, redraws only the affected voltage
+     * levels, and appends the removal to its log.
+     * The patch is computed against the stored drawing, which is drawn at the latest revision first.
+     *
+     * @return Patch of the drawing of the latest revision, and the patched SVG and metadata; neither is stored
+     * @throws IllegalStateException if the stored drawing is not known to be the drawing of the latest revision
+     */
+    public NadSvgPatcher.Result removeConnectableIncremental(String diagramId, String equipmentId)
+            throws IOException {
+        drawHead(diagramId);
+        DiagramModel model = diagramStorageService.loadDiagram(diagramId);
+        int head = getHeadRevision(diagramId);
+        // diagrams stored before revisions were recorded may hold drawings of modified networks
+        if (model.getRevision() == null || model.getRevision() != head) {
+            throw new IllegalStateException("Stored drawing of diagram " + diagramId
+                    + " is not the drawing of its latest revision, remove without patch to redraw it");
+        }
+        Network network = loadRevision(diagramId, model.getName(), head);
+
+        NadSvgPatcher.Result result = diagramGeneratorService.removeConnectableIncremental(network, equipmentId, model,
+                getNadParameters(diagramId));
+
+        append(diagramId, head, List.of(new NetworkModification.RemoveConnectable(equipmentId)), network);
+        return result;
+    }
+
+    /**
+     * Draws a diagram as it was at a revision, with its current layout
+     */
+    public DiagramFiles drawRevision(DiagramModel model, int revision) throws IOException {
+        Network network = loadNetwork(model.getId(), model.getName(), revision);
+        return diagramGeneratorService.redrawNad(network, getNadParameters(model.getId()), model.getName());
+    }
+
+    /**
+     * Redraws a diagram at its latest revision and stores the drawing, if it was modified since its
+     * stored SVG and metadata were drawn. Called before the stored drawing is read.
+     */
+    public void drawHead(String diagramId) throws IOException {
+        if (diagramStorageService.getDrawnRevision(diagramId) >= getHeadRevision(diagramId)) {
+            return;
+        }
+        synchronized (drawLocks[Math.floorMod(diagramId.hashCode(), DRAW_LOCK_STRIPES)]) {
+            int head = getHeadRevision(diagramId);
+            int drawn = diagramStorageService.getDrawnRevision(diagramId);
+            if (drawn >= head) {
+                return;
+            }
+            long startTime = System.currentTimeMillis();
+            DiagramSummary diagram = diagramStorageService.loadDiagramSummary(diagramId);
+            Network network = loadRevision(diagramId, diagram.getName(), head);
+            DiagramFiles drawing = diagramGeneratorService.redrawNad(network, getNadParameters(diagramId),
+                    diagram.getName());
+            diagramStorageService.saveDrawing(diagramId, head, drawing.getSvgContent(), drawing.getJsonContent());
+            log.info("Drew diagram {} at revision {}, stored drawing was of revision {}, in {} ms",
+                    diagramId, head, drawn, System.currentTimeMillis() - startTime);
+        }
+    }
+
+    /**
+     * Brings the stored drawings of all diagrams up to their latest revision
+     */
+    public void drawAllHeads() throws IOException {
+        for (String diagramId : diagramStorageService.listStaleDrawings()) {
+            drawHead(diagramId);
+        }
+    }
+
+    /**
+     * Loads a private, modifiable copy of the network of a diagram at a revision
+     *
+     * @throws IllegalArgumentException if the revision does not exist
+     */
+    public Network loadNetwork(String diagramId, String diagramName, int revision) throws IOException {
+        int head = getHeadRevision(diagramId);
+        if (revision < 0 || revision > head) {
+            throw new IllegalArgumentException("Revision " + revision + " of diagram " + diagramId
+                    + " does not exist, the latest is " + head);
+        }
+        return loadRevision(diagramId, diagramName, revision);
+    }
+
+    /**
+     * Appends modifications that were applied to the network of a diagram at {@code baseRevision}
+     * to its log, and writes a snapshot of the network if the new revision passes a multiple of the
+     * snapshot interval. The stored drawing is left to {@link #drawHead}.
+     *
+     * @return The new latest revision
+     * @throws IllegalStateException if the log was appended to since {@code baseRevision}
+     */
+    public int append(String diagramId, int baseRevision, List<NetworkModification> modifications,
+                      Network network) throws IOException {
+        List<DiagramOperationEntity> entities = new ArrayList<>();
+        int revision = baseRevision;
+        for (NetworkModification modification : modifications) {
+            entities.add(new DiagramOperationEntity(null, diagramId, ++revision,
+                    OBJECT_MAPPER.writeValueAsString(modification), null));
+        }
+        diagramStorageService.saveRevision(diagramId, baseRevision, entities);
+
+        // written after the entries are committed, so a snapshot never precedes its log
+        if (snapshotInterval > 0 && revision / snapshotInterval > baseRevision / snapshotInterval) {
+            snapshotStore.writeRevision(diagramId, revision, network);
+        }
+        if (revision > baseRevision) {
+            log.info("Recorded revisions {} to {} of diagram {}", baseRevision + 1, revision, diagramId);
+        }
+        return revision;
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    /**
+     * Starts from the nearest snapshot at or before the revision, or from the stored model,
+     * and replays the log entries after it
+     */
+    private Network loadRevision(String diagramId, String diagramName, int revision) throws IOException {
+        long startTime = System.currentTimeMillis();
+
+        Optional<RevisionSnapshot> snapshot = revision > 0
+                ? snapshotStore.readRevision(diagramId, revision)
+                : Optional.empty();
+        Network network = snapshot.isPresent()
+                ? snapshot.get().network()
+                : diagramGeneratorService.loadNetworkForEditing(diagramName);
+        int from = snapshot.map(RevisionSnapshot::revision).orElse(0);
+
+        List<DiagramOperationEntity> entries = from < revision
+                ? operationRepository.findByDiagramIdAndRevisionBetweenOrderByRevision(diagramId, from + 1, revision)
+                : List.of();
+        for (DiagramOperationEntity entry : entries) {
+            try {
+                networkElementCreationService.apply(network, readOperation(entry));
+            } catch (RuntimeException e) {
+                throw new IOException("Failed to replay revision " + entry.getRevision() + " of diagram " + diagramId, e);
+            }
+        }
+
+        log.info("Loaded diagram {} at revision {} from revision {} with {} replayed operations in {} ms",
+                diagramId, revision, from, entries.size(), System.currentTimeMillis() - startTime);
+        return network;
+    }
+
+    private NadParameters getNadParameters(String diagramId) throws IOException {
+        return diagramLayoutCache.getNadParameters(diagramStorageService.getMetadataRef(diagramId));
+    }
+
+    private static NetworkModification readOperation(DiagramOperationEntity entity) throws IOException {
+        return OBJECT_MAPPER.readValue(entity.getOperation(), NetworkModification.class);
+    }
+}
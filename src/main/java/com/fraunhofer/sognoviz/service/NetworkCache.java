@@ -0,0 +1,242 @@
+package com.fraunhofer.sognoviz.service;
+
+import com.fraunhofer.sognoviz.util.ContentHash;
+import com.powsybl.iidm.network.Network;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Bounded LRU cache of imported networks.
+ * Entries are keyed by the SHA-256 of the stored CGMES file plus the import properties,
+ * so the same upload is parsed only once no matter under which name it is stored.
+ * The size limit is based on an estimate of the heap used by each network.
+ */
+@Slf4j
+@Component
+public class NetworkCache {
+
+    /**
+     * Rough ratio between heap used by an imported network (including the stored CGMES model
+     * extension) and the uncompressed size of its source files
+     */
+    private static final long HEAP_BYTES_PER_SOURCE_BYTE = 4;
+
+    private final long maxEstimatedBytes;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<Network>> inFlight = new LinkedHashMap<>();
+
+    private long estimatedBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public NetworkCache(@org.springframework.beans.factory.annotation.Value("${sognoviz.network-cache.max-heap-mb:0}") long maxHeapMb) {
+        this.maxEstimatedBytes = maxHeapMb > 0
+                ? maxHeapMb * 1024 * 1024
+                : Runtime.getRuntime().maxMemory() / 4;
+        log.info("Network cache limited to {} MB of estimated heap", this.maxEstimatedBytes / (1024 * 1024));
+    }
+
+    @FunctionalInterface
+    public interface NetworkLoader {
+        Network load() throws IOException;
+    }
+
+    /**
+     * Returns the cached network for the given source file and import properties,
+     * loading it with the given loader on a miss. Concurrent misses on the same key
+     * share a single load. Returned networks are shared and must not be modified.
+     */
+    public Network get(Path source, Properties importParams, NetworkLoader loader) throws IOException {
+        String key = createKey(source, importParams);
+
+        CompletableFuture<Network> pending;
+        boolean owner = false;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                log.debug("Network cache hit for {} ({})", source, key);
+                return entry.getNetwork();
+            }
+            misses++;
+            pending = inFlight.get(key);
+            if (pending == null) {
+                pending = new CompletableFuture<>();
+                inFlight.put(key, pending);
+                owner = true;
+            }
+        }
+
+        if (!owner) {
+            log.debug("Waiting for in-flight load of {} ({})", source, key);
+            return await(pending);
+        }
+
+        try {
+            long startTime = System.currentTimeMillis();
+            Network network = loader.load();
+            log.info("Loaded network {} in {} ms", source, System.currentTimeMillis() - startTime);
+
+            put(key, network, estimateHeapBytes(source));
+            pending.complete(network);
+            return network;
+        } catch (IOException | RuntimeException e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            synchronized (this) {
+                inFlight.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Returns the cached network without loading it on a miss
+     */
+    public Optional<Network> getIfPresent(Path source, Properties importParams) throws IOException {
+        String key = createKey(source, importParams);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                return Optional.of(entry.getNetwork());
+            }
+            misses++;
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Drops every entry whose key was built from the given source file
+     */
+    public synchronized void invalidate(Path source) throws IOException {
+        String contentHash = ContentHash.ofFile(source);
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> entry = iterator.next();
+            if (entry.getKey().startsWith(contentHash)) {
+                estimatedBytes -= entry.getValue().getEstimatedBytes();
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        estimatedBytes = 0;
+    }
+
+    public synchronized Stats getStats() {
+        long requests = hits + misses;
+        return new Stats(
+                hits,
+                misses,
+                evictions,
+                requests == 0 ? 0.0 : (double) hits / requests,
+                entries.size(),
+                estimatedBytes,
+                maxEstimatedBytes
+        );
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private synchronized void put(String key, Network network, long size) {
+        if (size > maxEstimatedBytes) {
+            log.warn("Network {} (~{} MB) exceeds the cache limit and is not cached",
+                    network.getId(), size / (1024 * 1024));
+            return;
+        }
+
+        Entry previous = entries.put(key, new Entry(network, size));
+        if (previous != null) {
+            estimatedBytes -= previous.getEstimatedBytes();
+        }
+        estimatedBytes += size;
+
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (estimatedBytes > maxEstimatedBytes && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            estimatedBytes -= eldest.getValue().getEstimatedBytes();
+            iterator.remove();
+            evictions++;
+            log.info("Evicted network {} from cache", eldest.getValue().getNetwork().getId());
+        }
+    }
+
+    private String createKey(Path source, Properties importParams) throws IOException {
+        return ContentHash.ofFile(source) + ":" + ContentHash.ofProperties(importParams);
+    }
+
+    /**
+     * Estimates the heap used by a network from the uncompressed size of its source
+     */
+    static long estimateHeapBytes(Path source) {
+        long sourceBytes = 0;
+        try {
+            if (source.getFileName().toString().toLowerCase().endsWith(".zip")) {
+                try (ZipFile zip = new ZipFile(source.toFile())) {
+                    Enumeration<? extends ZipEntry> zipEntries = zip.entries();
+                    while (zipEntries.hasMoreElements()) {
+                        long size = zipEntries.nextElement().getSize();
+                        sourceBytes += Math.max(size, 0);
+                    }
+                }
+            }
+            if (sourceBytes == 0) {
+                sourceBytes = Files.size(source);
+            }
+        } catch (IOException e) {
+            log.warn("Could not estimate size of {}", source, e);
+        }
+        return sourceBytes * HEAP_BYTES_PER_SOURCE_BYTE;
+    }
+
+    private Network await(CompletableFuture<Network> pending) throws IOException {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Failed to load network", e.getCause());
+        }
+    }
+
+    @Value
+    private static class Entry {
+        Network network;
+        long estimatedBytes;
+    }
+
+    @Value
+    public static class Stats {
+        long hits;
+        long misses;
+        long evictions;
+        double hitRate;
+        int entries;
+        long estimatedBytes;
+        long maxEstimatedBytes;
+    }
+}
@@ -1,269 +1,219 @@
 package com.fraunhofer.sognoviz.service;
 
-import com.powsybl.iidm.modification.topology.CreateFeederBayBuilder;
+import com.fraunhofer.sognoviz.model.NetworkModification;
+import com.fraunhofer.sognoviz.model.NetworkModification.Connect;
+import com.fraunhofer.sognoviz.model.NetworkModification.CreateGenerator;
+import com.fraunhofer.sognoviz.model.NetworkModification.CreateLine;
+import com.fraunhofer.sognoviz.model.NetworkModification.CreateLoad;
+import com.fraunhofer.sognoviz.model.NetworkModification.CreateSubstation;
+import com.fraunhofer.sognoviz.model.NetworkModification.CreateVoltageLevel;
+import com.fraunhofer.sognoviz.model.NetworkModification.Disconnect;
+import com.fraunhofer.sognoviz.model.NetworkModification.RemoveConnectable;
+import com.fraunhofer.sognoviz.model.NetworkModification.SetPhaseTapPosition;
+import com.fraunhofer.sognoviz.model.NetworkModification.SetSwitch;
+import com.powsybl.iidm.modification.tapchanger.PhaseTapPositionModification;
 import com.powsybl.iidm.modification.topology.CreateBranchFeederBaysBuilder;
+import com.powsybl.iidm.modification.topology.CreateFeederBayBuilder;
 import com.powsybl.iidm.network.*;
-import com.powsybl.nad.NetworkAreaDiagram;
-import com.powsybl.nad.NadParameters;
-import com.powsybl.nad.build.iidm.VoltageLevelFilter;
-import com.powsybl.nad.svg.metadata.DiagramMetadata;
-
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-
-
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * Applies {@link NetworkModification}s to a loaded network.
+ * Loading the network and redrawing the diagram is left to the caller, so any number of
+ * modifications can share one import and one redraw.
+ * A modification that refers to a missing element fails with an {@link IllegalArgumentException}.
+ */
+@Slf4j
+@Service
 public class NetworkElementCreationService {
 
-    /**
-     * Create a new load using CreateFeederBayBuilder
-     */
-    public Path createLoad(String inputPath, String loadId, String busOrBusbarId,
-                           double p0, double q0, String voltageLevelId, String diagramId)
-            throws IOException {
-
-        Path storageDir = Paths.get("./cgmes/");
-        if (!Files.exists(storageDir)) {
-            Files.createDirectories(storageDir);
+    public void apply(Network network, NetworkModification modification) {
+        switch (modification) {
+            case RemoveConnectable m -> removeConnectable(network, m);
+            case Disconnect m -> disconnect(network, m);
+            case Connect m -> connect(network, m);
+            case SetSwitch m -> setSwitch(network, m);
+            case CreateLoad m -> createLoad(network, m);
+            case CreateGenerator m -> createGenerator(network, m);
+            case CreateLine m -> createLine(network, m);
+            case CreateSubstation m -> createSubstation(network, m);
+            case CreateVoltageLevel m -> createVoltageLevel(network, m);
+            case SetPhaseTapPosition m -> setPhaseTapPosition(network, m);
         }
+    }
 
-        DiagramMetadata metadata = DiagramMetadata.parseJson(Path.of(inputPath));
-        NadParameters nadParameters = new NadParameters()
-                .setLayoutParameters(metadata.getLayoutParameters())
-                .setSvgParameters(metadata.getSvgParameters());
+    public void removeConnectable(Network network, RemoveConnectable modification) {
+        getConnectableOrThrow(network, modification.getEquipmentId()).remove();
+        log.info("Removed connectable: {}", modification.getEquipmentId());
+    }
 
-        Network network = loadNetwork(storageDir.toString() + "/" + diagramId + ".zip");
+    public void disconnect(Network network, Disconnect modification) {
+        for (Terminal terminal : getConnectableOrThrow(network, modification.getEquipmentId()).getTerminals()) {
+            terminal.disconnect();
+        }
+    }
 
-        Path outputDir = storageDir.resolve(diagramId + "_modified");
-        if (!Files.exists(outputDir)) {
-            Files.createDirectories(outputDir);
+    public void connect(Network network, Connect modification) {
+        for (Terminal terminal : getConnectableOrThrow(network, modification.getEquipmentId()).getTerminals()) {
+            terminal.connect();
         }
+    }
 
-        // Get voltage level
-        VoltageLevel voltageLevel = network.getVoltageLevel(voltageLevelId);
-        if (voltageLevel == null) {
-            throw new IOException("Voltage level not found: " + voltageLevelId);
+    public void setSwitch(Network network, SetSwitch modification) {
+        Switch sw = network.getSwitch(modification.getSwitchId());
+        if (sw == null) {
+            throw new IllegalArgumentException("Switch not found: " + modification.getSwitchId());
         }
+        sw.setOpen(modification.isOpen());
+    }
+
+    /**
+     * Create a new load using CreateFeederBayBuilder
+     */
+    public void createLoad(Network network, CreateLoad modification) {
+        VoltageLevel voltageLevel = getVoltageLevelOrThrow(network, modification.getVoltageLevelId());
 
-        // Create LoadAdder with attributes
         LoadAdder loadAdder = voltageLevel.newLoad()
-                .setId(loadId)
-                .setName(loadId)
-                .setP0(p0)
-                .setQ0(q0)
+                .setId(modification.getLoadId())
+                .setName(modification.getLoadId())
+                .setP0(modification.getP0())
+                .setQ0(modification.getQ0())
                 .setLoadType(LoadType.UNDEFINED);
 
-        // Use the Builder pattern - this is the correct way!
-        var modification = new CreateFeederBayBuilder()
+        new CreateFeederBayBuilder()
                 .withInjectionAdder(loadAdder)
-                .withBusOrBusbarSectionId(busOrBusbarId)
-                .build();
-
-        // Apply modification with throwException = true
-        modification.apply(network, true);
+                .withBusOrBusbarSectionId(modification.getBusOrBusbarId())
+                .build()
+                .apply(network, true);
 
-        // Redraw diagram
-        NetworkAreaDiagram.draw(network, outputDir, nadParameters, VoltageLevelFilter.NO_FILTER);
-
-        return outputDir;
+        log.info("Created load: {} at voltage level: {}", modification.getLoadId(), modification.getVoltageLevelId());
     }
 
     /**
      * Create a new generator using CreateFeederBayBuilder
      */
-    public Path createGenerator(String inputPath, String generatorId, String busOrBusbarId,
-                                double targetP, double targetV, double minP, double maxP,
-                                String voltageLevelId, String diagramId) throws IOException {
-
-        Path storageDir = Paths.get("./cgmes/");
-        if (!Files.exists(storageDir)) {
-            Files.createDirectories(storageDir);
-        }
-
-        DiagramMetadata metadata = DiagramMetadata.parseJson(Path.of(inputPath));
-        NadParameters nadParameters = new NadParameters()
-                .setLayoutParameters(metadata.getLayoutParameters())
-                .setSvgParameters(metadata.getSvgParameters());
-
-        Network network = loadNetwork(storageDir.toString() + "/" + diagramId + ".zip");
-
-        Path outputDir = storageDir.resolve(diagramId + "_modified");
-        if (!Files.exists(outputDir)) {
-            Files.createDirectories(outputDir);
-        }
-
-        // Get voltage level
-        VoltageLevel voltageLevel = network.getVoltageLevel(voltageLevelId);
-        if (voltageLevel == null) {
-            throw new IOException("Voltage level not found: " + voltageLevelId);
-        }
+    public void createGenerator(Network network, CreateGenerator modification) {
+        VoltageLevel voltageLevel = getVoltageLevelOrThrow(network, modification.getVoltageLevelId());
 
-        // Create GeneratorAdder
         GeneratorAdder generatorAdder = voltageLevel.newGenerator()
-                .setId(generatorId)
-                .setName(generatorId)
-                .setTargetP(targetP)
-                .setTargetV(targetV)
-                .setMinP(minP)
-                .setMaxP(maxP)
+                .setId(modification.getGeneratorId())
+                .setName(modification.getGeneratorId())
+                .setTargetP(modification.getTargetP())
+                .setTargetV(modification.getTargetV())
+                .setMinP(modification.getMinP())
+                .setMaxP(modification.getMaxP())
                 .setVoltageRegulatorOn(true)
                 .setEnergySource(EnergySource.OTHER);
 
-        // Use the Builder pattern
-        var modification = new CreateFeederBayBuilder()
+        new CreateFeederBayBuilder()
                 .withInjectionAdder(generatorAdder)
-                .withBusOrBusbarSectionId(busOrBusbarId)
-                .build();
-
-        // Apply modification
-        modification.apply(network, true);
+                .withBusOrBusbarSectionId(modification.getBusOrBusbarId())
+                .build()
+                .apply(network, true);
 
-        // Redraw diagram
-        NetworkAreaDiagram.draw(network, outputDir, nadParameters, VoltageLevelFilter.NO_FILTER);
-
-        return outputDir;
+        log.info("Created generator: {} at voltage level: {}", modification.getGeneratorId(),
+                modification.getVoltageLevelId());
     }
 
     /**
      * Create a new line using CreateBranchFeederBaysBuilder
      */
-    public Path createLine(String inputPath, String lineId,
-                           String bus1Id, String bus2Id,
-                           String voltageLevel1Id, String voltageLevel2Id,
-                           double r, double x, double g1, double b1, double g2, double b2,
-                           String diagramId) throws IOException {
-
-        Path storageDir = Paths.get("./cgmes/");
-        if (!Files.exists(storageDir)) {
-            Files.createDirectories(storageDir);
-        }
-
-        DiagramMetadata metadata = DiagramMetadata.parseJson(Path.of(inputPath));
-        NadParameters nadParameters = new NadParameters()
-                .setLayoutParameters(metadata.getLayoutParameters())
-                .setSvgParameters(metadata.getSvgParameters());
-
-        Network network = loadNetwork(storageDir.toString() + "/" + diagramId + ".zip");
-
-        Path outputDir = storageDir.resolve(diagramId + "_modified");
-        if (!Files.exists(outputDir)) {
-            Files.createDirectories(outputDir);
-        }
-
-        // Verify voltage levels exist
-        VoltageLevel vl1 = network.getVoltageLevel(voltageLevel1Id);
-        VoltageLevel vl2 = network.getVoltageLevel(voltageLevel2Id);
-
-        if (vl1 == null || vl2 == null) {
-            throw new IOException("One or both voltage levels not found");
-        }
+    public void createLine(Network network, CreateLine modification) {
+        getVoltageLevelOrThrow(network, modification.getVoltageLevel1Id());
+        getVoltageLevelOrThrow(network, modification.getVoltageLevel2Id());
 
-        // Create LineAdder
         LineAdder lineAdder = network.newLine()
-                .setId(lineId)
-                .setName(lineId)
-                .setVoltageLevel1(voltageLevel1Id)
-                .setVoltageLevel2(voltageLevel2Id)
-                .setR(r)
-                .setX(x)
-                .setG1(g1)
-                .setB1(b1)
-                .setG2(g2)
-                .setB2(b2);
-
-        // Use the Builder pattern
-        var modification = new CreateBranchFeederBaysBuilder()
+                .setId(modification.getLineId())
+                .setName(modification.getLineId())
+                .setVoltageLevel1(modification.getVoltageLevel1Id())
+                .setVoltageLevel2(modification.getVoltageLevel2Id())
+                .setR(modification.getR())
+                .setX(modification.getX())
+                .setG1(modification.getG1())
+                .setB1(modification.getB1())
+                .setG2(modification.getG2())
+                .setB2(modification.getB2());
+
+        new CreateBranchFeederBaysBuilder()
                 .withBranchAdder(lineAdder)
-                .withBusOrBusbarSectionId1(bus1Id)
-                .withBusOrBusbarSectionId2(bus2Id)
-                .build();
-
-        // Apply modification
-        modification.apply(network, true);
+                .withBusOrBusbarSectionId1(modification.getBus1Id())
+                .withBusOrBusbarSectionId2(modification.getBus2Id())
+                .build()
+                .apply(network, true);
 
-        // Redraw diagram
-        NetworkAreaDiagram.draw(network, outputDir, nadParameters, VoltageLevelFilter.NO_FILTER);
-
-        return outputDir;
+        log.info("Created line: {} between {} and {}", modification.getLineId(),
+                modification.getVoltageLevel1Id(), modification.getVoltageLevel2Id());
     }
 
     /**
      * IMPORTANT NOTE: Substations and Voltage Levels CANNOT be created via NetworkModification!
      *
      * They must be created directly using the Network builder API.
-     * Below are examples of how to do this.
      */
 
     /**
      * Create a Substation - Direct builder usage (NOT a NetworkModification)
      */
-    public Path createSubstation(String inputPath, String substationId, String substationName,
-                                 String country, String diagramId) throws IOException {
-
-        Path storageDir = Paths.get("./cgmes/");
-        Network network = loadNetwork(storageDir.toString() + "/" + diagramId + ".zip");
-
-        // Direct builder usage - this is the ONLY way to create substations
-        Substation substation = network.newSubstation()
-                .setId(substationId)
-                .setName(substationName)
-                .setCountry(Country.valueOf(country))
+    public void createSubstation(Network network, CreateSubstation modification) {
+        network.newSubstation()
+                .setId(modification.getSubstationId())
+                .setName(modification.getSubstationName())
+                .setCountry(modification.getCountry())
                 .add();
 
-        Path outputDir = storageDir.resolve(diagramId + "_modified");
-        if (!Files.exists(outputDir)) {
-            Files.createDirectories(outputDir);
-        }
-
-        DiagramMetadata metadata = DiagramMetadata.parseJson(Path.of(inputPath));
-        NadParameters nadParameters = new NadParameters()
-                .setLayoutParameters(metadata.getLayoutParameters())
-                .setSvgParameters(metadata.getSvgParameters());
-
-        NetworkAreaDiagram.draw(network, outputDir, nadParameters, VoltageLevelFilter.NO_FILTER);
-        return outputDir;
+        log.info("Created substation: {} in country: {}", modification.getSubstationId(), modification.getCountry());
     }
 
     /**
      * Create a Voltage Level - Direct builder usage (NOT a NetworkModification)
      */
-    public Path createVoltageLevel(String inputPath, String substationId,
-                                   String voltageLevelId, String voltageLevelName,
-                                   double nominalV, TopologyKind topologyKind,
-                                   String diagramId) throws IOException {
-
-        Path storageDir = Paths.get("./cgmes/");
-        Network network = loadNetwork(storageDir.toString() + "/" + diagramId + ".zip");
-
-        Substation substation = network.getSubstation(substationId);
+    public void createVoltageLevel(Network network, CreateVoltageLevel modification) {
+        Substation substation = network.getSubstation(modification.getSubstationId());
         if (substation == null) {
-            throw new IOException("Substation not found: " + substationId);
+            throw new IllegalArgumentException("Substation not found: " + modification.getSubstationId());
         }
 
-        // Direct builder usage - this is the ONLY way to create voltage levels
-        VoltageLevel voltageLevel = substation.newVoltageLevel()
-                .setId(voltageLevelId)
-                .setName(voltageLevelName)
-                .setNominalV(nominalV)
-                .setTopologyKind(topologyKind)  // BUS_BREAKER or NODE_BREAKER
+        substation.newVoltageLevel()
+                .setId(modification.getVoltageLevelId())
+                .setName(modification.getVoltageLevelName())
+                .setNominalV(modification.getNominalV())
+                .setTopologyKind(modification.getTopologyKind())  // BUS_BREAKER or NODE_BREAKER
                 .add();
 
-        Path outputDir = storageDir.resolve(diagramId + "_modified");
-        if (!Files.exists(outputDir)) {
-            Files.createDirectories(outputDir);
+        log.info("Created voltage level: {} in substation: {}", modification.getVoltageLevelId(),
+                modification.getSubstationId());
+    }
+
+    /**
+     * Set the phase tap position of a two winding transformer
+     */
+    public void setPhaseTapPosition(Network network, SetPhaseTapPosition modification) {
+        if (network.getTwoWindingsTransformer(modification.getTransformerId()) == null) {
+            throw new IllegalArgumentException("Transformer not found: " + modification.getTransformerId());
         }
 
-        DiagramMetadata metadata = DiagramMetadata.parseJson(Path.of(inputPath));
-        NadParameters nadParameters = new NadParameters()
-                .setLayoutParameters(metadata.getLayoutParameters())
-                .setSvgParameters(metadata.getSvgParameters());
+        new PhaseTapPositionModification(modification.getTransformerId(), modification.getTapPosition(),
+                modification.isRelative())
+                .apply(network, true);
+
+        log.info("Set phase tap position for transformer: {} to position: {} (relative: {})",
+                modification.getTransformerId(), modification.getTapPosition(), modification.isRelative());
+    }
 
-        NetworkAreaDiagram.draw(network, outputDir, nadParameters, VoltageLevelFilter.NO_FILTER);
-        return outputDir;
+    private Connectable<?> getConnectableOrThrow(Network network, String equipmentId) {
+        Connectable<?> connectable = network.getConnectable(equipmentId);
+        if (connectable == null) {
+            throw new IllegalArgumentException("Connectable not found: " + equipmentId);
+        }
+        return connectable;
     }
 
-    private Network loadNetwork(String filePath) throws IOException {
-        throw new UnsupportedOperationException("Implement network loading logic");
+    private VoltageLevel getVoltageLevelOrThrow(Network network, String voltageLevelId) {
+        VoltageLevel voltageLevel = network.getVoltageLevel(voltageLevelId);
+        if (voltageLevel == null) {
+            throw new IllegalArgumentException("Voltage level not found: " + voltageLevelId);
+        }
+        return voltageLevel;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,191 @@
+package com.fraunhofer.sognoviz.service;
+
+import com.fraunhofer.sognoviz.util.ContentHash;
+import com.fraunhofer.sognoviz.util.DiagramFileHelper;
+import com.powsybl.commons.io.TreeDataFormat;
+import com.powsybl.iidm.network.Network;
+import com.powsybl.iidm.serde.ExportOptions;
+import com.powsybl.iidm.serde.ImportOptions;
+import com.powsybl.iidm.serde.NetworkSerDe;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * Binary IIDM snapshots of imported networks.
+ * After the first CGMES import a network is written next to its stored zip in binary IIDM form;
+ * later loads read the snapshot instead of converting the CGMES triples again.
+ * Snapshot names contain the content hash of the source and of the import properties,
+ * so a changed source or changed import properties never hit a stale snapshot.
+ * <p>
+ * Modified networks are snapshotted the same way per diagram revision, under
+ * {@code revisions/<diagramId>/<revision>.biidm}, so the modification log only replays the
+ * operations after the nearest snapshot.
+ */
+@Slf4j
+@Component
+public class NetworkSnapshotStore {
+
+    private static final String SNAPSHOT_EXTENSION = ".biidm";
+
+    private final boolean enabled;
+    private final Path snapshotDir;
+    private final Path revisionDir;
+
+    public NetworkSnapshotStore(@Value("${sognoviz.network-snapshot.enabled:true}") boolean enabled,
+                                @Value("${sognoviz.storage.dir:" + DiagramFileHelper.CGMES_STORAGE_DIR + "}") String storageDir) {
+        this.enabled = enabled;
+        this.snapshotDir = Paths.get(storageDir, "objects");
+        this.revisionDir = Paths.get(storageDir, "revisions");
+    }
+
+    /**
+     * Reads the snapshot of a source file, if one exists for the given import properties
+     */
+    public Optional<Network> read(Path source, Properties importParams) throws IOException {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Path snapshot = snapshotPath(source, importParams);
+        if (!Files.isRegularFile(snapshot)) {
+            return Optional.empty();
+        }
+
+        return readSnapshot(snapshot);
+    }
+
+    /**
+     * Writes a snapshot of a freshly imported network. Failures are logged and ignored,
+     * the next load then simply falls back to the CGMES import.
+     */
+    public void write(Path source, Properties importParams, Network network) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Path snapshot = snapshotPath(source, importParams);
+            if (Files.exists(snapshot)) {
+                return;
+            }
+            Files.createDirectories(snapshotDir);
+            writeSnapshot(snapshot, network);
+        } catch (Exception e) {
+            log.warn("Failed to write network snapshot for {}", source, e);
+        }
+    }
+
+    /**
+     * Reads the snapshot of the latest revision of a diagram up to the given one, if any
+     */
+    public Optional<RevisionSnapshot> readRevision(String diagramId, int maxRevision) throws IOException {
+        Path dir = revisionDir.resolve(diagramId);
+        if (!enabled || !Files.isDirectory(dir)) {
+            return Optional.empty();
+        }
+
+        List<Integer> revisions;
+        try (Stream<Path> files = Files.list(dir)) {
+            revisions = files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SNAPSHOT_EXTENSION))
+                    .map(name -> Integer.valueOf(name.substring(0, name.length() - SNAPSHOT_EXTENSION.length())))
+                    .filter(revision -> revision <= maxRevision)
+                    .sorted(Comparator.reverseOrder())
+                    .toList();
+        }
+        for (int revision : revisions) {
+            Optional<Network> network = readSnapshot(revisionPath(diagramId, revision));
+            if (network.isPresent()) {
+                return Optional.of(new RevisionSnapshot(revision, network.get()));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Writes a snapshot of a modified network at a diagram revision. Failures are logged and ignored,
+     * the revision is then rebuilt from an older snapshot.
+     */
+    public void writeRevision(String diagramId, int revision, Network network) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Path snapshot = revisionPath(diagramId, revision);
+            Files.createDirectories(snapshot.getParent());
+            writeSnapshot(snapshot, network);
+        } catch (Exception e) {
+            log.warn("Failed to write network snapshot of diagram {} at revision {}", diagramId, revision, e);
+        }
+    }
+
+    /**
+     * Deletes all revision snapshots of a diagram. Failures are logged and ignored.
+     */
+    public void deleteRevisions(String diagramId) {
+        Path dir = revisionDir.resolve(diagramId);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            log.warn("Failed to delete network snapshots of diagram {}", diagramId, e);
+        }
+    }
+
+    public record RevisionSnapshot(int revision, Network network) {
+    }
+
+    private Optional<Network> readSnapshot(Path snapshot) throws IOException {
+        long startTime = System.currentTimeMillis();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(snapshot))) {
+            Network network = NetworkSerDe.read(in, new ImportOptions().setFormat(TreeDataFormat.BIN), null);
+            log.info("Loaded network snapshot {} in {} ms", snapshot, System.currentTimeMillis() - startTime);
+            return Optional.of(network);
+        } catch (Exception e) {
+            log.warn("Discarding unreadable network snapshot {}", snapshot, e);
+            Files.deleteIfExists(snapshot);
+            return Optional.empty();
+        }
+    }
+
+    private void writeSnapshot(Path snapshot, Network network) throws IOException {
+        long startTime = System.currentTimeMillis();
+        Path tempFile = Files.createTempFile(snapshot.getParent(), "snapshot_", ".tmp");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+            NetworkSerDe.write(network, new ExportOptions().setFormat(TreeDataFormat.BIN), out);
+        } catch (Exception e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        Files.move(tempFile, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        log.info("Wrote network snapshot {} in {} ms", snapshot, System.currentTimeMillis() - startTime);
+    }
+
+    private Path revisionPath(String diagramId, int revision) {
+        return revisionDir.resolve(diagramId).resolve(revision + SNAPSHOT_EXTENSION);
+    }
+
+    private Path snapshotPath(Path source, Properties importParams) throws IOException {
+        String name = ContentHash.ofFile(source) + "." + ContentHash.ofProperties(importParams).substring(0, 16);
+        return snapshotDir.resolve(name + SNAPSHOT_EXTENSION);
+    }
+}
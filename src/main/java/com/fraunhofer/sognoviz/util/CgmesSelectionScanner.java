@@ -0,0 +1,276 @@
+package com.fraunhofer.sognoviz.util;
+
+import com.fraunhofer.sognoviz.DTO.SubstationDTO;
+import com.fraunhofer.sognoviz.DTO.VoltageLevelDTO;
+import com.powsybl.iidm.network.Country;
+import com.powsybl.iidm.network.TopologyKind;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Lightweight scan of a CGMES zip for SLD selection data.
+ * Streams the equipment (EQ) profile with StAX and picks up only substations, voltage levels,
+ * base voltages and regions, without building a triple store or an IIDM network.
+ * Other profiles are skipped as soon as their model header shows they are not EQ.
+ * <p>
+ * Like the CGMES import, the model is reported as node-breaker when its EQ file declares the
+ * equipment operation profile. Boundary EQ files always contain connectivity nodes, so they
+ * never decide the topology kind.
+ */
+@Slf4j
+public final class CgmesSelectionScanner {
+
+    private static final String RDF_NS = "http://www.w3.org/1999/02/22-rdf-syntax-ns#";
+    private static final String EQUIPMENT_PROFILE_MARKER = "Equipment";
+    private static final String BOUNDARY_PROFILE_MARKER = "Boundary";
+    // CGMES 2.4.15 and CGMES 3 names of the EQ operation profile
+    private static final List<String> OPERATION_PROFILE_MARKERS = List.of("/EquipmentOperation/", "/Operation-EU/");
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    private CgmesSelectionScanner() {
+    }
+
+    /**
+     * Scans a CGMES zip for substations and voltage levels
+     *
+     * @param zipFile Path to the stored CGMES zip
+     * @return Selection data, or empty if the zip does not contain a readable EQ profile
+     */
+    public static Optional<SelectionData> scan(Path zipFile) throws IOException {
+        Scan scan = new Scan();
+        try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory() || !isXml(entry.getName())) {
+                    continue;
+                }
+                try (InputStream in = zip.getInputStream(entry)) {
+                    scanEntry(in, scan);
+                } catch (XMLStreamException e) {
+                    log.warn("Could not scan {} in {}", entry.getName(), zipFile, e);
+                    return Optional.empty();
+                }
+            }
+        }
+
+        if (scan.substations.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(scan.toSelectionData());
+    }
+
+    // ==================== PARSING ====================
+
+    private static void scanEntry(InputStream in, Scan scan) throws XMLStreamException {
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+        try {
+            boolean inHeader = false;
+            boolean equipmentProfile = false;
+            boolean boundaryProfile = false;
+            boolean operationProfile = false;
+            boolean headerSeen = false;
+            int depth = 0;
+            Resource current = null;
+            String property = null;
+            StringBuilder text = new StringBuilder();
+
+            while (reader.hasNext()) {
+                int event = reader.next();
+
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    String name = reader.getLocalName();
+
+                    if (depth == 2) {
+                        if ("FullModel".equals(name)) {
+                            inHeader = true;
+                            headerSeen = true;
+                            continue;
+                        }
+                        if (headerSeen && !equipmentProfile) {
+                            // not an EQ file, nothing of interest follows
+                            return;
+                        }
+                        current = startResource(name, reader, scan, boundaryProfile);
+                    } else if (depth == 3) {
+                        property = name;
+                        text.setLength(0);
+                        if (current != null) {
+                            String reference = reader.getAttributeValue(RDF_NS, "resource");
+                            if (reference != null) {
+                                current.properties.put(property, normalizeId(reference));
+                            }
+                        }
+                    }
+                } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                    if (property != null) {
+                        text.append(reader.getText());
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == 3 && property != null) {
+                        String value = text.toString().trim();
+                        if (inHeader && property.endsWith("Model.profile")) {
+                            equipmentProfile |= value.contains(EQUIPMENT_PROFILE_MARKER);
+                            boundaryProfile |= value.contains(BOUNDARY_PROFILE_MARKER);
+                            operationProfile |= OPERATION_PROFILE_MARKERS.stream().anyMatch(value::contains);
+                        } else if (current != null && !value.isEmpty()) {
+                            current.properties.putIfAbsent(property, value);
+                        }
+                        property = null;
+                    } else if (depth == 2) {
+                        if (inHeader && equipmentProfile && !boundaryProfile) {
+                            scan.equipmentHeaderSeen = true;
+                            scan.operationProfile |= operationProfile;
+                        }
+                        inHeader = false;
+                        current = null;
+                    }
+                    depth--;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static Resource startResource(String className, XMLStreamReader reader, Scan scan, boolean boundary) {
+        String id = reader.getAttributeValue(RDF_NS, "ID");
+        if (id == null) {
+            id = reader.getAttributeValue(RDF_NS, "about");
+        }
+        if (id == null) {
+            return null;
+        }
+        id = normalizeId(id);
+
+        Map<String, Resource> target = switch (className) {
+            case "Substation" -> scan.substations;
+            case "VoltageLevel" -> scan.voltageLevels;
+            case "BaseVoltage" -> scan.baseVoltages;
+            case "SubGeographicalRegion" -> scan.subRegions;
+            case "GeographicalRegion" -> scan.regions;
+            case "ConnectivityNode" -> {
+                scan.connectivityNodes |= !boundary;
+                yield null;
+            }
+            default -> null;
+        };
+        // descriptions in other files (e.g. boundary EQ) extend the same resource
+        return target == null ? null : target.computeIfAbsent(id, Resource::new);
+    }
+
+    private static String normalizeId(String reference) {
+        String id = reference.startsWith("#") ? reference.substring(1) : reference;
+        return id.startsWith("urn:uuid:") ? id.substring("urn:uuid:".length()) : id;
+    }
+
+    private static boolean isXml(String entryName) {
+        String lower = entryName.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".xml") || lower.endsWith(".rdf");
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    // ==================== RESULT ====================
+
+    private static final class Resource {
+        private final String id;
+        private final Map<String, String> properties = new HashMap<>();
+
+        private Resource(String id) {
+            this.id = id;
+        }
+
+        private String name() {
+            return properties.getOrDefault("IdentifiedObject.name", "");
+        }
+    }
+
+    private static final class Scan {
+        private final Map<String, Resource> substations = new LinkedHashMap<>();
+        private final Map<String, Resource> voltageLevels = new LinkedHashMap<>();
+        private final Map<String, Resource> baseVoltages = new HashMap<>();
+        private final Map<String, Resource> subRegions = new HashMap<>();
+        private final Map<String, Resource> regions = new HashMap<>();
+        private boolean equipmentHeaderSeen;
+        private boolean operationProfile;
+        private boolean connectivityNodes;
+
+        /**
+         * Decided by the EQ operation profile, as the CGMES import does; files without a model header
+         * give no profile, so connectivity nodes outside the boundary decide then
+         */
+        private boolean isNodeBreaker() {
+            return equipmentHeaderSeen ? operationProfile : connectivityNodes;
+        }
+
+        private SelectionData toSelectionData() {
+            List<SubstationDTO> substationDTOs = substations.values().stream()
+                    .map(s -> new SubstationDTO(s.id, s.name(), country(s)))
+                    .toList();
+
+            TopologyKind topologyKind = isNodeBreaker() ? TopologyKind.NODE_BREAKER : TopologyKind.BUS_BREAKER;
+            List<VoltageLevelDTO> voltageLevelDTOs = voltageLevels.values().stream()
+                    .map(vl -> new VoltageLevelDTO(vl.id, vl.name(), nominalV(vl), topologyKind))
+                    .toList();
+
+            return new SelectionData(substationDTOs, voltageLevelDTOs);
+        }
+
+        private double nominalV(Resource voltageLevel) {
+            Resource baseVoltage = baseVoltages.get(voltageLevel.properties.get("VoltageLevel.BaseVoltage"));
+            if (baseVoltage == null) {
+                return Double.NaN;
+            }
+            try {
+                return Double.parseDouble(baseVoltage.properties.get("BaseVoltage.nominalVoltage"));
+            } catch (NullPointerException | NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+
+        /**
+         * Resolves the country from the geographical region name, like the CGMES import does;
+         * falls back to DE as the full-import path does for substations without a country
+         */
+        private Country country(Resource substation) {
+            Resource subRegion = subRegions.get(substation.properties.get("Substation.Region"));
+            Resource region = subRegion == null ? null : regions.get(subRegion.properties.get("SubGeographicalRegion.Region"));
+            if (region == null) {
+                return Country.DE;
+            }
+            String regionName = region.name().trim();
+            for (Country country : Country.values()) {
+                if (country.name().equalsIgnoreCase(regionName) || country.getName().equalsIgnoreCase(regionName)) {
+                    return country;
+                }
+            }
+            return Country.DE;
+        }
+    }
+
+    @Value
+    public static class SelectionData {
+        List<SubstationDTO> substations;
+        List<VoltageLevelDTO> voltageLevels;
+    }
+}
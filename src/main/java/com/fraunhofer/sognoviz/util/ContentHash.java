@@ -0,0 +1,107 @@
+package com.fraunhofer.sognoviz.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * SHA-256 content hashes for stored CGMES files and import parameters.
+ * File hashes are memoized by path, size and modification time so repeated lookups
+ * of the same upload do not re-read the whole zip. Only the most recently used paths are kept.
+ */
+public final class ContentHash {
+
+    private static final String ALGORITHM = "SHA-256";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int MAX_FILE_HASHES = 1024;
+
+    private static final Map<Path, FileHash> FILE_HASHES = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Path, FileHash> eldest) {
+                    return size() > MAX_FILE_HASHES;
+                }
+            });
+
+    private ContentHash() {
+    }
+
+    /**
+     * Returns the hex encoded SHA-256 of a file's content
+     */
+    public static String ofFile(Path file) throws IOException {
+        Path key = file.toAbsolutePath().normalize();
+        long size = Files.size(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+
+        FileHash known = FILE_HASHES.get(key);
+        if (known != null && known.size() == size && known.modified() == modified) {
+            return known.hash();
+        }
+
+        MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (in.read(buffer) != -1) {
+                // digest is updated by the stream
+            }
+        }
+        String hash = toHex(digest.digest());
+        FILE_HASHES.put(key, new FileHash(size, modified, hash));
+        return hash;
+    }
+
+    /**
+     * Records an already computed hash for a file, e.g. one hashed while it was being written
+     */
+    public static void remember(Path file, String hash) throws IOException {
+        FILE_HASHES.put(file.toAbsolutePath().normalize(), new FileHash(
+                Files.size(file),
+                Files.getLastModifiedTime(file).toMillis(),
+                hash
+        ));
+    }
+
+    /**
+     * Returns a stable hash of import properties, independent of insertion order
+     */
+    public static String ofProperties(Properties properties) {
+        Map<String, String> sorted = new TreeMap<>();
+        properties.stringPropertyNames().forEach(name -> sorted.put(name, properties.getProperty(name)));
+
+        StringBuilder canonical = new StringBuilder();
+        sorted.forEach((name, value) -> canonical.append(name).append('=').append(value).append('\n'));
+        return ofString(canonical.toString());
+    }
+
+    public static String ofString(String content) {
+        return toHex(newDigest().digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " not available", e);
+        }
+    }
+
+    public static String toHex(byte[] digest) {
+        return HexFormat.of().formatHex(digest);
+    }
+
+    private record FileHash(long size, long modified, String hash) {
+    }
+}
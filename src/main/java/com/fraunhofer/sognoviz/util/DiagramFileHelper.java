@@ -1,23 +1,34 @@
 package com.fraunhofer.sognoviz.util;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fraunhofer.sognoviz.model.DiagramFiles;
 import com.fraunhofer.sognoviz.model.DiagramModel;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
@@ -27,9 +38,18 @@ import java.util.zip.ZipOutputStream;
 public class DiagramFileHelper {
 
     public static final String CGMES_STORAGE_DIR = "./cgmes/";
-    private static final String SVG_EXTENSION = ".svg";
-    private static final String JSON_EXTENSION = ".json";
     private static final String ZIP_EXTENSION = ".zip";
+    private static final String OBJECTS_DIR = "objects";
+
+    /**
+     * Directory of stored uploads and everything derived from them
+     */
+    @Getter
+    private final Path storageDir;
+
+    public DiagramFileHelper(@Value("${sognoviz.storage.dir:" + CGMES_STORAGE_DIR + "}") String storageDir) {
+        this.storageDir = Paths.get(storageDir);
+    }
 
     public static String updateFileName(String originalFileName, String newBaseName, String newExtension) {
         if (originalFileName == null || originalFileName.isEmpty()) {
@@ -59,53 +79,128 @@ public class DiagramFileHelper {
     }
 
 
+    /**
+     * Stores an upload under its content address and links it to the given name.
+     * The SHA-256 is computed while streaming the upload to disk; if the same content was
+     * uploaded before, the existing object is reused instead of being stored again.
+     */
     public Path storeUploadedFile(MultipartFile file, String id) throws IOException {
-        Path storageDir = Paths.get(CGMES_STORAGE_DIR);
-        if (!Files.exists(storageDir)) {
-            Files.createDirectories(storageDir);
+        Path objectsDir = storageDir.resolve(OBJECTS_DIR);
+        if (!Files.exists(objectsDir)) {
+            Files.createDirectories(objectsDir);
+        }
+
+        Path tempFile = Files.createTempFile(objectsDir, "upload_", ".tmp");
+        MessageDigest digest = ContentHash.newDigest();
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+
+        String contentHash = ContentHash.toHex(digest.digest());
+        Path objectFile = objectsDir.resolve(contentHash + ZIP_EXTENSION);
+
+        if (Files.exists(objectFile)) {
+            Files.delete(tempFile);
+            log.info("Upload {} matches stored content {}", id, contentHash);
+        } else {
+            try {
+                Files.move(tempFile, objectFile, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // stored concurrently by an identical upload
+                Files.delete(tempFile);
+            }
+            ContentHash.remember(objectFile, contentHash);
         }
+
         Path storedFile = storageDir.resolve(id + ZIP_EXTENSION);
-        file.transferTo(storedFile);
+        linkToObject(storedFile, objectFile);
+        ContentHash.remember(storedFile, contentHash);
         return storedFile;
     }
 
-    public DiagramFiles readDiagramFiles(Path outputDir, String baseName) throws IOException {
-        Path svgFile = outputDir.resolve(baseName + SVG_EXTENSION);
-        Path jsonFile = outputDir.resolve(baseName + "_metadata" + JSON_EXTENSION);
-
-        validateFileExists(svgFile, "SVG");
-        validateFileExists(jsonFile, "JSON");
+    /**
+     * Reads the derived artifacts of a stored upload if all given files exist
+     *
+     * @param contentHash Content hash of the stored CGMES file
+     * @param kind Artifact kind, e.g. "nad" or "map"
+     * @param fileNames Files that must be present
+     * @return File contents by file name
+     */
+    public Optional<Map<String, String>> readDerivedArtifacts(String contentHash, String kind, List<String> fileNames)
+            throws IOException {
+        Path dir = derivedArtifactsDir(contentHash, kind);
+        boolean complete = fileNames.stream().allMatch(name -> Files.isRegularFile(dir.resolve(name)));
+        if (!complete) {
+            return Optional.empty();
+        }
 
-        return DiagramFiles.builder()
-                .svgFileName(svgFile.getFileName().toString()).
-                jsonFileName(jsonFile.getFileName().toString()).
-                jsonContent(Files.readString(jsonFile, StandardCharsets.UTF_8)).
-                svgContent(Files.readString(svgFile, StandardCharsets.UTF_8)).build();
-       
+        Map<String, String> artifacts = new HashMap<>();
+        for (String fileName : fileNames) {
+            artifacts.put(fileName, Files.readString(dir.resolve(fileName), StandardCharsets.UTF_8));
+        }
+        return Optional.of(artifacts);
     }
 
-    public Path getZipFiles(String baseName) throws IOException {
-        Path storageDir = Paths.get(CGMES_STORAGE_DIR);
+    /**
+     * Writes rendered artifacts into the derived artifact directory of a stored upload.
+     * Files are staged in a temporary directory and moved into place at once,
+     * so readers never see a partially written set.
+     */
+    public void storeDerivedArtifacts(String contentHash, String kind, Map<String, String> artifacts)
+            throws IOException {
+        Path target = derivedArtifactsDir(contentHash, kind);
+        if (Files.isDirectory(target)) {
+            return;
+        }
+        Files.createDirectories(target.getParent());
 
-        Path zipFile = storageDir.resolve(baseName + ZIP_EXTENSION);
+        Path staging = Files.createTempDirectory(target.getParent(), target.getFileName() + "_");
+        for (Map.Entry<String, String> artifact : artifacts.entrySet()) {
+            Files.writeString(staging.resolve(artifact.getKey()), artifact.getValue(), StandardCharsets.UTF_8);
+        }
 
-        validateFileExists(zipFile, "ZIP");
+        try {
+            Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            FileSystemUtils.deleteRecursively(staging);
+            // only a target stored concurrently by an identical upload is fine, anything else is a real failure
+            boolean storedConcurrently = e instanceof FileAlreadyExistsException
+                    || e instanceof DirectoryNotEmptyException
+                    || Files.isDirectory(target);
+            if (!storedConcurrently) {
+                throw e;
+            }
+        }
+    }
 
-        return  zipFile;
+    private Path derivedArtifactsDir(String contentHash, String kind) {
+        return storageDir.resolve(OBJECTS_DIR).resolve(contentHash).resolve(kind);
+    }
 
+    /**
+     * Makes a named file point to a stored object, using a hard link where the file system supports it
+     */
+    private void linkToObject(Path link, Path objectFile) throws IOException {
+        Files.deleteIfExists(link);
+        try {
+            Files.createLink(link, objectFile);
+        } catch (UnsupportedOperationException | IOException e) {
+            log.debug("Hard link not supported for {}, copying instead", link);
+            Files.copy(objectFile, link, StandardCopyOption.REPLACE_EXISTING);
+        }
     }
 
-    public DiagramFiles readModifiedDiagramFiles(Path outputDir, String id) throws IOException {
-        Path svgFile = outputDir.resolve(id + "_modified" + SVG_EXTENSION);
-        Path jsonFile = outputDir.resolve(id + "_modified_metadata" + JSON_EXTENSION);
+    public Path getZipFiles(String baseName) throws IOException {
+        Path zipFile = storageDir.resolve(baseName + ZIP_EXTENSION);
 
-        validateFileExists(svgFile, "Modified SVG");
-        validateFileExists(jsonFile, "Modified JSON");
+        validateFileExists(zipFile, "ZIP");
 
-        return DiagramFiles.builder()
-                .svgFileName(svgFile.getFileName().toString()).jsonFileName(jsonFile.getFileName().toString()).jsonContent(Files.readString(jsonFile)).svgContent(Files.readString(svgFile)).build();
-    }
+        return  zipFile;
 
+    }
 
     public void validateFileExists(Path file, String fileType) throws IOException {
         if (!Files.exists(file)) {
@@ -113,14 +208,13 @@ public class DiagramFileHelper {
         }
     }
 
-    public DiagramModel createDiagramModel(String id, String name, DiagramFiles files, String type) throws JsonProcessingException {
-
-        ObjectMapper objectMapper = new ObjectMapper();
+    public DiagramModel createDiagramModel(String id, String name, DiagramFiles files, String type) {
+        // the metadata is JSON already and is stored and served as is
         return DiagramModel.builder()
                 .id(id)
                 .name(name)
                 .svgData(files.getSvgContent())
-                .metadata(objectMapper.  writeValueAsString(files.getJsonContent()))
+                .metadata(files.getJsonContent())
                 .diagramType(type)
                 .build();
     }
@@ -0,0 +1,185 @@
+package com.fraunhofer.sognoviz.util;
+
+import com.fraunhofer.sognoviz.model.MapGeometry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Clipping of map geometry to lat/lon bounds, given as {@code {minLat, minLon, maxLat, maxLon}}
+ */
+public final class GeometryClipper {
+
+    private GeometryClipper() {
+    }
+
+    /**
+     * Keeps the substations inside the bounds and clips every line to them
+     */
+    public static MapGeometry clip(MapGeometry geometry, double[] bounds) {
+        double minLat = bounds[0];
+        double minLon = bounds[1];
+        double maxLat = bounds[2];
+        double maxLon = bounds[3];
+
+        List<String> substationIds = new ArrayList<>();
+        List<double[]> substationCoordinates = new ArrayList<>();
+        for (int i = 0; i < geometry.getSubstationCount(); i++) {
+            double lat = geometry.getSubstationLat()[i];
+            double lon = geometry.getSubstationLon()[i];
+            if (lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon) {
+                substationIds.add(geometry.getSubstationIds()[i]);
+                substationCoordinates.add(new double[]{lat, lon});
+            }
+        }
+
+        LineBuilder lines = new LineBuilder();
+        double[] lat = geometry.getLineLat();
+        double[] lon = geometry.getLineLon();
+        for (int line = 0; line < geometry.getLineCount(); line++) {
+            int first = geometry.getLineOffsets()[line];
+            int last = geometry.getLineOffsets()[line + 1] - 1;
+            if (last < first || !intersectsBounds(lat, lon, first, last, bounds)) {
+                continue;
+            }
+
+            String id = geometry.getLineIds()[line];
+            if (first == last) {
+                lines.start(id);
+                lines.add(lat[first], lon[first]);
+                lines.end();
+                continue;
+            }
+
+            boolean open = false;
+            for (int i = first; i < last; i++) {
+                double[] segment = clipSegment(lat[i], lon[i], lat[i + 1], lon[i + 1], bounds);
+                if (segment == null) {
+                    if (open) {
+                        lines.end();
+                        open = false;
+                    }
+                    continue;
+                }
+                if (!open) {
+                    lines.start(id);
+                    lines.add(segment[0], segment[1]);
+                    open = true;
+                }
+                lines.add(segment[2], segment[3]);
+                // the segment left the tile, the next one starts a new part
+                if (segment[2] != lat[i + 1] || segment[3] != lon[i + 1]) {
+                    lines.end();
+                    open = false;
+                }
+            }
+            if (open) {
+                lines.end();
+            }
+        }
+
+        return new MapGeometry(
+                substationIds.toArray(String[]::new),
+                substationCoordinates.stream().mapToDouble(c -> c[0]).toArray(),
+                substationCoordinates.stream().mapToDouble(c -> c[1]).toArray(),
+                lines.ids.toArray(String[]::new),
+                lines.offsets.stream().mapToInt(Integer::intValue).toArray(),
+                lines.lat.stream().mapToDouble(Double::doubleValue).toArray(),
+                lines.lon.stream().mapToDouble(Double::doubleValue).toArray()
+        );
+    }
+
+    /**
+     * Tells whether any part of a line lies inside the bounds
+     */
+    public static boolean intersects(MapGeometry geometry, int line, double[] bounds) {
+        double[] lat = geometry.getLineLat();
+        double[] lon = geometry.getLineLon();
+        int first = geometry.getLineOffsets()[line];
+        int last = geometry.getLineOffsets()[line + 1] - 1;
+        if (last < first) {
+            return false;
+        }
+        if (first == last) {
+            return lat[first] >= bounds[0] && lat[first] <= bounds[2] && lon[first] >= bounds[1] && lon[first] <= bounds[3];
+        }
+        for (int i = first; i < last; i++) {
+            if (clipSegment(lat[i], lon[i], lat[i + 1], lon[i + 1], bounds) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean intersectsBounds(double[] lat, double[] lon, int first, int last, double[] bounds) {
+        double minLat = Double.POSITIVE_INFINITY;
+        double minLon = Double.POSITIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY;
+        double maxLon = Double.NEGATIVE_INFINITY;
+        for (int i = first; i <= last; i++) {
+            minLat = Math.min(minLat, lat[i]);
+            maxLat = Math.max(maxLat, lat[i]);
+            minLon = Math.min(minLon, lon[i]);
+            maxLon = Math.max(maxLon, lon[i]);
+        }
+        return minLat <= bounds[2] && maxLat >= bounds[0] && minLon <= bounds[3] && maxLon >= bounds[1];
+    }
+
+    /**
+     * Liang-Barsky clipping of one segment; returns {lat1, lon1, lat2, lon2} of the visible part or null
+     */
+    public static double[] clipSegment(double lat1, double lon1, double lat2, double lon2, double[] bounds) {
+        double dLat = lat2 - lat1;
+        double dLon = lon2 - lon1;
+        double[] p = {-dLon, dLon, -dLat, dLat};
+        double[] q = {lon1 - bounds[1], bounds[3] - lon1, lat1 - bounds[0], bounds[2] - lat1};
+
+        double t0 = 0;
+        double t1 = 1;
+        for (int i = 0; i < 4; i++) {
+            if (p[i] == 0) {
+                if (q[i] < 0) {
+                    return null;
+                }
+                continue;
+            }
+            double t = q[i] / p[i];
+            if (p[i] < 0) {
+                t0 = Math.max(t0, t);
+            } else {
+                t1 = Math.min(t1, t);
+            }
+            if (t0 > t1) {
+                return null;
+            }
+        }
+
+        return new double[]{
+                t0 == 0 ? lat1 : lat1 + t0 * dLat,
+                t0 == 0 ? lon1 : lon1 + t0 * dLon,
+                t1 == 1 ? lat2 : lat1 + t1 * dLat,
+                t1 == 1 ? lon2 : lon1 + t1 * dLon
+        };
+    }
+
+
+    private static final class LineBuilder {
+        private final List<String> ids = new ArrayList<>();
+        private final List<Integer> offsets = new ArrayList<>(List.of(0));
+        private final List<Double> lat = new ArrayList<>();
+        private final List<Double> lon = new ArrayList<>();
+
+        void start(String id) {
+            ids.add(id);
+        }
+
+        void add(double pointLat, double pointLon) {
+            lat.add(pointLat);
+            lon.add(pointLon);
+        }
+
+        void end() {
+            offsets.add(lat.size());
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package com.fraunhofer.sognoviz.util;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fraunhofer.sognoviz.model.MapGeometry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the map position JSON exports into a {@link MapGeometry} and encodes it in a compact binary form.
+ * <p>
+ * Binary layout, all integers are unsigned LEB128 varints and coordinates are zigzag encoded
+ * deltas of degrees quantized by the scale:
+ * <pre>
+ * "SGEO" version scale
+ * substationCount { id dLat dLon }            deltas to the previous substation
+ * lineCount { id pointCount dataOffset }      offset into the line data, in bytes
+ * lineDataLength lineData                     per line { dLat dLon }, first point relative to 0
+ * </pre>
+ * Strings are a varint byte length followed by UTF-8. Each line's points can be decoded on their own
+ * from its offset, without walking the lines before it.
+ */
+public final class GeometryCodec {
+
+    public static final String MEDIA_TYPE = "application/vnd.sognoviz.geometry";
+
+    private static final byte[] MAGIC = {'S', 'G', 'E', 'O'};
+    private static final int VERSION = 1;
+
+    /**
+     * Micro degrees, about 0.1 m, well below the accuracy of CGMES GL data
+     */
+    private static final int SCALE = 1_000_000;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private GeometryCodec() {
+    }
+
+    // ==================== JSON ====================
+
+    /**
+     * Parses the substation (SPOS) and line (linePOS) position exports; either may be null.
+     * Substations and line points without a finite coordinate are left out.
+     */
+    public static MapGeometry readJson(String substationPositions, String linePositions) throws IOException {
+        List<String> substationIds = new ArrayList<>();
+        DoubleList substationLat = new DoubleList();
+        DoubleList substationLon = new DoubleList();
+        if (substationPositions != null && !substationPositions.isBlank()) {
+            try (JsonParser parser = JSON_FACTORY.createParser(substationPositions)) {
+                expect(parser, JsonToken.START_ARRAY);
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    String id = null;
+                    double[] coordinate = null;
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String field = parser.currentName();
+                        parser.nextToken();
+                        if ("id".equals(field)) {
+                            id = parser.getText();
+                        } else if ("coordinate".equals(field)) {
+                            coordinate = readCoordinate(parser);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    if (id != null && isValid(coordinate)) {
+                        substationIds.add(id);
+                        substationLat.add(coordinate[0]);
+                        substationLon.add(coordinate[1]);
+                    }
+                }
+            }
+        }
+
+        List<String> lineIds = new ArrayList<>();
+        List<Integer> lineOffsets = new ArrayList<>();
+        DoubleList lineLat = new DoubleList();
+        DoubleList lineLon = new DoubleList();
+        lineOffsets.add(0);
+        if (linePositions != null && !linePositions.isBlank()) {
+            try (JsonParser parser = JSON_FACTORY.createParser(linePositions)) {
+                expect(parser, JsonToken.START_ARRAY);
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    String id = null;
+                    int start = lineLat.size();
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String field = parser.currentName();
+                        parser.nextToken();
+                        if ("id".equals(field)) {
+                            id = parser.getText();
+                        } else if ("coordinates".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                                double[] coordinate = readCoordinate(parser);
+                                if (isValid(coordinate)) {
+                                    lineLat.add(coordinate[0]);
+                                    lineLon.add(coordinate[1]);
+                                }
+                            }
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    if (id == null) {
+                        lineLat.truncate(start);
+                        lineLon.truncate(start);
+                        continue;
+                    }
+                    lineIds.add(id);
+                    lineOffsets.add(lineLat.size());
+                }
+            }
+        }
+
+        return new MapGeometry(
+                substationIds.toArray(String[]::new),
+                substationLat.toArray(),
+                substationLon.toArray(),
+                lineIds.toArray(String[]::new),
+                lineOffsets.stream().mapToInt(Integer::intValue).toArray(),
+                lineLat.toArray(),
+                lineLon.toArray()
+        );
+    }
+
+    /**
+     * Writes the geometry in the shape of the JSON geometry response:
+     * {@code {"substationPositions": [SPOS...], "linePositions": [linePOS...]}}
+     */
+    public static String writeJson(MapGeometry geometry) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(
+                64 + geometry.getSubstationCount() * 80 + geometry.getLineLat().length * 40);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("substationPositions");
+            for (int i = 0; i < geometry.getSubstationCount(); i++) {
+                generator.writeStartObject();
+                generator.writeStringField("id", geometry.getSubstationIds()[i]);
+                generator.writeFieldName("coordinate");
+                writeCoordinate(generator, geometry.getSubstationLat()[i], geometry.getSubstationLon()[i]);
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+
+            generator.writeArrayFieldStart("linePositions");
+            for (int line = 0; line < geometry.getLineCount(); line++) {
+                generator.writeStartObject();
+                generator.writeStringField("id", geometry.getLineIds()[line]);
+                generator.writeArrayFieldStart("coordinates");
+                for (int point = geometry.getLineOffsets()[line]; point < geometry.getLineOffsets()[line + 1]; point++) {
+                    writeCoordinate(generator, geometry.getLineLat()[point], geometry.getLineLon()[point]);
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static void writeCoordinate(JsonGenerator generator, double lat, double lon) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("lat", lat);
+        generator.writeNumberField("lon", lon);
+        generator.writeEndObject();
+    }
+
+    private static double[] readCoordinate(JsonParser parser) throws IOException {
+        double[] coordinate = {Double.NaN, Double.NaN};
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return coordinate;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("lat".equals(field)) {
+                coordinate[0] = parser.getValueAsDouble();
+            } else if ("lon".equals(field)) {
+                coordinate[1] = parser.getValueAsDouble();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return coordinate;
+    }
+
+    /**
+     * Points without a finite latitude and longitude, e.g. the NaN of an unset position, are skipped
+     */
+    private static boolean isValid(double[] coordinate) {
+        return coordinate != null && Double.isFinite(coordinate[0]) && Double.isFinite(coordinate[1]);
+    }
+
+    private static void expect(JsonParser parser, JsonToken expected) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token != expected) {
+            throw new IOException("Expected " + expected + " but found " + token);
+        }
+    }
+
+    // ==================== BINARY ====================
+
+    public static byte[] encode(MapGeometry geometry) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(
+                64 + geometry.getSubstationCount() * 48 + geometry.getLineCount() * 48 + geometry.getLineLat().length * 4);
+        out.writeBytes(MAGIC);
+        writeVarint(out, VERSION);
+        writeVarint(out, SCALE);
+
+        writeVarint(out, geometry.getSubstationCount());
+        long previousLat = 0;
+        long previousLon = 0;
+        for (int i = 0; i < geometry.getSubstationCount(); i++) {
+            long lat = quantize(geometry.getSubstationLat()[i]);
+            long lon = quantize(geometry.getSubstationLon()[i]);
+            writeString(out, geometry.getSubstationIds()[i]);
+            writeZigzag(out, lat - previousLat);
+            writeZigzag(out, lon - previousLon);
+            previousLat = lat;
+            previousLon = lon;
+        }
+
+        ByteArrayOutputStream lineData = new ByteArrayOutputStream(geometry.getLineLat().length * 4);
+        writeVarint(out, geometry.getLineCount());
+        for (int line = 0; line < geometry.getLineCount(); line++) {
+            writeString(out, geometry.getLineIds()[line]);
+            writeVarint(out, geometry.getPointCount(line));
+            writeVarint(out, lineData.size());
+
+            previousLat = 0;
+            previousLon = 0;
+            for (int point = geometry.getLineOffsets()[line]; point < geometry.getLineOffsets()[line + 1]; point++) {
+                long lat = quantize(geometry.getLineLat()[point]);
+                long lon = quantize(geometry.getLineLon()[point]);
+                writeZigzag(lineData, lat - previousLat);
+                writeZigzag(lineData, lon - previousLon);
+                previousLat = lat;
+                previousLon = lon;
+            }
+        }
+        writeVarint(out, lineData.size());
+        out.writeBytes(lineData.toByteArray());
+        return out.toByteArray();
+    }
+
+    public static MapGeometry decode(byte[] data) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        byte[] magic = new byte[MAGIC.length];
+        in.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not an encoded map geometry");
+        }
+        long version = readVarint(in);
+        if (version != VERSION) {
+            throw new IOException("Unsupported map geometry version " + version);
+        }
+        double scale = readVarint(in);
+
+        int substationCount = (int) readVarint(in);
+        String[] substationIds = new String[substationCount];
+        double[] substationLat = new double[substationCount];
+        double[] substationLon = new double[substationCount];
+        long lat = 0;
+        long lon = 0;
+        for (int i = 0; i < substationCount; i++) {
+            substationIds[i] = readString(in);
+            lat += readZigzag(in);
+            lon += readZigzag(in);
+            substationLat[i] = lat / scale;
+            substationLon[i] = lon / scale;
+        }
+
+        int lineCount = (int) readVarint(in);
+        String[] lineIds = new String[lineCount];
+        int[] lineOffsets = new int[lineCount + 1];
+        int[] dataOffsets = new int[lineCount];
+        for (int line = 0; line < lineCount; line++) {
+            lineIds[line] = readString(in);
+            lineOffsets[line + 1] = lineOffsets[line] + (int) readVarint(in);
+            dataOffsets[line] = (int) readVarint(in);
+        }
+        readVarint(in);
+
+        int dataStart = in.position();
+        double[] lineLat = new double[lineOffsets[lineCount]];
+        double[] lineLon = new double[lineOffsets[lineCount]];
+        for (int line = 0; line < lineCount; line++) {
+            in.position(dataStart + dataOffsets[line]);
+            lat = 0;
+            lon = 0;
+            for (int point = lineOffsets[line]; point < lineOffsets[line + 1]; point++) {
+                lat += readZigzag(in);
+                lon += readZigzag(in);
+                lineLat[point] = lat / scale;
+                lineLon[point] = lon / scale;
+            }
+        }
+
+        return new MapGeometry(substationIds, substationLat, substationLon, lineIds, lineOffsets, lineLat, lineLon);
+    }
+
+    private static long quantize(double degrees) {
+        if (!Double.isFinite(degrees)) {
+            throw new IllegalArgumentException("Cannot encode coordinate " + degrees);
+        }
+        return Math.round(degrees * SCALE);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static void writeZigzag(ByteArrayOutputStream out, long value) {
+        writeVarint(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[(int) readVarint(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long readZigzag(ByteBuffer in) {
+        long value = readVarint(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Growable primitive list, avoids boxing every coordinate while parsing
+     */
+    private static final class DoubleList {
+        private double[] values = new double[256];
+        private int size;
+
+        void add(double value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void truncate(int newSize) {
+            size = newSize;
+        }
+
+        double[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
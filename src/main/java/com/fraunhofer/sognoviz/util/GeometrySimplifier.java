@@ -0,0 +1,125 @@
+package com.fraunhofer.sognoviz.util;
+
+import com.fraunhofer.sognoviz.model.MapGeometry;
+
+import java.util.Arrays;
+
+/**
+ * Douglas-Peucker simplification of map line geometry.
+ * Distances are measured in degrees on the plain lat/lon plane, which is accurate enough to drop
+ * points that fall onto the same screen pixel. Substations and line end points are always kept.
+ */
+public final class GeometrySimplifier {
+
+    private static final double TILE_SIZE = 256;
+
+    private GeometrySimplifier() {
+    }
+
+    /**
+     * Size of one screen pixel in degrees of longitude at the given web map zoom level
+     */
+    public static double toleranceForZoom(int zoom) {
+        return 360.0 / (TILE_SIZE * Math.pow(2, Math.max(zoom, 0)));
+    }
+
+    /**
+     * Returns a copy of the geometry whose lines keep only the points that deviate more
+     * than the tolerance (in degrees) from the simplified path
+     */
+    public static MapGeometry simplify(MapGeometry geometry, double tolerance) {
+        if (tolerance <= 0) {
+            return geometry;
+        }
+
+        double[] lat = geometry.getLineLat();
+        double[] lon = geometry.getLineLon();
+        int[] offsets = geometry.getLineOffsets();
+
+        boolean[] keep = new boolean[lat.length];
+        int[] stack = new int[64];
+        int kept = 0;
+        for (int line = 0; line < geometry.getLineCount(); line++) {
+            int first = offsets[line];
+            int last = offsets[line + 1] - 1;
+            if (last < first) {
+                continue;
+            }
+            keep[first] = true;
+            keep[last] = true;
+
+            // iterative to stay clear of deep recursion on lines with many points
+            int top = 0;
+            stack[top++] = first;
+            stack[top++] = last;
+            while (top > 0) {
+                int end = stack[--top];
+                int start = stack[--top];
+
+                int farthest = -1;
+                double maxDistance = tolerance;
+                for (int i = start + 1; i < end; i++) {
+                    double distance = segmentDistance(lat[i], lon[i], lat[start], lon[start], lat[end], lon[end]);
+                    if (distance > maxDistance) {
+                        maxDistance = distance;
+                        farthest = i;
+                    }
+                }
+                if (farthest < 0) {
+                    continue;
+                }
+                keep[farthest] = true;
+                if (top + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[top++] = start;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = end;
+            }
+        }
+        for (boolean k : keep) {
+            if (k) {
+                kept++;
+            }
+        }
+
+        double[] simplifiedLat = new double[kept];
+        double[] simplifiedLon = new double[kept];
+        int[] simplifiedOffsets = new int[offsets.length];
+        int next = 0;
+        for (int line = 0; line < geometry.getLineCount(); line++) {
+            simplifiedOffsets[line] = next;
+            for (int i = offsets[line]; i < offsets[line + 1]; i++) {
+                if (keep[i]) {
+                    simplifiedLat[next] = lat[i];
+                    simplifiedLon[next] = lon[i];
+                    next++;
+                }
+            }
+        }
+        simplifiedOffsets[geometry.getLineCount()] = next;
+
+        return new MapGeometry(
+                geometry.getSubstationIds(),
+                geometry.getSubstationLat(),
+                geometry.getSubstationLon(),
+                geometry.getLineIds(),
+                simplifiedOffsets,
+                simplifiedLat,
+                simplifiedLon
+        );
+    }
+
+    private static double segmentDistance(double lat, double lon, double lat1, double lon1, double lat2, double lon2) {
+        double dLat = lat2 - lat1;
+        double dLon = lon2 - lon1;
+        double lengthSquared = dLat * dLat + dLon * dLon;
+        if (lengthSquared == 0) {
+            return Math.hypot(lat - lat1, lon - lon1);
+        }
+        double t = ((lat - lat1) * dLat + (lon - lon1) * dLon) / lengthSquared;
+        t = Math.max(0, Math.min(1, t));
+        return Math.hypot(lat - (lat1 + t * dLat), lon - (lon1 + t * dLon));
+    }
+}
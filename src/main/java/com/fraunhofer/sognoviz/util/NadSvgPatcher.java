@@ -0,0 +1,411 @@
+package com.fraunhofer.sognoviz.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fraunhofer.sognoviz.model.DiagramPatch;
+import com.fraunhofer.sognoviz.model.DiagramPatch.SvgFragment;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Merges a partial NAD drawing into a complete one.
+ * <p>
+ * After a modification only the voltage levels it touched (the affected ones) are drawn again,
+ * together with their direct neighbours so that the edges between them are complete, with the fixed
+ * layout of the stored diagram. The region of a drawing is everything attached to the affected
+ * voltage levels: their nodes, bus nodes and text nodes, the edges ending at them and the nodes
+ * that are not voltage levels at the other end of those edges (three winding transformers, boundaries).
+ * <p>
+ * Elements are matched between the two drawings by equipment id, since both drawings number their
+ * SVG ids independently. Region elements of the partial drawing take the SVG ids of their counterparts
+ * in the stored drawing, or new ids if they have none; region elements of the stored drawing without
+ * a counterpart are removed. Elements outside the region are left untouched.
+ */
+public final class NadSvgPatcher {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final String NODES = "nodes";
+    private static final String BUS_NODES = "busNodes";
+    private static final String EDGES = "edges";
+    private static final String TEXT_NODES = "textNodes";
+    private static final String[] CATEGORIES = {NODES, BUS_NODES, EDGES, TEXT_NODES};
+
+    private static final String SVG_ID = "svgId";
+    private static final String EQUIPMENT_ID = "equipmentId";
+    private static final String[] REFERENCE_FIELDS = {"vlNode", "node1", "node2", "busNode1", "busNode2"};
+
+    private NadSvgPatcher() {
+    }
+
+    /**
+     * @param patch    Changes for clients holding the stored drawing
+     * @param svg      Patched SVG
+     * @param metadata Patched metadata
+     */
+    public record Result(DiagramPatch patch, String svg, String metadata) {
+    }
+
+    /**
+     * @param svg                   Stored SVG
+     * @param metadata              Stored metadata
+     * @param partialSvg            SVG of the partial drawing
+     * @param partialMetadata       Metadata of the partial drawing
+     * @param affectedVoltageLevels Ids of the voltage levels touched by the modification
+     * @param drawnVoltageLevels    Ids of all voltage levels of the partial drawing
+     */
+    public static Result patch(String svg, String metadata, String partialSvg, String partialMetadata,
+                               Set<String> affectedVoltageLevels, Set<String> drawnVoltageLevels) throws IOException {
+        MetadataIndex original = new MetadataIndex(OBJECT_MAPPER.readTree(metadata),
+                affectedVoltageLevels, drawnVoltageLevels);
+        MetadataIndex partial = new MetadataIndex(OBJECT_MAPPER.readTree(partialMetadata),
+                affectedVoltageLevels, drawnVoltageLevels);
+
+        Document document = parse(svg);
+        Document partialDocument = parse(partialSvg);
+        Map<String, Element> elements = indexIds(document);
+        Map<String, Element> partialElements = indexIds(partialDocument);
+
+        Map<String, String> translation = translateIds(original, partial, elements.keySet());
+
+        List<String> removed = new ArrayList<>();
+        List<String> replacedIds = new ArrayList<>();
+        List<String> addedIds = new ArrayList<>();
+        for (String category : CATEGORIES) {
+            for (String key : original.region(category)) {
+                if (!partial.region(category).contains(key)) {
+                    removed.add(svgId(original.entries(category).get(key)));
+                }
+            }
+            for (String key : partial.region(category)) {
+                String partialId = svgId(partial.entries(category).get(key));
+                if (original.entries(category).containsKey(key)) {
+                    replacedIds.add(partialId);
+                } else {
+                    addedIds.add(partialId);
+                }
+            }
+        }
+
+        Set<Element> selected = new HashSet<>();
+        for (String id : replacedIds) {
+            addIfPresent(selected, partialElements.get(id));
+        }
+        for (String id : addedIds) {
+            addIfPresent(selected, partialElements.get(id));
+        }
+
+        List<SvgFragment> replaced = new ArrayList<>();
+        List<SvgFragment> added = new ArrayList<>();
+        Map<String, Element> groups = indexGroups(document);
+        try {
+            Transformer fragmentWriter = newTransformer(true);
+            for (String id : removed) {
+                Element element = elements.get(id);
+                if (element != null && element.getParentNode() != null) {
+                    element.getParentNode().removeChild(element);
+                }
+            }
+            for (String id : replacedIds) {
+                Element fragment = fragment(partialElements.get(id), selected, translation);
+                if (fragment == null) {
+                    continue;
+                }
+                String parentClass = ((Element) partialElements.get(id).getParentNode()).getAttribute("class");
+                String finalId = fragment.getAttribute("id");
+                Element target = elements.get(finalId);
+                Node imported = document.importNode(fragment, true);
+                if (target != null && target.getParentNode() != null) {
+                    target.getParentNode().replaceChild(imported, target);
+                    replaced.add(new SvgFragment(finalId, parentClass, write(fragmentWriter, fragment)));
+                } else {
+                    appendToGroup(document, groups, parentClass, imported);
+                    added.add(new SvgFragment(finalId, parentClass, write(fragmentWriter, fragment)));
+                }
+            }
+            for (String id : addedIds) {
+                Element fragment = fragment(partialElements.get(id), selected, translation);
+                if (fragment == null) {
+                    continue;
+                }
+                String parentClass = ((Element) partialElements.get(id).getParentNode()).getAttribute("class");
+                appendToGroup(document, groups, parentClass, document.importNode(fragment, true));
+                added.add(new SvgFragment(fragment.getAttribute("id"), parentClass, write(fragmentWriter, fragment)));
+            }
+
+            String patchedMetadata = OBJECT_MAPPER.writeValueAsString(
+                    mergeMetadata(original, partial, translation));
+            String patchedSvg = write(newTransformer(false), document);
+            return new Result(new DiagramPatch(removed, replaced, added, patchedMetadata), patchedSvg, patchedMetadata);
+        } catch (TransformerException e) {
+            throw new IOException("Failed to write patched SVG", e);
+        }
+    }
+
+    // ==================== METADATA ====================
+
+    /**
+     * Metadata entries of one drawing by equipment key, and the keys of its region
+     */
+    private static final class MetadataIndex {
+        private final JsonNode metadata;
+        private final Map<String, Map<String, JsonNode>> entries = new HashMap<>();
+        private final Map<String, Set<String>> region = new HashMap<>();
+
+        private MetadataIndex(JsonNode metadata, Set<String> affectedVoltageLevels, Set<String> drawnVoltageLevels) {
+            this.metadata = metadata;
+            for (String category : CATEGORIES) {
+                entries.put(category, new LinkedHashMap<>());
+                region.put(category, new LinkedHashSet<>());
+            }
+
+            Map<String, String> nodeEquipment = new HashMap<>();
+            Set<String> affectedNodes = new HashSet<>();
+            for (JsonNode node : metadata.path(NODES)) {
+                nodeEquipment.put(svgId(node), equipmentId(node));
+                if (affectedVoltageLevels.contains(equipmentId(node))) {
+                    affectedNodes.add(svgId(node));
+                }
+            }
+
+            Set<String> regionNodes = new HashSet<>(affectedNodes);
+            for (JsonNode edge : metadata.path(EDGES)) {
+                String node1 = edge.path("node1").asText();
+                String node2 = edge.path("node2").asText();
+                // an equipment can have several edges, e.g. the legs of a three winding transformer
+                String key = equipmentId(edge) + "|" + nodeEquipment.get(node1) + "|" + nodeEquipment.get(node2);
+                entries.get(EDGES).put(key, edge);
+                if (affectedNodes.contains(node1) || affectedNodes.contains(node2)) {
+                    region.get(EDGES).add(key);
+                    for (String node : new String[]{node1, node2}) {
+                        if (nodeEquipment.containsKey(node) && !drawnVoltageLevels.contains(nodeEquipment.get(node))) {
+                            regionNodes.add(node);
+                        }
+                    }
+                }
+            }
+
+            for (JsonNode node : metadata.path(NODES)) {
+                entries.get(NODES).put(equipmentId(node), node);
+                if (regionNodes.contains(svgId(node))) {
+                    region.get(NODES).add(equipmentId(node));
+                }
+            }
+            for (JsonNode busNode : metadata.path(BUS_NODES)) {
+                entries.get(BUS_NODES).put(equipmentId(busNode), busNode);
+                if (regionNodes.contains(busNode.path("vlNode").asText())) {
+                    region.get(BUS_NODES).add(equipmentId(busNode));
+                }
+            }
+            for (JsonNode textNode : metadata.path(TEXT_NODES)) {
+                entries.get(TEXT_NODES).put(equipmentId(textNode), textNode);
+                if (affectedNodes.contains(textNode.path("vlNode").asText())) {
+                    region.get(TEXT_NODES).add(equipmentId(textNode));
+                }
+            }
+        }
+
+        private Map<String, JsonNode> entries(String category) {
+            return entries.get(category);
+        }
+
+        private Set<String> region(String category) {
+            return region.get(category);
+        }
+    }
+
+    /**
+     * Maps the SVG ids of the partial drawing to those of the stored drawing, allocating new ids
+     * for elements that only exist in the partial one
+     */
+    private static Map<String, String> translateIds(MetadataIndex original, MetadataIndex partial, Set<String> usedIds) {
+        int nextId = 0;
+        for (String id : usedIds) {
+            try {
+                nextId = Math.max(nextId, Integer.parseInt(id) + 1);
+            } catch (NumberFormatException e) {
+                // only the numeric ids of the default id provider are continued
+            }
+        }
+
+        Map<String, String> translation = new HashMap<>();
+        for (String category : CATEGORIES) {
+            for (Map.Entry<String, JsonNode> entry : partial.entries(category).entrySet()) {
+                JsonNode counterpart = original.entries(category).get(entry.getKey());
+                String id = counterpart != null ? svgId(counterpart) : String.valueOf(nextId++);
+                translation.put(svgId(entry.getValue()), id);
+            }
+        }
+        return translation;
+    }
+
+    private static JsonNode mergeMetadata(MetadataIndex original, MetadataIndex partial, Map<String, String> translation) {
+        ObjectNode merged = ((ObjectNode) original.metadata).deepCopy();
+        for (String category : CATEGORIES) {
+            ArrayNode entries = OBJECT_MAPPER.createArrayNode();
+            original.entries(category).forEach((key, entry) -> {
+                if (!original.region(category).contains(key)) {
+                    entries.add(entry);
+                }
+            });
+            for (String key : partial.region(category)) {
+                ObjectNode entry = ((ObjectNode) partial.entries(category).get(key)).deepCopy();
+                entry.put(SVG_ID, translation.getOrDefault(svgId(entry), svgId(entry)));
+                for (String field : REFERENCE_FIELDS) {
+                    if (entry.hasNonNull(field)) {
+                        String reference = entry.get(field).asText();
+                        entry.put(field, translation.getOrDefault(reference, reference));
+                    }
+                }
+                entries.add(entry);
+            }
+            if (merged.has(category) || !entries.isEmpty()) {
+                merged.set(category, entries);
+            }
+        }
+        return merged;
+    }
+
+    private static String svgId(JsonNode entry) {
+        return entry.path(SVG_ID).asText();
+    }
+
+    private static String equipmentId(JsonNode entry) {
+        return entry.path(EQUIPMENT_ID).asText();
+    }
+
+    // ==================== SVG ====================
+
+    private static void addIfPresent(Set<Element> selected, Element element) {
+        if (element != null) {
+            selected.add(element);
+        }
+    }
+
+    /**
+     * Copy of a partial drawing element with translated ids, or null if it is missing or nested in
+     * another selected element, which carries it along
+     */
+    private static Element fragment(Element element, Set<Element> selected, Map<String, String> translation) {
+        if (element == null) {
+            return null;
+        }
+        for (Node parent = element.getParentNode(); parent != null; parent = parent.getParentNode()) {
+            if (selected.contains(parent)) {
+                return null;
+            }
+        }
+
+        Element copy = (Element) element.cloneNode(true);
+        translateIds(copy, translation);
+        NodeList descendants = copy.getElementsByTagName("*");
+        for (int i = 0; i < descendants.getLength(); i++) {
+            translateIds((Element) descendants.item(i), translation);
+        }
+        return copy;
+    }
+
+    /**
+     * Translates an id, or the longest translated prefix of a derived id such as {@code 12.1} or {@code 12-edge}
+     */
+    private static void translateIds(Element element, Map<String, String> translation) {
+        String id = element.getAttribute("id");
+        if (id.isEmpty()) {
+            return;
+        }
+        if (translation.containsKey(id)) {
+            element.setAttribute("id", translation.get(id));
+            return;
+        }
+        for (int i = id.length() - 1; i > 0; i--) {
+            if (!Character.isLetterOrDigit(id.charAt(i)) && translation.containsKey(id.substring(0, i))) {
+                element.setAttribute("id", translation.get(id.substring(0, i)) + id.substring(i));
+                return;
+            }
+        }
+    }
+
+    private static void appendToGroup(Document document, Map<String, Element> groups, String parentClass, Node node) {
+        Element group = groups.get(parentClass);
+        (group != null ? group : document.getDocumentElement()).appendChild(node);
+    }
+
+    private static Map<String, Element> indexIds(Document document) {
+        Map<String, Element> elements = new HashMap<>();
+        NodeList all = document.getElementsByTagName("*");
+        for (int i = 0; i < all.getLength(); i++) {
+            Element element = (Element) all.item(i);
+            if (element.hasAttribute("id")) {
+                elements.putIfAbsent(element.getAttribute("id"), element);
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * First group element per class, where added elements are appended
+     */
+    private static Map<String, Element> indexGroups(Document document) {
+        Map<String, Element> groups = new HashMap<>();
+        NodeList all = document.getElementsByTagName("*");
+        for (int i = 0; i < all.getLength(); i++) {
+            Element element = (Element) all.item(i);
+            if ("g".equals(element.getLocalName()) && element.hasAttribute("class")) {
+                groups.putIfAbsent(element.getAttribute("class"), element);
+            }
+        }
+        return groups;
+    }
+
+    private static Document parse(String svg) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            return factory.newDocumentBuilder().parse(new InputSource(new StringReader(svg)));
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Failed to parse SVG", e);
+        }
+    }
+
+    private static Transformer newTransformer(boolean omitDeclaration) throws TransformerException {
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, omitDeclaration ? "yes" : "no");
+        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+        return transformer;
+    }
+
+    private static String write(Transformer transformer, Node node) throws TransformerException {
+        StringWriter writer = new StringWriter();
+        transformer.transform(new DOMSource(node), new StreamResult(writer));
+        return writer.toString();
+    }
+}
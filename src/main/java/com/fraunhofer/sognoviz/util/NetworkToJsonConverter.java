@@ -1,5 +1,7 @@
 package com.fraunhofer.sognoviz.util;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.powsybl.iidm.network.*;
@@ -8,6 +10,10 @@ import com.powsybl.iidm.network.extensions.LinePosition;
 import com.powsybl.iidm.network.extensions.SubstationPosition;
 import com.powsybl.iidm.network.extensions.SubstationPositionAdder;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -72,6 +78,147 @@ public class NetworkToJsonConverter {
         }
     }
 
+    // ==================== Streaming export ====================
+    // Writes the same documents as the convert*ToJson methods, but walks the network and writes
+    // straight through a JsonGenerator in compact form, without building the intermediate DTO lists
+
+    /**
+     * Writes substations and their voltage levels to the given stream
+     */
+    public static void writeNetworkJson(Network network, OutputStream out) throws IOException {
+        try (JsonGenerator generator = createGenerator(out)) {
+            generator.writeStartArray();
+            for (Substation substation : network.getSubstations()) {
+                generator.writeStartObject();
+                generator.writeStringField("id", substation.getId());
+                generator.writeStringField("name", substation.getNameOrId());
+                generator.writeArrayFieldStart("voltageLevels");
+                for (VoltageLevel voltageLevel : substation.getVoltageLevels()) {
+                    generator.writeStartObject();
+                    generator.writeStringField("id", voltageLevel.getId());
+                    generator.writeStringField("substationId", substation.getId());
+                    generator.writeNumberField("nominalV", voltageLevel.getNominalV());
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Writes substation positions (SPOS format) to the given stream
+     */
+    public static void writeSubstationPositionsJson(Network network, OutputStream out) throws IOException {
+        int written = 0;
+        try (JsonGenerator generator = createGenerator(out)) {
+            generator.writeStartArray();
+            for (Substation substation : network.getSubstations()) {
+                SubstationPosition substationPosition = substation.getExtension(SubstationPosition.class);
+                if (substationPosition == null) {
+                    continue;
+                }
+                generator.writeStartObject();
+                generator.writeStringField("id", substation.getId());
+                generator.writeFieldName("coordinate");
+                writeCoordinate(generator, substationPosition.getCoordinate());
+                generator.writeEndObject();
+                written++;
+            }
+            generator.writeEndArray();
+        }
+        if (written == 0) {
+            throw new IOException("CGMES Does not have GL Data");
+        }
+    }
+
+    /**
+     * Writes line data (lineMap format) to the given stream
+     */
+    public static void writeLinesJson(Network network, OutputStream out) throws IOException {
+        try (JsonGenerator generator = createGenerator(out)) {
+            generator.writeStartArray();
+            for (Line line : network.getLines()) {
+                Terminal terminal1 = line.getTerminal1();
+                Terminal terminal2 = line.getTerminal2();
+                boolean connected1 = terminal1.isConnected();
+                boolean connected2 = terminal2.isConnected();
+
+                generator.writeStartObject();
+                generator.writeStringField("id", line.getId());
+                generator.writeStringField("voltageLevelId1", terminal1.getVoltageLevel().getId());
+                generator.writeStringField("voltageLevelId2", terminal2.getVoltageLevel().getId());
+                generator.writeStringField("name", line.getNameOrId());
+                generator.writeBooleanField("terminal1Connected", connected1);
+                generator.writeBooleanField("terminal2Connected", connected2);
+                generator.writeNumberField("p1", connected1 ? terminal1.getP() : Double.NaN);
+                generator.writeNumberField("p2", connected2 ? terminal2.getP() : Double.NaN);
+                generator.writeNumberField("i1", connected1 ? terminal1.getI() : Double.NaN);
+                generator.writeNumberField("i2", connected2 ? terminal2.getI() : Double.NaN);
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Writes line positions (linePOS format) to the given stream
+     */
+    @SuppressWarnings("unchecked")
+    public static void writeLinePositionsJson(Network network, OutputStream out) throws IOException {
+        int written = 0;
+        try (JsonGenerator generator = createGenerator(out)) {
+            generator.writeStartArray();
+            for (Line line : network.getLines()) {
+                LinePosition<Line> linePosition = line.getExtension(LinePosition.class);
+                if (linePosition == null) {
+                    continue;
+                }
+                generator.writeStartObject();
+                generator.writeStringField("id", line.getId());
+                generator.writeArrayFieldStart("coordinates");
+                for (Coordinate coordinate : linePosition.getCoordinates()) {
+                    writeCoordinate(generator, coordinate);
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+                written++;
+            }
+            generator.writeEndArray();
+        }
+        if (written == 0) {
+            throw new IOException("CGMES Does not have GL Data");
+        }
+    }
+
+    /**
+     * Runs one of the streaming writers into a String
+     */
+    public static String writeToString(Network network, StreamingExport export) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        export.write(network, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    public interface StreamingExport {
+        void write(Network network, OutputStream out) throws IOException;
+    }
+
+    private static JsonGenerator createGenerator(OutputStream out) throws IOException {
+        // the caller owns the stream
+        return mapper.getFactory().createGenerator(out, JsonEncoding.UTF8)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    private static void writeCoordinate(JsonGenerator generator, Coordinate coordinate) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("lat", coordinate.getLatitude());
+        generator.writeNumberField("lon", coordinate.getLongitude());
+        generator.writeEndObject();
+    }
+
     /**
      * Extracts substation data from the network
      */
@@ -0,0 +1,21 @@
+package com.fraunhofer.sognoviz.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+
+/**
+ * Reads a JSON value into a String holding its JSON text, the counterpart of {@code @JsonRawValue}.
+ * A JSON string is taken as already encoded JSON, as sent by clients of the old string form.
+ */
+public class RawJsonDeserializer extends JsonDeserializer<String> {
+
+    @Override
+    public String deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonNode node = parser.readValueAsTree();
+        return node.isTextual() ? node.asText() : node.toString();
+    }
+}
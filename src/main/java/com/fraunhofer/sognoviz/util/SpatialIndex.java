@@ -0,0 +1,189 @@
+package com.fraunhofer.sognoviz.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable R-tree over bounding boxes, bulk loaded with Sort-Tile-Recursive packing.
+ * Items are identified by their index in the arrays passed to {@link #build}. Points are
+ * boxes with equal min and max. Nodes are packed full, so the tree stays shallow
+ * (three levels for a few thousand items).
+ */
+public final class SpatialIndex {
+
+    private static final int NODE_CAPACITY = 16;
+
+    /**
+     * levels.get(0) holds the items, the last level holds the root nodes
+     */
+    private final List<Level> levels;
+
+    private SpatialIndex(List<Level> levels) {
+        this.levels = levels;
+    }
+
+    public static SpatialIndex build(double[] minX, double[] minY, double[] maxX, double[] maxY) {
+        int size = minX.length;
+        Level items = new Level(size);
+        for (int i = 0; i < size; i++) {
+            items.set(i, minX[i], minY[i], maxX[i], maxY[i], i, i + 1);
+        }
+
+        List<Level> levels = new ArrayList<>();
+        Level current = sortTileRecursive(items);
+        levels.add(current);
+        while (current.size() > NODE_CAPACITY) {
+            current = sortTileRecursive(pack(current));
+            levels.add(current);
+        }
+        return new SpatialIndex(levels);
+    }
+
+    /**
+     * Returns the indexes of all items whose box intersects the query box, in no particular order
+     */
+    public int[] search(double minX, double minY, double maxX, double maxY) {
+        IntList hits = new IntList();
+        int top = levels.size() - 1;
+        Level root = levels.get(top);
+        for (int node = 0; node < root.size(); node++) {
+            search(top, node, minX, minY, maxX, maxY, hits);
+        }
+        return hits.toArray();
+    }
+
+    public int size() {
+        return levels.get(0).size();
+    }
+
+    private void search(int depth, int node, double minX, double minY, double maxX, double maxY, IntList hits) {
+        Level level = levels.get(depth);
+        if (!level.intersects(node, minX, minY, maxX, maxY)) {
+            return;
+        }
+        if (depth == 0) {
+            hits.add(level.start[node]);
+            return;
+        }
+        for (int child = level.start[node]; child < level.end[node]; child++) {
+            search(depth - 1, child, minX, minY, maxX, maxY, hits);
+        }
+    }
+
+    // ==================== BULK LOADING ====================
+
+    /**
+     * Reorders a level so that runs of NODE_CAPACITY entries are spatially close:
+     * sorted into vertical slices by center x, each slice sorted by center y
+     */
+    private static Level sortTileRecursive(Level level) {
+        int size = level.size();
+        int nodeCount = (size + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        int sliceCount = (int) Math.ceil(Math.sqrt(nodeCount));
+        int sliceSize = sliceCount * NODE_CAPACITY;
+
+        Integer[] order = IntStream.range(0, size).boxed().toArray(Integer[]::new);
+        Arrays.sort(order, Comparator.comparingDouble(level::centerX));
+        for (int start = 0; start < size; start += sliceSize) {
+            Arrays.sort(order, start, Math.min(start + sliceSize, size), Comparator.comparingDouble(level::centerY));
+        }
+
+        Level sorted = new Level(size);
+        for (int i = 0; i < size; i++) {
+            int from = order[i];
+            sorted.set(i, level.minX[from], level.minY[from], level.maxX[from], level.maxY[from],
+                    level.start[from], level.end[from]);
+        }
+        return sorted;
+    }
+
+    /**
+     * Groups consecutive runs of NODE_CAPACITY entries into parent nodes
+     */
+    private static Level pack(Level children) {
+        int size = children.size();
+        Level parents = new Level((size + NODE_CAPACITY - 1) / NODE_CAPACITY);
+        for (int parent = 0; parent < parents.size(); parent++) {
+            int start = parent * NODE_CAPACITY;
+            int end = Math.min(start + NODE_CAPACITY, size);
+            double minX = Double.POSITIVE_INFINITY;
+            double minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY;
+            double maxY = Double.NEGATIVE_INFINITY;
+            for (int child = start; child < end; child++) {
+                minX = Math.min(minX, children.minX[child]);
+                minY = Math.min(minY, children.minY[child]);
+                maxX = Math.max(maxX, children.maxX[child]);
+                maxY = Math.max(maxY, children.maxY[child]);
+            }
+            parents.set(parent, minX, minY, maxX, maxY, start, end);
+        }
+        return parents;
+    }
+
+    /**
+     * Boxes of one tree level. For items, start is the item index;
+     * for nodes, start and end are the range of children in the level below.
+     */
+    private static final class Level {
+        private final double[] minX;
+        private final double[] minY;
+        private final double[] maxX;
+        private final double[] maxY;
+        private final int[] start;
+        private final int[] end;
+
+        private Level(int size) {
+            minX = new double[size];
+            minY = new double[size];
+            maxX = new double[size];
+            maxY = new double[size];
+            start = new int[size];
+            end = new int[size];
+        }
+
+        private void set(int i, double minX, double minY, double maxX, double maxY, int start, int end) {
+            this.minX[i] = minX;
+            this.minY[i] = minY;
+            this.maxX[i] = maxX;
+            this.maxY[i] = maxY;
+            this.start[i] = start;
+            this.end[i] = end;
+        }
+
+        private int size() {
+            return minX.length;
+        }
+
+        private double centerX(int i) {
+            return (minX[i] + maxX[i]) / 2;
+        }
+
+        private double centerY(int i) {
+            return (minY[i] + maxY[i]) / 2;
+        }
+
+        private boolean intersects(int i, double queryMinX, double queryMinY, double queryMaxX, double queryMaxY) {
+            return minX[i] <= queryMaxX && maxX[i] >= queryMinX && minY[i] <= queryMaxY && maxY[i] >= queryMinY;
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[32];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.fraunhofer.sognoviz.benchmark;
+
+import com.fraunhofer.sognoviz.util.NetworkToJsonConverter;
+import com.powsybl.iidm.network.*;
+import com.powsybl.iidm.network.extensions.Coordinate;
+import com.powsybl.iidm.network.extensions.LinePositionAdder;
+import com.powsybl.iidm.network.extensions.SubstationPositionAdder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the DTO based map exports with the streaming JsonGenerator exports.
+ * Run with {@code main} (or {@code -prof gc}) to get allocation rates next to throughput. {@code exec:exec}
+ * starts a JVM with the test classpath, which the benchmark forks inherit:
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     -Dexec.args="-classpath %classpath com.fraunhofer.sognoviz.benchmark.NetworkToJsonConverterBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NetworkToJsonConverterBenchmark {
+
+    @Param({"1000"})
+    public int lineCount;
+
+    @Param({"200"})
+    public int coordinatesPerLine;
+
+    private Network network;
+
+    @Setup
+    public void setUp() {
+        network = createNetwork(lineCount, coordinatesPerLine);
+    }
+
+    @Benchmark
+    public String linePositionsDto() {
+        return NetworkToJsonConverter.convertLinePositionsToJson(network);
+    }
+
+    @Benchmark
+    public String linePositionsStreamingToString() throws IOException {
+        return NetworkToJsonConverter.writeToString(network, NetworkToJsonConverter::writeLinePositionsJson);
+    }
+
+    @Benchmark
+    public void linePositionsStreamingToStream() throws IOException {
+        NetworkToJsonConverter.writeLinePositionsJson(network, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public String linesDto() {
+        return NetworkToJsonConverter.convertLinesToJson(network);
+    }
+
+    @Benchmark
+    public String linesStreamingToString() throws IOException {
+        return NetworkToJsonConverter.writeToString(network, NetworkToJsonConverter::writeLinesJson);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(NetworkToJsonConverterBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+    /**
+     * Builds a chain of substations with one line between neighbours, each line carrying
+     * a geographical path with the given number of points
+     */
+    private static Network createNetwork(int lineCount, int coordinatesPerLine) {
+        Network network = Network.create("benchmark", "test");
+        for (int i = 0; i <= lineCount; i++) {
+            Substation substation = network.newSubstation()
+                    .setId("S" + i)
+                    .setCountry(Country.DE)
+                    .add();
+            substation.newExtension(SubstationPositionAdder.class)
+                    .withCoordinate(new Coordinate(48.0 + i * 0.01, 9.0 + i * 0.01))
+                    .add();
+            VoltageLevel voltageLevel = substation.newVoltageLevel()
+                    .setId("VL" + i)
+                    .setNominalV(380)
+                    .setTopologyKind(TopologyKind.BUS_BREAKER)
+                    .add();
+            voltageLevel.getBusBreakerView().newBus()
+                    .setId("B" + i)
+                    .add();
+        }
+
+        for (int i = 0; i < lineCount; i++) {
+            Line line = network.newLine()
+                    .setId("L" + i)
+                    .setVoltageLevel1("VL" + i)
+                    .setBus1("B" + i)
+                    .setVoltageLevel2("VL" + (i + 1))
+                    .setBus2("B" + (i + 1))
+                    .setR(1)
+                    .setX(10)
+                    .add();
+
+            List<Coordinate> coordinates = new ArrayList<>(coordinatesPerLine);
+            for (int c = 0; c < coordinatesPerLine; c++) {
+                double t = (double) c / (coordinatesPerLine - 1);
+                coordinates.add(new Coordinate(48.0 + (i + t) * 0.01, 9.0 + (i + t) * 0.01 + Math.sin(t * Math.PI) * 0.001));
+            }
+            line.newExtension(LinePositionAdder.class)
+                    .withCoordinates(coordinates)
+                    .add();
+        }
+        return network;
+    }
+}
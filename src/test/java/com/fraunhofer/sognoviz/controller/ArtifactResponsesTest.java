@@ -0,0 +1,158 @@
+package com.fraunhofer.sognoviz.controller;
+
+import com.fraunhofer.sognoviz.entity.BlobRef;
+import com.fraunhofer.sognoviz.service.BlobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ArtifactResponsesTest {
+
+    private static final String SVG = "<svg>" + "<circle r=\"1\"/>".repeat(100) + "</svg>";
+
+    @TempDir
+    Path root;
+
+    private BlobStore blobStore;
+    private BlobRef ref;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        blobStore = new BlobStore(root.toString());
+        ref = blobStore.put(SVG);
+        mockMvc = MockMvcBuilders.standaloneSetup(new ArtifactController()).build();
+    }
+
+    @Test
+    void acceptsGzipByNameOrWildcard() {
+        assertThat(ArtifactResponses.acceptsGzip("gzip, deflate, br")).isTrue();
+        assertThat(ArtifactResponses.acceptsGzip("br;q=1.0, GZIP;q=0.5")).isTrue();
+        assertThat(ArtifactResponses.acceptsGzip("*")).isTrue();
+    }
+
+    @Test
+    void rejectsMissingOrExcludedGzip() {
+        assertThat(ArtifactResponses.acceptsGzip(null)).isFalse();
+        assertThat(ArtifactResponses.acceptsGzip("identity")).isFalse();
+        assertThat(ArtifactResponses.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(ArtifactResponses.acceptsGzip("gzip;q=0, *")).isFalse();
+        assertThat(ArtifactResponses.acceptsGzip("*;q=0")).isFalse();
+    }
+
+    @Test
+    void sendsTheStoredGzipFile() throws Exception {
+        MvcResult result = mockMvc.perform(get("/artifact").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().string(HttpHeaders.ETAG, gzipETag()))
+                .andReturn();
+
+        byte[] body = result.getResponse().getContentAsByteArray();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(SVG);
+        }
+    }
+
+    @Test
+    void answersRangesOverTheGzipRepresentation() throws Exception {
+        byte[] stored = Files.readAllBytes(blobStore.getCompressedPath(ref));
+
+        MvcResult result = mockMvc.perform(get("/artifact")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.RANGE, "bytes=0-9"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-9/" + stored.length))
+                .andReturn();
+
+        assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(Arrays.copyOf(stored, 10));
+    }
+
+    @Test
+    void ignoresRangesWhenIfRangeDoesNotMatch() throws Exception {
+        mockMvc.perform(get("/artifact")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.RANGE, "bytes=0-9")
+                        .header(HttpHeaders.IF_RANGE, "\"outdated-gzip\""))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, ref.getStoredSize()));
+    }
+
+    @Test
+    void streamsTheWholeIdentityRepresentation() throws Exception {
+        MvcResult result = mockMvc.perform(get("/artifact"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, SVG.length()))
+                .andReturn();
+
+        assertThat(result.getResponse().getContentAsString(StandardCharsets.UTF_8)).isEqualTo(SVG);
+    }
+
+    @Test
+    void answersRangesOverTheIdentityRepresentation() throws Exception {
+        MvcResult result = mockMvc.perform(get("/artifact").header(HttpHeaders.RANGE, "bytes=5-19"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 5-19/" + SVG.length()))
+                .andReturn();
+
+        assertThat(result.getResponse().getContentAsString(StandardCharsets.UTF_8)).isEqualTo(SVG.substring(5, 20));
+    }
+
+    @Test
+    void rejectsIdentityRangesBeyondTheEnd() throws Exception {
+        mockMvc.perform(get("/artifact").header(HttpHeaders.RANGE, "bytes=" + SVG.length() + "-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + SVG.length()));
+    }
+
+    @Test
+    void answersMatchingETagsWithNotModified() throws Exception {
+        mockMvc.perform(get("/artifact")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, gzipETag()))
+                .andExpect(status().isNotModified());
+    }
+
+    private String gzipETag() {
+        return "\"" + ref.getHash() + "-gzip\"";
+    }
+
+    @RestController
+    public class ArtifactController {
+
+        @GetMapping("/artifact")
+        public ResponseEntity<Resource> get(
+                @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                WebRequest request) throws IOException {
+            return ArtifactResponses.of(blobStore, ref, ArtifactResponses.SVG, acceptEncoding, request);
+        }
+    }
+}
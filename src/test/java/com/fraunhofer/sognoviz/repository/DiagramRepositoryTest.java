@@ -0,0 +1,71 @@
+package com.fraunhofer.sognoviz.repository;
+
+import com.fraunhofer.sognoviz.entity.DiagramEntity;
+import com.fraunhofer.sognoviz.model.DiagramSummary;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class DiagramRepositoryTest {
+
+    private static final LocalDateTime UPDATED_AT = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @Autowired
+    private DiagramRepository diagramRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 7; i++) {
+            DiagramEntity entity = new DiagramEntity();
+            entity.setId("d" + i);
+            entity.setName("diagram " + i);
+            entity.setDiagramType(i % 2 == 0 ? "NAD" : "SLD");
+            entityManager.persist(entity);
+        }
+        entityManager.flush();
+        // the entity callbacks stamp the current time, so the shared timestamp is set in bulk
+        entityManager.createQuery("update DiagramEntity d set d.updatedAt = :updatedAt")
+                .setParameter("updatedAt", UPDATED_AT)
+                .executeUpdate();
+        entityManager.clear();
+    }
+
+    @Test
+    void pagesThroughRowsWithTheSameUpdateTime() {
+        List<String> ids = new ArrayList<>();
+        List<DiagramSummary> page = diagramRepository.findSummaryPage(Limit.of(3));
+        while (!page.isEmpty()) {
+            page.forEach(summary -> ids.add(summary.getId()));
+            DiagramSummary last = page.get(page.size() - 1);
+            page = diagramRepository.findSummaryPageAfter(last.getUpdatedAt(), last.getId(), Limit.of(3));
+        }
+
+        assertThat(ids).containsExactly("d6", "d5", "d4", "d3", "d2", "d1", "d0");
+    }
+
+    @Test
+    void pagesThroughOneDiagramType() {
+        List<String> ids = new ArrayList<>();
+        List<DiagramSummary> page = diagramRepository.findSummaryPageByType("NAD", Limit.of(2));
+        while (!page.isEmpty()) {
+            page.forEach(summary -> ids.add(summary.getId()));
+            DiagramSummary last = page.get(page.size() - 1);
+            page = diagramRepository.findSummaryPageByTypeAfter("NAD", last.getUpdatedAt(), last.getId(), Limit.of(2));
+        }
+
+        assertThat(ids).containsExactly("d6", "d4", "d2", "d0");
+    }
+}
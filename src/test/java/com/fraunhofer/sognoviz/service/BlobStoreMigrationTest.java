@@ -0,0 +1,72 @@
+package com.fraunhofer.sognoviz.service;
+
+import com.fraunhofer.sognoviz.entity.BlobRef;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BlobStoreMigrationTest {
+
+    private static final String SVG = "<svg><circle r=\"1\"/></svg>";
+    private static final String METADATA = "{\"nodes\":[]}";
+
+    @TempDir
+    Path root;
+
+    private JdbcTemplate jdbcTemplate;
+    private BlobStore blobStore;
+    private BlobStoreMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        blobStore = new BlobStore(root.toString());
+        migration = new BlobStoreMigration(jdbcTemplate, blobStore, null, null);
+
+        // a database of an older version after the schema update added the reference columns
+        jdbcTemplate.execute("CREATE TABLE DIAGRAMS (ID VARCHAR(255) PRIMARY KEY, SVG_DATA CLOB, METADATA CLOB,"
+                + " SVG_HASH VARCHAR(64), SVG_SIZE BIGINT, SVG_STORED_SIZE BIGINT,"
+                + " METADATA_HASH VARCHAR(64), METADATA_SIZE BIGINT, METADATA_STORED_SIZE BIGINT)");
+        jdbcTemplate.update("INSERT INTO DIAGRAMS (ID, SVG_DATA, METADATA) VALUES (?, ?, ?)", "d1", SVG, METADATA);
+        jdbcTemplate.update("INSERT INTO DIAGRAMS (ID, SVG_DATA, METADATA) VALUES (?, ?, ?)", "d2", SVG, null);
+    }
+
+    @Test
+    void movesLegacyColumnsIntoTheBlobStoreAndDropsThem() throws Exception {
+        migration.migrate();
+
+        Map<String, Object> first = jdbcTemplate.queryForMap("SELECT * FROM DIAGRAMS WHERE ID = 'd1'");
+        assertThat(first).doesNotContainKeys("SVG_DATA", "METADATA");
+        assertThat(blobStore.read(ref(first, "SVG"))).isEqualTo(SVG);
+        assertThat(blobStore.read(ref(first, "METADATA"))).isEqualTo(METADATA);
+        assertThat(first.get("SVG_SIZE")).isEqualTo((long) SVG.length());
+
+        Map<String, Object> second = jdbcTemplate.queryForMap("SELECT * FROM DIAGRAMS WHERE ID = 'd2'");
+        assertThat(second.get("SVG_HASH")).isEqualTo(first.get("SVG_HASH"));
+        assertThat(second.get("METADATA_HASH")).isNull();
+    }
+
+    @Test
+    void doesNothingOnceMigrated() throws Exception {
+        migration.migrate();
+        Map<String, Object> migrated = jdbcTemplate.queryForMap("SELECT * FROM DIAGRAMS WHERE ID = 'd1'");
+
+        migration.migrate();
+
+        assertThat(jdbcTemplate.queryForMap("SELECT * FROM DIAGRAMS WHERE ID = 'd1'")).isEqualTo(migrated);
+    }
+
+    private static BlobRef ref(Map<String, Object> row, String prefix) {
+        return new BlobRef((String) row.get(prefix + "_HASH"), (Long) row.get(prefix + "_SIZE"),
+                (Long) row.get(prefix + "_STORED_SIZE"));
+    }
+}
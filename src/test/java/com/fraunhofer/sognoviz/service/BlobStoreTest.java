@@ -0,0 +1,71 @@
+package com.fraunhofer.sognoviz.service;
+
+import com.fraunhofer.sognoviz.entity.BlobRef;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BlobStoreTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void storesIdenticalContentOnce() throws IOException {
+        BlobStore blobStore = new BlobStore(root.toString());
+        String svg = "<svg>" + "<line x1=\"0\" y1=\"0\" x2=\"1\" y2=\"1\"/>".repeat(1000) + "</svg>";
+
+        BlobRef first = blobStore.put(svg);
+        BlobRef second = blobStore.put(svg);
+
+        assertThat(second).isEqualTo(first);
+        assertThat(first.getSize()).isEqualTo(svg.length());
+        assertThat(first.getStoredSize()).isLessThan(first.getSize());
+        assertThat(blobStore.read(first)).isEqualTo(svg);
+        try (Stream<Path> files = Files.walk(root)) {
+            assertThat(files.filter(Files::isRegularFile).count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void nullContentHasNoBlob() throws IOException {
+        BlobStore blobStore = new BlobStore(root.toString());
+
+        assertThat(blobStore.put(null)).isNull();
+        assertThat(blobStore.read(null)).isNull();
+    }
+
+    @Test
+    void deletesOnlyUnreferencedBlobsOlderThanTheGracePeriod() throws IOException {
+        BlobStore blobStore = new BlobStore(root.toString());
+        BlobRef live = blobStore.put("live");
+        BlobRef orphan = blobStore.put("orphan");
+        BlobRef recent = blobStore.put("recent");
+        BlobRef reused = blobStore.put("reused");
+        FileTime old = FileTime.from(Instant.now().minus(Duration.ofHours(2)));
+        for (BlobRef ref : new BlobRef[]{live, orphan, reused}) {
+            Files.setLastModifiedTime(blobStore.getCompressedPath(ref), old);
+        }
+        // a save that has not committed its reference yet
+        blobStore.put("reused");
+
+        int deleted = blobStore.deleteUnreferenced(Set.of(live.getHash()), Duration.ofHours(1));
+
+        assertThat(deleted).isEqualTo(1);
+        assertThat(blobStore.read(live)).isEqualTo("live");
+        assertThat(blobStore.read(recent)).isEqualTo("recent");
+        assertThat(blobStore.read(reused)).isEqualTo("reused");
+        assertThat(Files.exists(root.resolve(orphan.getHash().substring(0, 2)).resolve(orphan.getHash() + ".gz")))
+                .isFalse();
+    }
+}
@@ -0,0 +1,167 @@
+package com.fraunhofer.sognoviz.service;
+
+import com.fraunhofer.sognoviz.util.DiagramFileHelper;
+import com.powsybl.iidm.network.*;
+import com.powsybl.iidm.serde.NetworkSerDe;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Renders diagrams of one cached network from many threads at once and checks that every request
+ * gets its own diagram back
+ */
+class DiagramGeneratorServiceConcurrencyTest {
+
+    private static final int PAIR_COUNT = 12;
+    private static final int THREADS = 8;
+
+    @TempDir
+    Path inputDir;
+
+    @TempDir
+    Path storageDir;
+
+    private NetworkCache networkCache;
+    private DiagramGeneratorService service;
+
+    @BeforeEach
+    void setUp() {
+        networkCache = new NetworkCache(0);
+        service = new DiagramGeneratorService(
+                networkCache,
+                new NetworkSnapshotStore(false, storageDir.toString()),
+                new DiagramFileHelper(storageDir.toString()),
+                new NetworkElementCreationService()
+        );
+    }
+
+    @Test
+    void parallelGenerationsFromTheSameNetworkDoNotMixOutputs() throws Exception {
+        Path input = inputDir.resolve("network.xiidm");
+        NetworkSerDe.write(createNetwork(), input);
+        String inputPath = input.toString();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<String>> nadResults = new ArrayList<>();
+            List<Future<String>> sldResults = new ArrayList<>();
+            for (int i = 0; i < PAIR_COUNT; i++) {
+                // every voltage level is a distinct derived artifact, so none of them is served from storage
+                String voltageLevelId = "VL" + i + "A";
+                nadResults.add(executor.submit(() -> {
+                    start.await();
+                    return service.generateNAD(inputPath).getJsonContent();
+                }));
+                sldResults.add(executor.submit(() -> {
+                    start.await();
+                    return service.generateSLD(inputPath, "voltage", voltageLevelId).getJsonContent();
+                }));
+            }
+            start.countDown();
+
+            for (int i = 0; i < PAIR_COUNT; i++) {
+                String nadMetadata = nadResults.get(i).get(2, TimeUnit.MINUTES);
+                String sldMetadata = sldResults.get(i).get(2, TimeUnit.MINUTES);
+
+                assertThat(sldMetadata).contains(quoted("G" + i));
+                for (int j = 0; j < PAIR_COUNT; j++) {
+                    assertThat(nadMetadata).contains(quoted("L" + j));
+                    if (j != i) {
+                        assertThat(sldMetadata).doesNotContain(quoted("G" + j));
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // all requests drew from a single shared import
+        assertThat(networkCache.getStats().getEntries()).isEqualTo(1);
+        assertThat(networkCache.getStats().getEvictions()).isZero();
+        assertThat(storageDir.resolve("objects")).isDirectory();
+    }
+
+    private static String quoted(String id) {
+        return "\"" + id + "\"";
+    }
+
+    /**
+     * Pairs of substations joined by a line, with equipment IDs unique to the index of the pair
+     */
+    private static Network createNetwork() {
+        Network network = Network.create("network", "test");
+        for (int i = 0; i < PAIR_COUNT; i++) {
+            addPair(network, i);
+        }
+        return network;
+    }
+
+    private static void addPair(Network network, int index) {
+
+        VoltageLevel vlA = network.newSubstation()
+                .setId("S" + index + "A")
+                .setCountry(Country.FR)
+                .add()
+                .newVoltageLevel()
+                .setId("VL" + index + "A")
+                .setNominalV(400)
+                .setTopologyKind(TopologyKind.BUS_BREAKER)
+                .add();
+        vlA.getBusBreakerView().newBus().setId("B" + index + "A").add();
+
+        VoltageLevel vlB = network.newSubstation()
+                .setId("S" + index + "B")
+                .setCountry(Country.FR)
+                .add()
+                .newVoltageLevel()
+                .setId("VL" + index + "B")
+                .setNominalV(400)
+                .setTopologyKind(TopologyKind.BUS_BREAKER)
+                .add();
+        vlB.getBusBreakerView().newBus().setId("B" + index + "B").add();
+
+        vlA.newGenerator()
+                .setId("G" + index)
+                .setBus("B" + index + "A")
+                .setConnectableBus("B" + index + "A")
+                .setMinP(0)
+                .setMaxP(100)
+                .setTargetP(50)
+                .setTargetV(400)
+                .setVoltageRegulatorOn(true)
+                .add();
+
+        vlB.newLoad()
+                .setId("LD" + index)
+                .setBus("B" + index + "B")
+                .setConnectableBus("B" + index + "B")
+                .setP0(50)
+                .setQ0(10)
+                .add();
+
+        network.newLine()
+                .setId("L" + index)
+                .setVoltageLevel1(vlA.getId())
+                .setBus1("B" + index + "A")
+                .setConnectableBus1("B" + index + "A")
+                .setVoltageLevel2(vlB.getId())
+                .setBus2("B" + index + "B")
+                .setConnectableBus2("B" + index + "B")
+                .setR(1)
+                .setX(10)
+                .setG1(0)
+                .setB1(0)
+                .setG2(0)
+                .setB2(0)
+                .add();
+    }
+}
@@ -0,0 +1,151 @@
+package com.fraunhofer.sognoviz.service;
+
+import com.fraunhofer.sognoviz.model.DiagramFiles;
+import com.fraunhofer.sognoviz.model.DiagramModel;
+import com.fraunhofer.sognoviz.model.DiagramSummary;
+import com.fraunhofer.sognoviz.model.EditSession;
+import com.fraunhofer.sognoviz.model.NetworkModification;
+import com.fraunhofer.sognoviz.util.DiagramFileHelper;
+import com.powsybl.iidm.network.Network;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class EditSessionServiceTest {
+
+    private static final String DIAGRAM_ID = "diagram";
+    private static final int MAX_HISTORY = 4;
+
+    @TempDir
+    Path storageDir;
+
+    private Network network;
+    private ModificationLogService modificationLogService;
+    private EditSessionService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        network = TestNetworks.createNetwork();
+        Path storedNetwork = Files.writeString(storageDir.resolve("name.xiidm"), "<network/>");
+
+        DiagramGeneratorService diagramGeneratorService = mock(DiagramGeneratorService.class);
+        when(diagramGeneratorService.getStoredNetworkPath("name")).thenReturn(storedNetwork);
+        when(diagramGeneratorService.redrawNad(any(), any(), anyString()))
+                .thenReturn(DiagramFiles.builder().svgContent("<svg/>").jsonContent("{}").build());
+
+        DiagramStorageService diagramStorageService = mock(DiagramStorageService.class);
+        when(diagramStorageService.loadDiagramSummary(DIAGRAM_ID))
+                .thenReturn(new DiagramSummary(DIAGRAM_ID, "name", "NAD", null, null));
+
+        modificationLogService = mock(ModificationLogService.class);
+        when(modificationLogService.getHeadRevision(DIAGRAM_ID)).thenReturn(3);
+        when(modificationLogService.loadNetwork(DIAGRAM_ID, "name", 3)).thenReturn(network);
+
+        service = new EditSessionService(diagramGeneratorService, diagramStorageService, mock(DiagramLayoutCache.class),
+                modificationLogService, new NetworkElementCreationService(),
+                new DiagramFileHelper(storageDir.toString()), 30, 64, MAX_HISTORY);
+    }
+
+    @Test
+    void undoAndRedoSwitchTheWorkingVariant() throws Exception {
+        EditSession session = service.open(DIAGRAM_ID);
+
+        service.disconnect(session.getId(), "LD1");
+        assertThat(isLoadConnected()).isFalse();
+
+        service.undo(session.getId());
+        assertThat(isLoadConnected()).isTrue();
+        assertThat(session.isRedoable()).isTrue();
+
+        service.redo(session.getId());
+        assertThat(isLoadConnected()).isFalse();
+        assertThat(session.isRedoable()).isFalse();
+    }
+
+    @Test
+    void newEditDiscardsTheUndoneSteps() throws Exception {
+        EditSession session = service.open(DIAGRAM_ID);
+        service.disconnect(session.getId(), "LD1");
+        service.setSwitchOpen(session.getId(), "SW1", true);
+        service.undo(session.getId());
+
+        service.connect(session.getId(), "LD1");
+
+        assertThat(session.isRedoable()).isFalse();
+        assertThat(session.getHistorySize()).isEqualTo(3);
+        assertThat(session.getOperations()).containsExactly(new NetworkModification.Disconnect("LD1"),
+                new NetworkModification.Connect("LD1"));
+        assertThat(network.getSwitch("SW1").isOpen()).isFalse();
+        assertThat(network.getVariantManager().getVariantIds()).hasSize(1 + 3);
+    }
+
+    @Test
+    void historyIsCappedAtTheMaximum() throws Exception {
+        EditSession session = service.open(DIAGRAM_ID);
+
+        for (int i = 0; i < MAX_HISTORY + 2; i++) {
+            service.setSwitchOpen(session.getId(), "SW1", i % 2 == 0);
+        }
+
+        assertThat(session.getHistorySize()).isEqualTo(MAX_HISTORY);
+        assertThat(network.getVariantManager().getVariantIds()).hasSize(1 + MAX_HISTORY);
+        // steps beyond the history can no longer be undone, but are still saved
+        assertThat(session.getUnsavedSteps()).isEqualTo(MAX_HISTORY + 2);
+        assertThat(session.getEstimatedBytes())
+                .isEqualTo(session.getNetworkBytes() + MAX_HISTORY * session.getVariantBytes());
+    }
+
+    @Test
+    void failedEditLeavesTheSessionUnchanged() throws Exception {
+        EditSession session = service.open(DIAGRAM_ID);
+        service.disconnect(session.getId(), "LD1");
+        String workingVariant = network.getVariantManager().getWorkingVariantId();
+
+        assertThatThrownBy(() -> service.disconnect(session.getId(), "missing"))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(network.getVariantManager().getWorkingVariantId()).isEqualTo(workingVariant);
+        assertThat(network.getVariantManager().getVariantIds()).hasSize(1 + 2);
+        assertThat(session.getHistorySize()).isEqualTo(2);
+        assertThat(session.getUnsavedSteps()).isEqualTo(1);
+    }
+
+    @Test
+    void unsavedStepsFollowUndoAndSave() throws Exception {
+        when(modificationLogService.append(anyString(), anyInt(), anyList(), any())).thenReturn(4);
+        EditSession session = service.open(DIAGRAM_ID);
+        service.disconnect(session.getId(), "LD1");
+        service.setSwitchOpen(session.getId(), "SW1", true);
+        assertThat(session.getUnsavedSteps()).isEqualTo(2);
+
+        service.undo(session.getId());
+        assertThat(session.getUnsavedSteps()).isEqualTo(1);
+
+        DiagramModel saved = service.save(session.getId());
+
+        verify(modificationLogService).append(DIAGRAM_ID, 3, List.of(new NetworkModification.Disconnect("LD1")),
+                network);
+        assertThat(saved.getSvgData()).isEqualTo("<svg/>");
+        assertThat(saved.getRevision()).isEqualTo(4);
+        assertThat(session.getSavedRevision()).isEqualTo(4);
+        assertThat(session.getUnsavedSteps()).isZero();
+        assertThat(session.isUndoable()).isFalse();
+        assertThat(session.isRedoable()).isTrue();
+    }
+
+    private boolean isLoadConnected() {
+        return network.getLoad("LD1").getTerminal().isConnected();
+    }
+}
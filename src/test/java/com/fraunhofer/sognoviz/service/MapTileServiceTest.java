@@ -0,0 +1,147 @@
+package com.fraunhofer.sognoviz.service;
+
+import com.fraunhofer.sognoviz.model.MapGeometry;
+import com.fraunhofer.sognoviz.util.GeometryCodec;
+import com.fraunhofer.sognoviz.util.GeometrySimplifier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class MapTileServiceTest {
+
+    private static final String MAP_ID = "map";
+
+    // a zoom 8 tile over southern Germany, and a zoom 12 tile inside it
+    private static final int Z = 8;
+    private static final int X = 136;
+    private static final int Y = 88;
+    private static final int DETAIL_Z = 12;
+    private static final int DETAIL_X = X * 16 + 5;
+    private static final int DETAIL_Y = Y * 16 + 5;
+
+    private MapGeometryService mapGeometryService;
+    private MapTileService service;
+
+    private double lat;
+    private double lon;
+    private double edgeLon;
+    private double[] bounds;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // center of the detail tile, without its buffer
+        double[] detail = MapTileService.tileBounds(DETAIL_Z, DETAIL_X, DETAIL_Y);
+        lat = (detail[0] + detail[2]) / 2;
+        lon = (detail[1] + detail[3]) / 2;
+        bounds = MapTileService.tileBounds(Z, X, Y);
+        edgeLon = (X + 1) / Math.pow(2, Z) * 360.0 - 180.0;
+        double bufferLon = bounds[3] - edgeLon;
+
+        String substations = "[" + String.join(",",
+                substation("INSIDE", lat, lon),
+                substation("IN_BUFFER", lat, edgeLon + bufferLon / 2),
+                substation("BEYOND_BUFFER", lat, edgeLon + bufferLon * 2),
+                substation("FAR", lat + 5, lon)) + "]";
+        String lines = "[" + String.join(",",
+                line("CROSSING", lat, lon, lat, lon + 3),
+                // deviates less than a pixel at zoom 8, but more than one at zoom 12
+                line("WIGGLE", lat, lon, lat + 0.002, lon + 0.005, lat - 0.002, lon + 0.01,
+                        lat + 0.002, lon + 0.015, lat, lon + 0.02),
+                line("FAR", lat + 5, lon, lat + 5, lon + 1)) + "]";
+
+        mapGeometryService = spy(new MapGeometryService(mock(MapDiagramStorageService.class), 16));
+        mapGeometryService.prepare(MAP_ID, substations, lines);
+        service = new MapTileService(mapGeometryService, 64);
+    }
+
+    @Test
+    void tileBoundsFollowWebMercator() {
+        double[] world = MapTileService.tileBounds(0, 0, 0);
+
+        assertThat(world[1]).isLessThan(-180);
+        assertThat(world[3]).isGreaterThan(180);
+        assertThat(world[2]).isGreaterThan(85);
+
+        double[] northEast = MapTileService.tileBounds(1, 1, 0);
+        assertThat(northEast[0]).isLessThan(0).isGreaterThan(-10);
+        assertThat(northEast[1]).isLessThan(0).isGreaterThan(-10);
+    }
+
+    @Test
+    void keepsTheSubstationsInsideTheBufferedTile() throws Exception {
+        MapGeometry tile = getTile(Z, X, Y);
+
+        assertThat(tile.getSubstationIds()).containsExactlyInAnyOrder("INSIDE", "IN_BUFFER");
+        assertThat(tile.getLineIds()).containsExactlyInAnyOrder("CROSSING", "WIGGLE");
+    }
+
+    @Test
+    void clipsLinesCrossingTheEdgeToTheBuffer() throws Exception {
+        MapGeometry tile = getTile(Z, X, Y);
+
+        double[] crossing = lineLon(tile, "CROSSING");
+        assertThat(crossing).hasSize(2);
+        assertThat(crossing[0]).isCloseTo(lon, within(1e-6));
+        assertThat(crossing[1]).isCloseTo(bounds[3], within(1e-6)).isGreaterThan(edgeLon);
+    }
+
+    @Test
+    void simplifiesLinesForTheZoom() throws Exception {
+        assertThat(lineLon(getTile(Z, X, Y), "WIGGLE")).hasSize(2);
+        assertThat(lineLon(getTile(DETAIL_Z, DETAIL_X, DETAIL_Y), "WIGGLE")).hasSize(5);
+        verify(mapGeometryService).query(eq(MAP_ID), any(), eq(GeometrySimplifier.toleranceForZoom(Z)));
+    }
+
+    @Test
+    void servesRepeatedRequestsFromTheCache() throws Exception {
+        byte[] first = service.getTile(MAP_ID, Z, X, Y, MapTileService.Format.BINARY);
+        byte[] second = service.getTile(MAP_ID, Z, X, Y, MapTileService.Format.BINARY);
+
+        assertThat(second).isSameAs(first);
+        verify(mapGeometryService, times(1)).query(eq(MAP_ID), any(), anyDouble());
+
+        service.invalidate(MAP_ID);
+        assertThat(service.getTile(MAP_ID, Z, X, Y, MapTileService.Format.BINARY)).isNotSameAs(first);
+        verify(mapGeometryService, times(2)).query(eq(MAP_ID), any(), anyDouble());
+    }
+
+    private MapGeometry getTile(int z, int x, int y) throws Exception {
+        return GeometryCodec.decode(service.getTile(MAP_ID, z, x, y, MapTileService.Format.BINARY));
+    }
+
+    private static double[] lineLon(MapGeometry geometry, String id) {
+        List<Double> points = new ArrayList<>();
+        for (int line = 0; line < geometry.getLineCount(); line++) {
+            if (geometry.getLineIds()[line].equals(id)) {
+                for (int point = geometry.getLineOffsets()[line]; point < geometry.getLineOffsets()[line + 1]; point++) {
+                    points.add(geometry.getLineLon()[point]);
+                }
+            }
+        }
+        return points.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    private static String substation(String id, double lat, double lon) {
+        return "{\"id\": \"" + id + "\", \"coordinate\": " + coordinate(lat, lon) + "}";
+    }
+
+    private static String line(String id, double... points) {
+        List<String> coordinates = new ArrayList<>();
+        for (int i = 0; i < points.length; i += 2) {
+            coordinates.add(coordinate(points[i], points[i + 1]));
+        }
+        return "{\"id\": \"" + id + "\", \"coordinates\": [" + String.join(",", coordinates) + "]}";
+    }
+
+    private static String coordinate(double lat, double lon) {
+        return "{\"lat\": " + lat + ", \"lon\": " + lon + "}";
+    }
+}
@@ -0,0 +1,141 @@
+package com.fraunhofer.sognoviz.service;
+
+import com.fraunhofer.sognoviz.entity.DiagramOperationEntity;
+import com.fraunhofer.sognoviz.model.DiagramFiles;
+import com.fraunhofer.sognoviz.model.DiagramModel;
+import com.fraunhofer.sognoviz.model.DiagramSummary;
+import com.fraunhofer.sognoviz.model.NetworkModification;
+import com.fraunhofer.sognoviz.repository.DiagramOperationRepository;
+import com.fraunhofer.sognoviz.service.NetworkSnapshotStore.RevisionSnapshot;
+import com.powsybl.iidm.network.Network;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ModificationLogServiceTest {
+
+    private static final String DIAGRAM_ID = "diagram";
+
+    private DiagramOperationRepository repository;
+    private DiagramGeneratorService diagramGeneratorService;
+    private DiagramStorageService diagramStorageService;
+    private NetworkSnapshotStore snapshotStore;
+    private ModificationLogService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(DiagramOperationRepository.class);
+        diagramGeneratorService = mock(DiagramGeneratorService.class);
+        diagramStorageService = mock(DiagramStorageService.class);
+        snapshotStore = mock(NetworkSnapshotStore.class);
+        service = new ModificationLogService(repository, diagramGeneratorService, diagramStorageService,
+                new NetworkElementCreationService(), snapshotStore, mock(DiagramLayoutCache.class), 2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void appendsOnlyTheLogEntriesAndSnapshotsAtTheInterval() throws Exception {
+        Network network = TestNetworks.createNetwork();
+
+        int revision = service.append(DIAGRAM_ID, 1, List.of(new NetworkModification.Disconnect("LD1"),
+                new NetworkModification.SetSwitch("SW1", true)), network);
+
+        ArgumentCaptor<List<DiagramOperationEntity>> entries = ArgumentCaptor.forClass(List.class);
+        verify(diagramStorageService).saveRevision(eq(DIAGRAM_ID), eq(1), entries.capture());
+        assertThat(revision).isEqualTo(3);
+        assertThat(entries.getValue()).extracting(DiagramOperationEntity::getRevision).containsExactly(2, 3);
+        assertThat(entries.getValue().get(0).getOperation()).contains("\"type\":\"disconnect\"");
+        verify(snapshotStore).writeRevision(DIAGRAM_ID, 3, network);
+        verify(diagramStorageService, never()).saveDrawing(anyString(), anyInt(), any(), any());
+    }
+
+    @Test
+    void writesNoSnapshotWhenTheRevisionIsRejected() throws Exception {
+        when(diagramStorageService.saveRevision(eq(DIAGRAM_ID), eq(3), anyList()))
+                .thenThrow(new IllegalStateException("Diagram diagram was modified concurrently"));
+
+        assertThatThrownBy(() -> service.append(DIAGRAM_ID, 3,
+                List.of(new NetworkModification.Connect("LD1")), TestNetworks.createNetwork()))
+                .isInstanceOf(IllegalStateException.class);
+        verify(snapshotStore, never()).writeRevision(anyString(), anyInt(), any());
+    }
+
+    @Test
+    void redrawsAStaleDrawingAtTheLatestRevision() throws Exception {
+        when(diagramStorageService.getHeadRevision(DIAGRAM_ID)).thenReturn(2);
+        when(diagramStorageService.getDrawnRevision(DIAGRAM_ID)).thenReturn(0);
+        when(diagramStorageService.loadDiagramSummary(DIAGRAM_ID))
+                .thenReturn(new DiagramSummary(DIAGRAM_ID, "name", "NAD", null, null));
+        when(diagramGeneratorService.loadNetworkForEditing("name")).thenReturn(TestNetworks.createNetwork());
+        when(repository.findByDiagramIdAndRevisionBetweenOrderByRevision(DIAGRAM_ID, 1, 2)).thenReturn(List.of(
+                new DiagramOperationEntity(1L, DIAGRAM_ID, 1, "{\"type\":\"disconnect\",\"equipmentId\":\"LD1\"}", null),
+                new DiagramOperationEntity(2L, DIAGRAM_ID, 2, "{\"type\":\"connect\",\"equipmentId\":\"LD1\"}", null)));
+        when(diagramGeneratorService.redrawNad(any(), any(), eq("name")))
+                .thenReturn(DiagramFiles.builder().svgContent("<svg/>").jsonContent("{}").build());
+
+        service.drawHead(DIAGRAM_ID);
+
+        verify(diagramStorageService).saveDrawing(DIAGRAM_ID, 2, "<svg/>", "{}");
+    }
+
+    @Test
+    void leavesACurrentDrawingAlone() throws Exception {
+        when(diagramStorageService.getHeadRevision(DIAGRAM_ID)).thenReturn(2);
+        when(diagramStorageService.getDrawnRevision(DIAGRAM_ID)).thenReturn(2);
+
+        service.drawHead(DIAGRAM_ID);
+
+        verify(diagramGeneratorService, never()).redrawNad(any(), any(), anyString());
+        verify(diagramStorageService, never()).saveDrawing(anyString(), anyInt(), any(), any());
+    }
+
+    @Test
+    void refusesToPatchADrawingOfAnUnknownRevision() throws Exception {
+        when(diagramStorageService.getHeadRevision(DIAGRAM_ID)).thenReturn(2);
+        when(diagramStorageService.getDrawnRevision(DIAGRAM_ID)).thenReturn(2);
+        when(diagramStorageService.loadDiagram(DIAGRAM_ID)).thenReturn(
+                DiagramModel.builder().id(DIAGRAM_ID).name("name").build(),
+                DiagramModel.builder().id(DIAGRAM_ID).name("name").revision(1).build());
+
+        assertThatThrownBy(() -> service.removeConnectableIncremental(DIAGRAM_ID, "LD1"))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> service.removeConnectableIncremental(DIAGRAM_ID, "LD1"))
+                .isInstanceOf(IllegalStateException.class);
+        verify(diagramGeneratorService, never()).removeConnectableIncremental(any(), anyString(), any(), any());
+        verify(diagramStorageService, never()).saveRevision(anyString(), anyInt(), anyList());
+    }
+
+    @Test
+    void replaysOnlyTheOperationsAfterTheNearestSnapshot() throws Exception {
+        when(diagramStorageService.getHeadRevision(DIAGRAM_ID)).thenReturn(3);
+        when(snapshotStore.readRevision(DIAGRAM_ID, 3)).thenReturn(Optional.of(new RevisionSnapshot(2, TestNetworks.createNetwork())));
+        when(repository.findByDiagramIdAndRevisionBetweenOrderByRevision(DIAGRAM_ID, 3, 3)).thenReturn(List.of(
+                new DiagramOperationEntity(3L, DIAGRAM_ID, 3, "{\"type\":\"disconnect\",\"equipmentId\":\"LD1\"}", null)));
+
+        Network network = service.loadNetwork(DIAGRAM_ID, "name", 3);
+
+        assertThat(network.getLoad("LD1").getTerminal().isConnected()).isFalse();
+        verify(diagramGeneratorService, never()).loadNetworkForEditing(anyString());
+        verify(repository).findByDiagramIdAndRevisionBetweenOrderByRevision(anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    void rejectsRevisionsBeyondTheLatest() {
+        when(diagramStorageService.getHeadRevision(DIAGRAM_ID)).thenReturn(0);
+
+        assertThatThrownBy(() -> service.loadNetwork(DIAGRAM_ID, "name", 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
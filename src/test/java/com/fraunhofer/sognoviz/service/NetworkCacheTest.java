@@ -0,0 +1,111 @@
+package com.fraunhofer.sognoviz.service;
+
+import com.powsybl.iidm.network.Network;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NetworkCacheTest {
+
+    // estimated at 4 x 100 KB, so two sources fit into a 1 MB cache but three do not
+    private static final int SOURCE_SIZE = 100 * 1024;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void evictsTheLeastRecentlyUsedNetwork() throws IOException {
+        NetworkCache cache = new NetworkCache(1);
+        Path a = source("a", 1);
+        Path b = source("b", 2);
+        Path c = source("c", 3);
+        Properties params = new Properties();
+
+        cache.get(a, params, () -> Network.create("a", "test"));
+        cache.get(b, params, () -> Network.create("b", "test"));
+        cache.get(a, params, () -> Network.create("a2", "test"));
+        cache.get(c, params, () -> Network.create("c", "test"));
+
+        assertThat(cache.getIfPresent(a, params)).map(Network::getId).contains("a");
+        assertThat(cache.getIfPresent(b, params)).isEmpty();
+        assertThat(cache.getIfPresent(c, params)).map(Network::getId).contains("c");
+        assertThat(cache.getStats().getEvictions()).isEqualTo(1);
+        assertThat(cache.getStats().getEntries()).isEqualTo(2);
+        // lookups without a load count as well
+        assertThat(cache.getStats().getHits()).isEqualTo(3);
+        assertThat(cache.getStats().getMisses()).isEqualTo(4);
+    }
+
+    @Test
+    void concurrentMissesOnTheSameKeyLoadOnce() throws Exception {
+        NetworkCache cache = new NetworkCache(64);
+        Path source = source("shared", 1);
+        Properties params = new Properties();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Network>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> cache.get(source, params, () -> {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    release.await();
+                    return Network.create("shared", "test");
+                })));
+            }
+            assertThat(loading.await(10, TimeUnit.SECONDS)).isTrue();
+            // let the other requests queue up behind the in-flight load
+            Thread.sleep(200);
+            release.countDown();
+
+            Network first = results.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<Network> result : results) {
+                assertThat(result.get(10, TimeUnit.SECONDS)).isSameAs(first);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void keysSeparateImportPropertiesAndShareIdenticalContent() throws IOException {
+        NetworkCache cache = new NetworkCache(64);
+        Path source = source("model", 1);
+        Path copy = Files.copy(source, dir.resolve("copy.xiidm"));
+        Properties defaults = new Properties();
+        Properties other = new Properties();
+        other.put("iidm.import.cgmes.post-processors", "cgmesGLImport");
+
+        Network network = cache.get(source, defaults, () -> Network.create("defaults", "test"));
+
+        assertThat(cache.getIfPresent(source, other)).isEmpty();
+        assertThat(cache.get(source, other, () -> Network.create("other", "test")).getId()).isEqualTo("other");
+        // the same upload stored under another name hits the same entry
+        assertThat(cache.getIfPresent(copy, defaults)).containsSame(network);
+    }
+
+    private Path source(String name, int seed) throws IOException {
+        byte[] content = new byte[SOURCE_SIZE];
+        Arrays.fill(content, (byte) seed);
+        return Files.write(dir.resolve(name + ".xiidm"), content);
+    }
+}
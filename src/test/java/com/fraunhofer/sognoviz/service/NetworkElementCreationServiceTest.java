@@ -0,0 +1,51 @@
+package com.fraunhofer.sognoviz.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fraunhofer.sognoviz.model.NetworkModification;
+import com.powsybl.iidm.network.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NetworkElementCreationServiceTest {
+
+    private static final String BATCH = "["
+            + "{\"type\":\"createSubstation\",\"substationId\":\"S2\",\"substationName\":\"S2\",\"country\":\"DE\"},"
+            + "{\"type\":\"createVoltageLevel\",\"substationId\":\"S2\",\"voltageLevelId\":\"VL2\","
+            + "\"voltageLevelName\":\"VL2\",\"nominalV\":110,\"topologyKind\":\"BUS_BREAKER\"},"
+            + "{\"type\":\"removeConnectable\",\"equipmentId\":\"LD1\"}"
+            + "]";
+
+    private final NetworkElementCreationService service = new NetworkElementCreationService();
+
+    @Test
+    void appliesModificationsReadFromJsonInOrder() throws Exception {
+        List<NetworkModification> modifications = new ObjectMapper().readValue(BATCH, new TypeReference<>() {
+        });
+        Network network = TestNetworks.createNetwork();
+
+        modifications.forEach(modification -> service.apply(network, modification));
+
+        assertThat(modifications).hasExactlyElementsOfTypes(NetworkModification.CreateSubstation.class,
+                NetworkModification.CreateVoltageLevel.class, NetworkModification.RemoveConnectable.class);
+        assertThat(network.getSubstation("S2").getCountry()).contains(Country.DE);
+        assertThat(network.getVoltageLevel("VL2").getSubstation()).contains(network.getSubstation("S2"));
+        assertThat(network.getLoad("LD1")).isNull();
+    }
+
+    @Test
+    void rejectsModificationsOfMissingElements() {
+        NetworkModification.CreateLoad createLoad = new NetworkModification.CreateLoad();
+        createLoad.setLoadId("LD2");
+        createLoad.setVoltageLevelId("VL9");
+        createLoad.setBusOrBusbarId("B1");
+
+        assertThatThrownBy(() -> service.apply(TestNetworks.createNetwork(), createLoad))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("VL9");
+    }
+}
@@ -0,0 +1,48 @@
+package com.fraunhofer.sognoviz.service;
+
+import com.powsybl.iidm.network.Country;
+import com.powsybl.iidm.network.Network;
+import com.powsybl.iidm.network.TopologyKind;
+import com.powsybl.iidm.network.VoltageLevel;
+
+/**
+ * Small in-memory networks shared by the service tests
+ */
+final class TestNetworks {
+
+    private TestNetworks() {
+    }
+
+    /**
+     * One bus breaker voltage level VL1 in substation S1, with buses B1 and B2 joined by the closed
+     * breaker SW1 and the load LD1 connected to B1
+     */
+    static Network createNetwork() {
+        Network network = Network.create("network", "test");
+        VoltageLevel voltageLevel = network.newSubstation()
+                .setId("S1")
+                .setCountry(Country.FR)
+                .add()
+                .newVoltageLevel()
+                .setId("VL1")
+                .setNominalV(400)
+                .setTopologyKind(TopologyKind.BUS_BREAKER)
+                .add();
+        voltageLevel.getBusBreakerView().newBus().setId("B1").add();
+        voltageLevel.getBusBreakerView().newBus().setId("B2").add();
+        voltageLevel.getBusBreakerView().newSwitch()
+                .setId("SW1")
+                .setBus1("B1")
+                .setBus2("B2")
+                .setOpen(false)
+                .add();
+        voltageLevel.newLoad()
+                .setId("LD1")
+                .setBus("B1")
+                .setConnectableBus("B1")
+                .setP0(50)
+                .setQ0(10)
+                .add();
+        return network;
+    }
+}
@@ -0,0 +1,70 @@
+package com.fraunhofer.sognoviz.util;
+
+import com.fraunhofer.sognoviz.DTO.VoltageLevelDTO;
+import com.powsybl.cgmes.conformity.CgmesConformity1Catalog;
+import com.powsybl.cgmes.model.GridModelReference;
+import com.powsybl.commons.datasource.ReadOnlyDataSource;
+import com.powsybl.iidm.network.Network;
+import com.powsybl.iidm.network.TopologyKind;
+import com.powsybl.iidm.network.VoltageLevel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the scanned selection data with a full CGMES import of the same model
+ */
+class CgmesSelectionScannerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void busBranchModelWithBoundaryMatchesImport() throws IOException {
+        assertMatchesImport(CgmesConformity1Catalog.smallBusBranch(), TopologyKind.BUS_BREAKER);
+    }
+
+    @Test
+    void nodeBreakerModelMatchesImport() throws IOException {
+        assertMatchesImport(CgmesConformity1Catalog.miniNodeBreaker(), TopologyKind.NODE_BREAKER);
+    }
+
+    private void assertMatchesImport(GridModelReference model, TopologyKind expected) throws IOException {
+        Path zip = zip(model.dataSource(), dir.resolve(model.name() + ".zip"));
+
+        CgmesSelectionScanner.SelectionData scanned = CgmesSelectionScanner.scan(zip).orElseThrow();
+        Network network = Network.read(zip);
+
+        Map<String, TopologyKind> imported = network.getVoltageLevelStream()
+                .collect(Collectors.toMap(VoltageLevel::getId, VoltageLevel::getTopologyKind));
+        Map<String, TopologyKind> scannedKinds = scanned.getVoltageLevels().stream()
+                .collect(Collectors.toMap(VoltageLevelDTO::getId, VoltageLevelDTO::getTopologyKind));
+
+        assertThat(scannedKinds).isEqualTo(imported);
+        assertThat(scannedKinds).containsValue(expected);
+        assertThat(scanned.getSubstations()).hasSize(network.getSubstationCount());
+    }
+
+    private static Path zip(ReadOnlyDataSource dataSource, Path target) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(target))) {
+            for (String name : dataSource.listNames(".*")) {
+                out.putNextEntry(new ZipEntry(name));
+                try (InputStream in = dataSource.newInputStream(name)) {
+                    in.transferTo(out);
+                }
+                out.closeEntry();
+            }
+        }
+        return target;
+    }
+}
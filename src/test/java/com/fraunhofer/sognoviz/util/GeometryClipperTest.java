@@ -0,0 +1,50 @@
+package com.fraunhofer.sognoviz.util;
+
+import com.fraunhofer.sognoviz.model.MapGeometry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class GeometryClipperTest {
+
+    private static final double[] BOUNDS = {-1, -1, 1, 1};
+
+    @Test
+    void clipsLinesToTileAndSplitsRepeatedCrossings() {
+        MapGeometry geometry = new MapGeometry(
+                new String[]{"S1", "S2"}, new double[]{0, 5}, new double[]{0, 5},
+                new String[]{"L1", "L2", "L3"},
+                new int[]{0, 2, 4, 9},
+                new double[]{0, 0, 5, 6, 0, 0, 0, 0.5, 0.5},
+                new double[]{-10, 10, 5, 6, -5, 0, 5, 5, 0.5}
+        );
+
+        MapGeometry tile = GeometryClipper.clip(geometry, BOUNDS);
+
+        assertThat(tile.getSubstationIds()).containsExactly("S1");
+        assertThat(tile.getLineIds()).containsExactly("L1", "L3", "L3");
+        assertThat(tile.getLineOffsets()).containsExactly(0, 2, 5, 7);
+
+        double[] expectedLat = {0, 0, 0, 0, 0, 0.5, 0.5};
+        double[] expectedLon = {-1, 1, -1, 0, 1, 1, 0.5};
+        for (int i = 0; i < expectedLat.length; i++) {
+            assertThat(tile.getLineLat()[i]).isCloseTo(expectedLat[i], within(1e-9));
+            assertThat(tile.getLineLon()[i]).isCloseTo(expectedLon[i], within(1e-9));
+        }
+    }
+
+    @Test
+    void detectsLinesCrossingBoundsWithoutPointsInside() {
+        MapGeometry geometry = new MapGeometry(
+                new String[0], new double[0], new double[0],
+                new String[]{"L1", "L2"},
+                new int[]{0, 2, 4},
+                new double[]{-5, 5, 2, 3},
+                new double[]{0, 0, -5, 5}
+        );
+
+        assertThat(GeometryClipper.intersects(geometry, 0, BOUNDS)).isTrue();
+        assertThat(GeometryClipper.intersects(geometry, 1, BOUNDS)).isFalse();
+    }
+}
@@ -0,0 +1,98 @@
+package com.fraunhofer.sognoviz.util;
+
+import com.fraunhofer.sognoviz.model.MapGeometry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class GeometryCodecTest {
+
+    private static final String SUBSTATION_POSITIONS = """
+            [
+              {"id": "S1", "coordinate": {"lat": 48.137154, "lon": 11.576124}},
+              {"id": "S2", "coordinate": {"lat": 52.520008, "lon": 13.404954}}
+            ]""";
+
+    private static final String LINE_POSITIONS = """
+            [
+              {"id": "L1", "coordinates": [
+                {"lat": 48.137154, "lon": 11.576124},
+                {"lat": 50.110924, "lon": 8.682127},
+                {"lat": 52.520008, "lon": 13.404954}
+              ]},
+              {"id": "L2", "coordinates": []},
+              {"id": "L3", "coordinates": [
+                {"lat": -33.868820, "lon": 151.209296},
+                {"lat": -33.868821, "lon": 151.209297}
+              ]}
+            ]""";
+
+    @Test
+    void readsPositionExports() throws Exception {
+        MapGeometry geometry = GeometryCodec.readJson(SUBSTATION_POSITIONS, LINE_POSITIONS);
+
+        assertThat(geometry.getSubstationIds()).containsExactly("S1", "S2");
+        assertThat(geometry.getLineIds()).containsExactly("L1", "L2", "L3");
+        assertThat(geometry.getLineOffsets()).containsExactly(0, 3, 3, 5);
+        assertThat(geometry.getLineLon()[1]).isEqualTo(8.682127);
+    }
+
+    @Test
+    void binaryRoundTripKeepsMicroDegreePrecision() throws Exception {
+        MapGeometry geometry = GeometryCodec.readJson(SUBSTATION_POSITIONS, LINE_POSITIONS);
+
+        byte[] encoded = GeometryCodec.encode(geometry);
+        MapGeometry decoded = GeometryCodec.decode(encoded);
+
+        assertThat(decoded.getSubstationIds()).containsExactly(geometry.getSubstationIds());
+        assertThat(decoded.getLineIds()).containsExactly(geometry.getLineIds());
+        assertThat(decoded.getLineOffsets()).containsExactly(geometry.getLineOffsets());
+        for (int i = 0; i < geometry.getLineLat().length; i++) {
+            assertThat(decoded.getLineLat()[i]).isCloseTo(geometry.getLineLat()[i], within(1e-6));
+            assertThat(decoded.getLineLon()[i]).isCloseTo(geometry.getLineLon()[i], within(1e-6));
+        }
+        for (int i = 0; i < geometry.getSubstationCount(); i++) {
+            assertThat(decoded.getSubstationLat()[i]).isCloseTo(geometry.getSubstationLat()[i], within(1e-6));
+            assertThat(decoded.getSubstationLon()[i]).isCloseTo(geometry.getSubstationLon()[i], within(1e-6));
+        }
+
+        assertThat(encoded.length).isLessThan(LINE_POSITIONS.getBytes(StandardCharsets.UTF_8).length / 3);
+    }
+
+    @Test
+    void skipsPointsWithoutFiniteCoordinates() throws Exception {
+        MapGeometry geometry = GeometryCodec.readJson("""
+                [
+                  {"id": "S1", "coordinate": {"lat": "NaN", "lon": 11.576124}},
+                  {"id": "S2", "coordinate": {"lat": 52.520008}},
+                  {"id": "S3", "coordinate": {"lat": 50.110924, "lon": 8.682127}}
+                ]""", """
+                [
+                  {"id": "L1", "coordinates": [
+                    {"lat": 48.137154, "lon": 11.576124},
+                    {"lat": "NaN", "lon": "NaN"},
+                    {"lat": 52.520008, "lon": 13.404954}
+                  ]}
+                ]""");
+
+        assertThat(geometry.getSubstationIds()).containsExactly("S3");
+        assertThat(geometry.getLineOffsets()).containsExactly(0, 2);
+        assertThat(geometry.getLineLat()).containsExactly(48.137154, 52.520008);
+
+        // no point near 0/0 appears after a round trip
+        MapGeometry decoded = GeometryCodec.decode(GeometryCodec.encode(geometry));
+        assertThat(decoded.getLineLat()).allSatisfy(lat -> assertThat(lat).isGreaterThan(48));
+    }
+
+    @Test
+    void rejectsEncodingNonFiniteCoordinates() {
+        MapGeometry geometry = new MapGeometry(new String[]{"S1"}, new double[]{Double.NaN}, new double[]{11.5},
+                new String[0], new int[]{0}, new double[0], new double[0]);
+
+        assertThatThrownBy(() -> GeometryCodec.encode(geometry)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
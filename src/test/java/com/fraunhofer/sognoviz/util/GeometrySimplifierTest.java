@@ -0,0 +1,39 @@
+package com.fraunhofer.sognoviz.util;
+
+import com.fraunhofer.sognoviz.model.MapGeometry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GeometrySimplifierTest {
+
+    @Test
+    void dropsPointsWithinToleranceAndKeepsEndPoints() {
+        // a straight line with a small wiggle followed by a clear corner, then a line with a single point
+        MapGeometry geometry = new MapGeometry(
+                new String[]{"S1"}, new double[]{50}, new double[]{10},
+                new String[]{"L1", "L2"},
+                new int[]{0, 5, 6},
+                new double[]{50.0, 50.1, 50.2, 50.3, 51.3, 48.0},
+                new double[]{10.0, 10.1001, 10.2, 10.3, 10.3, 9.0}
+        );
+
+        MapGeometry simplified = GeometrySimplifier.simplify(geometry, 0.01);
+
+        assertThat(simplified.getLineOffsets()).containsExactly(0, 3, 4);
+        assertThat(simplified.getLineLat()).containsExactly(50.0, 50.3, 51.3, 48.0);
+        assertThat(simplified.getLineLon()).containsExactly(10.0, 10.3, 10.3, 9.0);
+        assertThat(simplified.getSubstationIds()).containsExactly("S1");
+    }
+
+    @Test
+    void zeroToleranceKeepsGeometry() {
+        MapGeometry geometry = new MapGeometry(
+                new String[0], new double[0], new double[0],
+                new String[]{"L1"}, new int[]{0, 3},
+                new double[]{0, 0.5, 1}, new double[]{0, 0.5, 1}
+        );
+
+        assertThat(GeometrySimplifier.simplify(geometry, 0)).isSameAs(geometry);
+    }
+}
@@ -0,0 +1,100 @@
+package com.fraunhofer.sognoviz.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fraunhofer.sognoviz.model.DiagramPatch;
+import com.fraunhofer.sognoviz.model.DiagramPatch.SvgFragment;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NadSvgPatcherTest {
+
+    private static final String SVG = "<svg xmlns=\"http://www.w3.org/2000/svg\">"
+            + "<g class=\"nad-vl-nodes\">"
+            + "<g id=\"0\"><circle id=\"1\" r=\"1\"/></g>"
+            + "<g id=\"2\"><circle id=\"3\" r=\"1\"/></g>"
+            + "<g id=\"4\"><circle id=\"5\" r=\"1\"/></g>"
+            + "</g>"
+            + "<g class=\"nad-branch-edges\">"
+            + "<g id=\"6\"><polyline id=\"6.1\" points=\"0,0 1,1\"/></g>"
+            + "<g id=\"7\"><polyline id=\"7.1\" points=\"1,1 2,2\"/></g>"
+            + "</g>"
+            + "<g class=\"nad-text-nodes\"><text id=\"0-textnode\">VL1 old</text></g>"
+            + "</svg>";
+
+    private static final String METADATA = "{\"svgParameters\":{},"
+            + "\"nodes\":[" + node("0", "VL1") + "," + node("2", "VL2") + "," + node("4", "VL3") + "],"
+            + "\"busNodes\":[" + busNode("1", "B1", "0") + "," + busNode("3", "B2", "2") + "," + busNode("5", "B3", "4") + "],"
+            + "\"edges\":[" + edge("6", "L12", "0", "2") + "," + edge("7", "L23", "2", "4") + "],"
+            + "\"textNodes\":[" + textNode("0-textnode", "VL1", "0") + "]}";
+
+    // the partial drawing numbers its elements independently
+    private static final String PARTIAL_SVG = "<svg xmlns=\"http://www.w3.org/2000/svg\">"
+            + "<g class=\"nad-vl-nodes\">"
+            + "<g id=\"10\"><circle id=\"13\" r=\"2\"/></g>"
+            + "<g id=\"11\"><circle id=\"14\" r=\"2\"/></g>"
+            + "<g id=\"12\"><circle id=\"15\" r=\"2\"/></g>"
+            + "</g>"
+            + "<g class=\"nad-branch-edges\">"
+            + "<g id=\"16\"><polyline id=\"16.1\" points=\"1,1 2,2\"/></g>"
+            + "<g id=\"17\"><polyline id=\"17.1\" points=\"0,0 1,1\"/></g>"
+            + "</g>"
+            + "<g class=\"nad-text-nodes\"><text id=\"10-textnode\">VL1 new</text></g>"
+            + "</svg>";
+
+    private static final String PARTIAL_METADATA = "{\"svgParameters\":{},"
+            + "\"nodes\":[" + node("10", "VL1") + "," + node("11", "VL2") + "," + node("12", "VL3") + "],"
+            + "\"busNodes\":[" + busNode("13", "B1", "10") + "," + busNode("14", "B2", "11") + "," + busNode("15", "B3", "12") + "],"
+            + "\"edges\":[" + edge("16", "L23", "11", "12") + "," + edge("17", "T12", "10", "11") + "],"
+            + "\"textNodes\":[" + textNode("10-textnode", "VL1", "10") + "]}";
+
+    @Test
+    void patchesOnlyTheAffectedRegion() throws IOException {
+        // L12 was replaced by T12 between VL1 and VL2
+        NadSvgPatcher.Result result = NadSvgPatcher.patch(SVG, METADATA, PARTIAL_SVG, PARTIAL_METADATA,
+                Set.of("VL1", "VL2"), Set.of("VL1", "VL2", "VL3"));
+        DiagramPatch patch = result.patch();
+
+        assertThat(patch.getRemoved()).containsExactly("6");
+        // bus nodes travel with their voltage level nodes
+        assertThat(patch.getReplaced()).extracting(SvgFragment::getId)
+                .containsExactly("0", "2", "7", "0-textnode");
+        assertThat(patch.getAdded()).extracting(SvgFragment::getId).containsExactly("8");
+        assertThat(patch.getAdded().get(0).getParentClass()).isEqualTo("nad-branch-edges");
+        assertThat(patch.getAdded().get(0).getSvg()).contains("id=\"8.1\"");
+        assertThat(patch.getReplaced().get(0).getSvg()).contains("id=\"1\"").contains("r=\"2\"");
+
+        // VL3 is only drawn as a neighbour and keeps its stored element
+        assertThat(result.svg())
+                .contains("<g id=\"4\"><circle id=\"5\" r=\"1\"/></g>")
+                .contains("VL1 new")
+                .doesNotContain("id=\"6\"");
+
+        JsonNode metadata = new ObjectMapper().readTree(result.metadata());
+        assertThat(metadata.get("edges")).hasSize(2);
+        assertThat(metadata.get("edges").findValuesAsText("svgId")).containsExactlyInAnyOrder("7", "8");
+        assertThat(metadata.get("edges").findValuesAsText("equipmentId")).containsExactlyInAnyOrder("L23", "T12");
+        assertThat(metadata.get("busNodes").findValuesAsText("vlNode")).containsExactlyInAnyOrder("0", "2", "4");
+    }
+
+    private static String node(String svgId, String equipmentId) {
+        return "{\"svgId\":\"" + svgId + "\",\"equipmentId\":\"" + equipmentId + "\"}";
+    }
+
+    private static String busNode(String svgId, String equipmentId, String vlNode) {
+        return "{\"svgId\":\"" + svgId + "\",\"equipmentId\":\"" + equipmentId + "\",\"vlNode\":\"" + vlNode + "\"}";
+    }
+
+    private static String edge(String svgId, String equipmentId, String node1, String node2) {
+        return "{\"svgId\":\"" + svgId + "\",\"equipmentId\":\"" + equipmentId
+                + "\",\"node1\":\"" + node1 + "\",\"node2\":\"" + node2 + "\"}";
+    }
+
+    private static String textNode(String svgId, String equipmentId, String vlNode) {
+        return "{\"svgId\":\"" + svgId + "\",\"equipmentId\":\"" + equipmentId + "\",\"vlNode\":\"" + vlNode + "\"}";
+    }
+}
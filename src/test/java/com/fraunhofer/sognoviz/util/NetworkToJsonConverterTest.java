@@ -0,0 +1,107 @@
+package com.fraunhofer.sognoviz.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.powsybl.iidm.network.*;
+import com.powsybl.iidm.network.extensions.Coordinate;
+import com.powsybl.iidm.network.extensions.LinePositionAdder;
+import com.powsybl.iidm.network.extensions.SubstationPositionAdder;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The streaming writers must produce the same documents as the DTO serialization they replaced
+ */
+class NetworkToJsonConverterTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Network network = createNetwork();
+
+    @Test
+    void networkJsonMatchesDtoSerialization() throws IOException {
+        assertSameJson(NetworkToJsonConverter.convertNetworkToJson(network),
+                NetworkToJsonConverter.writeToString(network, NetworkToJsonConverter::writeNetworkJson));
+    }
+
+    @Test
+    void substationPositionsJsonMatchesDtoSerialization() throws IOException {
+        assertSameJson(NetworkToJsonConverter.convertSubstationPositionsToJson(network),
+                NetworkToJsonConverter.writeToString(network, NetworkToJsonConverter::writeSubstationPositionsJson));
+    }
+
+    @Test
+    void linesJsonMatchesDtoSerialization() throws IOException {
+        assertSameJson(NetworkToJsonConverter.convertLinesToJson(network),
+                NetworkToJsonConverter.writeToString(network, NetworkToJsonConverter::writeLinesJson));
+    }
+
+    @Test
+    void linePositionsJsonMatchesDtoSerialization() throws IOException {
+        assertSameJson(NetworkToJsonConverter.convertLinePositionsToJson(network),
+                NetworkToJsonConverter.writeToString(network, NetworkToJsonConverter::writeLinePositionsJson));
+    }
+
+    private static void assertSameJson(String expected, String actual) throws IOException {
+        assertThat(OBJECT_MAPPER.readTree(actual)).isEqualTo(OBJECT_MAPPER.readTree(expected));
+    }
+
+    /**
+     * Three substations, one without a position, joined by a line with a path and a
+     * partly disconnected line without one
+     */
+    private static Network createNetwork() {
+        Network network = Network.create("network", "test");
+        for (int i = 0; i < 3; i++) {
+            Substation substation = network.newSubstation()
+                    .setId("S" + i)
+                    .setName("Substation " + i)
+                    .setCountry(Country.DE)
+                    .add();
+            if (i < 2) {
+                substation.newExtension(SubstationPositionAdder.class)
+                        .withCoordinate(new Coordinate(48.1 + i, 9.2 + i))
+                        .add();
+            }
+            VoltageLevel voltageLevel = substation.newVoltageLevel()
+                    .setId("VL" + i)
+                    .setNominalV(i == 2 ? 110 : 380)
+                    .setTopologyKind(TopologyKind.BUS_BREAKER)
+                    .add();
+            voltageLevel.getBusBreakerView().newBus()
+                    .setId("B" + i)
+                    .add();
+        }
+
+        Line withPath = network.newLine()
+                .setId("L01")
+                .setVoltageLevel1("VL0")
+                .setBus1("B0")
+                .setVoltageLevel2("VL1")
+                .setBus2("B1")
+                .setR(1)
+                .setX(10)
+                .add();
+        withPath.getTerminal1().setP(120.5).setQ(10);
+        withPath.getTerminal2().setP(-119.75).setQ(-9);
+        withPath.newExtension(LinePositionAdder.class)
+                .withCoordinates(List.of(new Coordinate(48.1, 9.2), new Coordinate(48.6, 9.65),
+                        new Coordinate(49.1, 10.2)))
+                .add();
+
+        network.newLine()
+                .setId("L12")
+                .setName("Line 12")
+                .setVoltageLevel1("VL1")
+                .setBus1("B1")
+                .setVoltageLevel2("VL2")
+                .setConnectableBus2("B2")
+                .setR(2)
+                .setX(20)
+                .add();
+        return network;
+    }
+}
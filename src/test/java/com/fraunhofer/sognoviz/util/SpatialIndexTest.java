@@ -0,0 +1,54 @@
+package com.fraunhofer.sognoviz.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpatialIndexTest {
+
+    @Test
+    void searchMatchesLinearScan() {
+        Random random = new Random(42);
+        int size = 5000;
+        double[] minX = new double[size];
+        double[] minY = new double[size];
+        double[] maxX = new double[size];
+        double[] maxY = new double[size];
+        for (int i = 0; i < size; i++) {
+            minX[i] = random.nextDouble() * 20;
+            minY[i] = 45 + random.nextDouble() * 10;
+            // every other item is a point
+            maxX[i] = i % 2 == 0 ? minX[i] : minX[i] + random.nextDouble() * 0.5;
+            maxY[i] = i % 2 == 0 ? minY[i] : minY[i] + random.nextDouble() * 0.5;
+        }
+
+        SpatialIndex index = SpatialIndex.build(minX, minY, maxX, maxY);
+        assertThat(index.size()).isEqualTo(size);
+
+        for (int query = 0; query < 100; query++) {
+            double qMinX = random.nextDouble() * 20;
+            double qMinY = 45 + random.nextDouble() * 10;
+            double qMaxX = qMinX + random.nextDouble() * 2;
+            double qMaxY = qMinY + random.nextDouble() * 2;
+
+            int[] expected = IntStream.range(0, size)
+                    .filter(i -> minX[i] <= qMaxX && maxX[i] >= qMinX && minY[i] <= qMaxY && maxY[i] >= qMinY)
+                    .toArray();
+            int[] actual = index.search(qMinX, qMinY, qMaxX, qMaxY);
+            Arrays.sort(actual);
+
+            assertThat(actual).containsExactly(expected);
+        }
+    }
+
+    @Test
+    void emptyIndexFindsNothing() {
+        SpatialIndex index = SpatialIndex.build(new double[0], new double[0], new double[0], new double[0]);
+
+        assertThat(index.search(-180, -90, 180, 90)).isEmpty();
+    }
+}